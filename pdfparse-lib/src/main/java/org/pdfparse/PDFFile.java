@@ -3,12 +3,17 @@ package org.pdfparse;
 import org.pdfparse.cos.COSDictionary;
 import org.pdfparse.cos.COSReference;
 import org.pdfparse.exception.EParseError;
+import org.pdfparse.io.ArraySource;
+import org.pdfparse.io.BlockCachedSource;
+import org.pdfparse.io.MappedFileSource;
+import org.pdfparse.io.RandomAccessSource;
 import org.pdfparse.model.PDFDocument;
 import org.pdfparse.parser.*;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.channels.SeekableByteChannel;
 
 public class PDFFile implements ParsingEvent {
     private XRefTable xref;
@@ -25,7 +30,11 @@ public class PDFFile implements ParsingEvent {
     private PDFDocument document;
 
     public PDFFile() {
-        settings = new ParserSettings();
+        this(new ParserSettings());
+    }
+
+    public PDFFile(ParserSettings settings) {
+        this.settings = settings;
         xref = new XRefTable(settings);
     }
 
@@ -50,6 +59,10 @@ public class PDFFile implements ParsingEvent {
     }
 
     public PDFDocument open(File file) throws EParseError, IOException {
+        // Files which do not fit into a byte array are always mapped
+        if (settings.useMemoryMapping || file.length() > Integer.MAX_VALUE - 8)
+            return open(new MappedFileSource(file));
+
         FileInputStream fin = new FileInputStream(file);
         byte[] contents = new byte[(int) file.length()];
 
@@ -57,9 +70,22 @@ public class PDFFile implements ParsingEvent {
         return open(contents);
     }
 
+    /**
+     * Opens a document which is read from the channel on demand, block by block.
+     * Only the trailer and the objects actually accessed are read. The channel should
+     * stay open while the document is used, it is not closed by PDFFile.
+     */
+    public PDFDocument open(SeekableByteChannel channel) throws EParseError, IOException {
+        return open(new BlockCachedSource(channel, settings.blockSize, settings.blockCacheSize));
+    }
+
     private PDFDocument open(byte[] buffer) throws EParseError {
+        return open(new ArraySource(buffer));
+    }
+
+    public PDFDocument open(RandomAccessSource source) throws EParseError {
         xref.clear();
-        PDFRawData data = new PDFRawData(buffer);
+        PDFRawData data = new PDFRawData(source);
         pdfParser = new PDFParser(data, xref, settings, this);
 
         COSDictionary dictRoot = xref.getDictionary(rootRef);
@@ -69,8 +95,8 @@ public class PDFFile implements ParsingEvent {
         return document;
     }
 
-    public void parseEverything() {
-        pdfParser.parseAndDecodeAllObjects();
+    public ParsingStatistics parseEverything() {
+        return pdfParser.parseAndDecodeAllObjects();
     }
 
     @Override
@@ -95,6 +121,12 @@ public class PDFFile implements ParsingEvent {
     public PDFDocument getDocument() {
         return document;
     }
+    public XRefTable getXRef() {
+        return xref;
+    }
+    public ParserSettings getSettings() {
+        return settings;
+    }
 
     /**
      * Tell if this document is encrypted or not.
@@ -62,21 +62,20 @@ public class PDFRectangle implements COSObject {
     }
 
     public PDFRectangle(COSArray array) {
-        this.llx = array.getInt(0);
-        this.lly = array.getInt(1);
-        this.urx = array.getInt(2);
-        this.ury = array.getInt(3);
+        set(array);
+    }
+
+    private void set(COSArray array) {
+        this.llx = array.getFloat(0);
+        this.lly = array.getFloat(1);
+        this.urx = array.getFloat(2);
+        this.ury = array.getFloat(3);
         normalize();
     }
 
     @Override
     public void parse(PDFRawData src, PDFParser pdfFile) throws EParseError {
-        COSArray array = new COSArray(src, pdfFile);
-        this.llx = array.getInt(0);
-        this.lly = array.getInt(1);
-        this.urx = array.getInt(2);
-        this.ury = array.getInt(3);
-        normalize();
+        set(new COSArray(src, pdfFile));
     }
 
     @Override
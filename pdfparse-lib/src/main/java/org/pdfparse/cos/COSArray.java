@@ -20,15 +20,35 @@
 package org.pdfparse.cos;
 
 import org.pdfparse.exception.EParseError;
+import org.pdfparse.parser.ObjectRetriever;
 import org.pdfparse.parser.PDFParser;
 import org.pdfparse.parser.PDFRawData;
+import org.pdfparse.parser.PDFTokenReader;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
 
+/**
+ * Array object. Arrays of numbers (/MediaBox, /W, /Index, /Widths, /Matrix, ...) are kept
+ * in primitive int[] or double[] storage, so {@link #getInt(int)}, {@link #getFloat(int)}
+ * and {@link #getDouble(int)} read them without unboxing. Storage is switched to COSObject[]
+ * when the first non-number element is added.
+ * <p>
+ * For numeric arrays {@link #get(int)} creates COSNumber on each call
+ * (integers are taken from {@link COSNumber#valueOf(long)} cache).
+ */
+public class COSArray extends AbstractList<COSObject> implements COSObject, RandomAccess {
+    private static final int INITIAL_CAPACITY = 4;
+    private static final int[] EMPTY_INTS = {};
 
-public class COSArray extends ArrayList<COSObject> implements COSObject {
+    // only one of storages is not null
+    private int[] ints = EMPTY_INTS; // all elements are integers
+    private double[] reals;          // all elements are numbers, some of them are real
+    private COSObject[] items;       // any elements
+    private int size;
 
     public COSArray() {
         super();
@@ -41,19 +61,38 @@ public class COSArray extends ArrayList<COSObject> implements COSObject {
 
     @Override
     public void parse(PDFRawData src, PDFParser pdfFile) throws EParseError {
+        PDFTokenReader tokens = src.getTokenReader();
         src.pos++; // Skip '['
-        src.skipWS();
 
-        while (src.pos < src.length) {
-            if (src.data[src.pos] == 0x5D)
-                break; // ']'
-            this.add(pdfFile.parseObject(src));
-            src.skipWS();
+        while (true) {
+            tokens.skipSpaces();
+            if (src.pos >= src.length)
+                return;
+            byte ch = src.byteAt(src.pos);
+            if (ch == 0x5D) // ']'
+                break;
+
+            // numbers are stored without creating COSNumber
+            if ((items == null) && (((ch >= 0x30) && (ch <= 0x39)) || (ch == 0x2B) || (ch == 0x2D) || (ch == 0x2E))) {
+                switch (tokens.next()) {
+                    case PDFTokenReader.INTEGER:
+                        addInteger(tokens.longValue());
+                        continue;
+                    case PDFTokenReader.REAL:
+                        addReal(tokens.doubleValue());
+                        continue;
+                    case PDFTokenReader.REFERENCE:
+                        add(new COSReference(tokens.getReferenceId(), tokens.getReferenceGen()));
+                        continue;
+                    default:
+                        src.pos = tokens.getStart();
+                }
+            }
+            add(pdfFile.parseObject(src));
         }
-        if (src.pos == src.length)
-            return;
         src.pos++;
         src.skipWS();
+        trimToSize();
     }
 
     @Override
@@ -77,15 +116,241 @@ public class COSArray extends ArrayList<COSObject> implements COSObject {
         return String.format("[ %d ]", this.size());
     }
 
+    /**
+     * @return true, if all elements are numbers (and kept in primitive storage)
+     */
+    public boolean isNumeric() {
+        return items == null;
+    }
+
+    private void checkIndex(int idx) {
+        if ((idx < 0) || (idx >= size))
+            throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + size);
+    }
+
+    private void ensureCapacity(int capacity) {
+        int length = (ints != null) ? ints.length : (reals != null) ? reals.length : items.length;
+        if (capacity <= length)
+            return;
+        capacity = Math.max(capacity, (length < INITIAL_CAPACITY) ? INITIAL_CAPACITY : length + (length >> 1));
+        if (ints != null)
+            ints = Arrays.copyOf(ints, capacity);
+        else if (reals != null)
+            reals = Arrays.copyOf(reals, capacity);
+        else items = Arrays.copyOf(items, capacity);
+    }
+
+    /**
+     * Releases unused capacity. Called after the array is parsed
+     */
+    public void trimToSize() {
+        if (ints != null) {
+            if (size < ints.length)
+                ints = (size == 0) ? EMPTY_INTS : Arrays.copyOf(ints, size);
+        } else if (reals != null) {
+            if (size < reals.length)
+                reals = Arrays.copyOf(reals, size);
+        } else if (size < items.length)
+            items = Arrays.copyOf(items, size);
+    }
+
+    private void switchToReals() {
+        reals = new double[Math.max(ints.length, INITIAL_CAPACITY)];
+        for (int i = 0; i < size; i++)
+            reals[i] = ints[i];
+        ints = null;
+    }
+
+    private void switchToObjects() {
+        COSObject[] arr = new COSObject[Math.max(size, INITIAL_CAPACITY)];
+        for (int i = 0; i < size; i++)
+            arr[i] = get(i);
+        items = arr;
+        ints = null;
+        reals = null;
+    }
+
+    private void addInteger(long value) {
+        if ((ints != null) && ((int) value != value))
+            switchToObjects(); // does not fit int[]; too rare to keep long[] storage
+        if (items != null) {
+            add(COSNumber.valueOf(value));
+            return;
+        }
+        ensureCapacity(size + 1);
+        if (ints != null)
+            ints[size++] = (int) value;
+        else reals[size++] = value;
+        modCount++;
+    }
+
+    private void addReal(double value) {
+        if (ints != null)
+            switchToReals();
+        if (items != null) {
+            add(new COSNumber(value));
+            return;
+        }
+        ensureCapacity(size + 1);
+        reals[size++] = value;
+        modCount++;
+    }
+
+    /**
+     * Prepares primitive storage for the element, switches to COSObject[] if it is not a number
+     *
+     * @return true, if the element should be kept in primitive storage
+     */
+    private boolean prepareFor(COSObject element) {
+        if (items != null)
+            return false;
+        if (element instanceof COSNumber) {
+            COSNumber num = (COSNumber) element;
+            if (num.isInteger() && ((ints == null) || ((int) num.longValue() == num.longValue())))
+                return true;
+            if (!num.isInteger()) {
+                if (ints != null)
+                    switchToReals();
+                return true;
+            }
+        }
+        switchToObjects();
+        return false;
+    }
+
+    private void store(int idx, COSNumber num) {
+        if (ints != null)
+            ints[idx] = num.intValue();
+        else reals[idx] = num.doubleValue();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public COSObject get(int idx) {
+        checkIndex(idx);
+        if (ints != null)
+            return COSNumber.valueOf(ints[idx]);
+        if (reals != null) {
+            double value = reals[idx];
+            if (value == (int) value)
+                return COSNumber.valueOf((int) value); // mixed array: keep integers as integers
+            return new COSNumber(value);
+        }
+        return items[idx];
+    }
+
+    @Override
+    public COSObject set(int idx, COSObject element) {
+        COSObject old = get(idx);
+        if (prepareFor(element))
+            store(idx, (COSNumber) element);
+        else items[idx] = element;
+        return old;
+    }
+
+    @Override
+    public void add(int idx, COSObject element) {
+        if ((idx < 0) || (idx > size))
+            throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + size);
+        boolean primitive = prepareFor(element);
+        ensureCapacity(size + 1);
+        if (ints != null)
+            System.arraycopy(ints, idx, ints, idx + 1, size - idx);
+        else if (reals != null)
+            System.arraycopy(reals, idx, reals, idx + 1, size - idx);
+        else System.arraycopy(items, idx, items, idx + 1, size - idx);
+
+        if (primitive)
+            store(idx, (COSNumber) element);
+        else items[idx] = element;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public COSObject remove(int idx) {
+        COSObject old = get(idx);
+        int tail = size - idx - 1;
+        if (ints != null)
+            System.arraycopy(ints, idx + 1, ints, idx, tail);
+        else if (reals != null)
+            System.arraycopy(reals, idx + 1, reals, idx, tail);
+        else {
+            System.arraycopy(items, idx + 1, items, idx, tail);
+            items[size - 1] = null;
+        }
+        size--;
+        modCount++;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        ints = EMPTY_INTS;
+        reals = null;
+        items = null;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * @return element at the position. References are resolved
+     */
+    public COSObject get(int idx, ObjectRetriever cache) throws EParseError {
+        return COSReference.dereference(get(idx), cache);
+    }
+
     public int getInt(int idx) {
-        COSObject obj = get(idx);
+        checkIndex(idx);
+        if (ints != null)
+            return ints[idx];
+        if (reals != null)
+            return (int) reals[idx];
+        COSObject obj = items[idx];
         if (obj instanceof COSNumber) return ((COSNumber) obj).intValue();
         else return 0;
     }
 
     public float getFloat(int idx) {
-        COSObject obj = get(idx);
-        if (obj instanceof COSNumber) return ((COSNumber) obj).floatValue();
+        return (float) getDouble(idx);
+    }
+
+    public double getDouble(int idx) {
+        checkIndex(idx);
+        if (ints != null)
+            return ints[idx];
+        if (reals != null)
+            return reals[idx];
+        COSObject obj = items[idx];
+        if (obj instanceof COSNumber) return ((COSNumber) obj).doubleValue();
         else return 0;
     }
+
+    /**
+     * @return copy of elements as integers. Non-numeric elements are returned as 0
+     */
+    public int[] toIntArray() {
+        if (ints != null)
+            return Arrays.copyOf(ints, size);
+        int[] res = new int[size];
+        for (int i = 0; i < size; i++)
+            res[i] = getInt(i);
+        return res;
+    }
+
+    /**
+     * @return copy of elements as doubles. Non-numeric elements are returned as 0
+     */
+    public double[] toDoubleArray() {
+        if (reals != null)
+            return Arrays.copyOf(reals, size);
+        double[] res = new double[size];
+        for (int i = 0; i < size; i++)
+            res[i] = getDouble(i);
+        return res;
+    }
 }
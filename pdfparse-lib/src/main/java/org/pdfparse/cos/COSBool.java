@@ -27,14 +27,34 @@ import java.io.OutputStream;
 
 public class COSBool implements COSObject {
 
-    static private final byte[] TRUE = {0x74, 0x72, 0x75, 0x65};
-    static private final byte[] FALSE = {0x66, 0x61, 0x6c, 0x73, 0x65};
+    static private final byte[] S_TRUE = {0x74, 0x72, 0x75, 0x65};
+    static private final byte[] S_FALSE = {0x66, 0x61, 0x6c, 0x73, 0x65};
+    public static final COSBool TRUE = new COSBool(true);
+    public static final COSBool FALSE = new COSBool(false);
+
     public final boolean value;
 
     public COSBool(Boolean val) {
         value = val;
     }
 
+    /**
+     * @return shared immutable instance
+     */
+    public static COSBool valueOf(boolean val) {
+        return val ? TRUE : FALSE;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return (o instanceof COSBool) && (((COSBool) o).value == value);
+    }
+
+    @Override
+    public int hashCode() {
+        return value ? 1231 : 1237;
+    }
+
     @Override
     public void parse(PDFRawData src, PDFParser pdfFile) {
         throw new UnsupportedOperationException("Not supported yet.");
@@ -43,9 +63,9 @@ public class COSBool implements COSObject {
     @Override
     public void produce(OutputStream dst, PDFParser pdfFile) throws IOException {
         if (value) {
-            dst.write(TRUE);
+            dst.write(S_TRUE);
         } else {
-            dst.write(FALSE);
+            dst.write(S_FALSE);
         }
     }
 
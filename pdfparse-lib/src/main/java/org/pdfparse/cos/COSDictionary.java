@@ -21,68 +21,500 @@ package org.pdfparse.cos;
 
 import org.pdfparse.cds.PDFRectangle;
 import org.pdfparse.exception.EParseError;
+import org.pdfparse.io.RandomAccessSource;
 import org.pdfparse.parser.ObjectRetriever;
 import org.pdfparse.parser.PDFParser;
 import org.pdfparse.parser.PDFRawData;
+import org.pdfparse.parser.PDFTokenReader;
 import org.pdfparse.parser.ParserSettings;
 import org.pdfparse.utils.DateConverter;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Calendar;
-import java.util.LinkedHashMap;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Dictionary object. Most of the dictionaries hold only a few keys, so entries are kept
+ * in parallel key/value arrays in insertion order, and looked up by linear scan.
+ * Larger dictionaries additionally get an open addressing index into these arrays.
+ * Like LinkedHashMap, the dictionary iterates in insertion order and permits null values.
+ * <p>
+ * Dictionary may be created lazily (see {@link ParserSettings#dictionaryParsing}): it keeps only
+ * the position of its source, and entries are parsed on the first access.
+ */
+public class COSDictionary extends AbstractMap<COSName, COSObject> implements COSObject {
+    private static final int LINEAR_SCAN_LIMIT = 8; // build index for dictionaries with more keys
+    private static final int INITIAL_CAPACITY = 4;
+    private static final COSName[] EMPTY_KEYS = {};
+    private static final COSObject[] EMPTY_VALUES = {};
 
-public class COSDictionary extends LinkedHashMap<COSName, COSObject> implements COSObject {
     private static final byte[] S_OPEN = {0x3C, 0x3C};
     private static final byte[] S_OPEN_PP = {0x3C, 0x3C, 0xA};
     private static final byte[] S_CLOSE = {0x3E, 0x3E};
     private static final byte[] S_CLOSE_PP = {0x3E, 0x3E, 0xA};
     private static final byte[] S_NULL = {0x6E, 0x75, 0x6C, 0x6C}; // "null"
 
+    private COSName[] keys = EMPTY_KEYS;
+    private COSObject[] values = EMPTY_VALUES;
+    private int size;
+    private int[] index; // open addressing table of (position + 1), 0 - empty slot. Null for small dictionaries
+    private volatile LazySource lazy; // not parsed source of entries, null when all entries are parsed
+
+    private static final class LazySource {
+        final PDFParser parser;
+        final RandomAccessSource source;
+        final long start; // offset of '<<'
+        final boolean perKey;
+
+        LazySource(PDFParser parser, RandomAccessSource source, long start, boolean perKey) {
+            this.parser = parser;
+            this.source = source;
+            this.start = start;
+            this.perKey = perKey;
+        }
+    }
+
     public COSDictionary() {
         super();
     }
 
     public COSDictionary(COSDictionary src, ObjectRetriever parser) {
-        super.putAll(src);
+        src.load();
+        keys = Arrays.copyOf(src.keys, src.size);
+        values = Arrays.copyOf(src.values, src.size);
+        size = src.size;
+        if (size > LINEAR_SCAN_LIMIT)
+            rebuildIndex();
     }
 
     public COSDictionary(PDFRawData src, PDFParser pdfFile) throws EParseError {
         parse(src, pdfFile);
     }
 
+    /**
+     * Creates dictionary, which entries are parsed on the first access
+     *
+     * @param pdfFile parser to parse entries with
+     * @param source  source of the dictionary
+     * @param start   offset of the dictionary within the source
+     * @param perKey  parse only requested entries on get() and containsKey()
+     */
+    public COSDictionary(PDFParser pdfFile, RandomAccessSource source, long start, boolean perKey) {
+        lazy = new LazySource(pdfFile, source, start, perKey);
+    }
+
+    /**
+     * @return false, if the dictionary was created lazily and its entries are not parsed yet
+     */
+    public boolean isLoaded() {
+        return lazy == null;
+    }
+
+    /**
+     * Parses all entries of lazily created dictionary. Entries, which were parsed
+     * separately in per-key mode, keep their instances
+     */
+    public void load() throws EParseError {
+        if (lazy == null)
+            return;
+
+        synchronized (this) {
+            LazySource l = lazy;
+            if (l == null)
+                return;
+
+            COSName[] oldKeys = keys;
+            COSObject[] oldValues = values;
+            int oldSize = size;
+            keys = EMPTY_KEYS;
+            values = EMPTY_VALUES;
+            size = 0;
+            index = null;
+            PDFRawData src = l.parser.lazyCursor(l.source);
+            try {
+                src.pos = l.start;
+                parse(src, l.parser);
+            } catch (RuntimeException e) {
+                keys = oldKeys;
+                values = oldValues;
+                size = oldSize;
+                index = null;
+                if (size > LINEAR_SCAN_LIMIT)
+                    rebuildIndex();
+                throw e;
+            } finally {
+                src.detach();
+            }
+
+            for (int i = 0; i < oldSize; i++) {
+                int pos = indexOf(oldKeys[i]);
+                if (pos >= 0)
+                    values[pos] = oldValues[i];
+            }
+            lazy = null;
+        }
+    }
+
+    /**
+     * Looks up single entry of lazily created dictionary in per-key mode. Found entry is kept
+     */
+    private synchronized int lazyIndexOf(Object key) throws EParseError {
+        LazySource l = lazy;
+        int pos = indexOf(key);
+        if ((l == null) || (pos >= 0) || !(key instanceof COSName))
+            return pos;
+
+        PDFRawData src = l.parser.lazyCursor(l.source);
+        try {
+            PDFTokenReader tokens = src.getTokenReader();
+            src.pos = l.start + 2; // skip '<<'
+            while (true) {
+                switch (tokens.next()) {
+                    case PDFTokenReader.NAME:
+                        if (tokens.nameEquals((COSName) key)) {
+                            putEntry((COSName) key, l.parser.parseObject(src));
+                            return indexOf(key);
+                        }
+                        tokens.next(); // skip the value
+                        tokens.skipValue();
+                        break;
+                    case PDFTokenReader.DICT_END:
+                        return -1;
+                    case PDFTokenReader.EOF:
+                        throw new EParseError("Reach end of file while parsing dictionary");
+                    default:
+                        throw new EParseError("Expected SOLIDUS sign #2F in name object, but got x" + Integer.toHexString(src.byteAt(tokens.getStart())));
+                }
+            }
+        } finally {
+            src.detach();
+        }
+    }
+
+    private static int hash(COSName key) {
+        if (key == null)
+            return 0;
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private int indexOf(Object key) {
+        if (index == null) {
+            for (int i = 0; i < size; i++) {
+                COSName k = keys[i];
+                if ((k == key) || ((key != null) && key.equals(k)))
+                    return i;
+            }
+            return -1;
+        }
+
+        if ((key != null) && !(key instanceof COSName))
+            return -1;
+
+        int mask = index.length - 1;
+        int p = hash((COSName) key) & mask;
+        int slot;
+        while ((slot = index[p]) != 0) {
+            COSName k = keys[slot - 1];
+            if ((k == key) || ((key != null) && key.equals(k)))
+                return slot - 1;
+            p = (p + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void addToIndex(int pos) {
+        int mask = index.length - 1;
+        int p = hash(keys[pos]) & mask;
+        while (index[p] != 0)
+            p = (p + 1) & mask;
+        index[p] = pos + 1;
+    }
+
+    private void rebuildIndex() {
+        int capacity = 16;
+        while (capacity < size * 4)
+            capacity <<= 1;
+        index = new int[capacity];
+        for (int i = 0; i < size; i++)
+            addToIndex(i);
+    }
+
+    private void removeAt(int pos) {
+        int tail = size - pos - 1;
+        if (tail > 0) {
+            System.arraycopy(keys, pos + 1, keys, pos, tail);
+            System.arraycopy(values, pos + 1, values, pos, tail);
+        }
+        size--;
+        keys[size] = null;
+        values[size] = null;
+
+        if (size <= LINEAR_SCAN_LIMIT)
+            index = null;
+        else rebuildIndex();
+    }
+
+    /**
+     * Releases unused capacity of key/value arrays. Called after the dictionary is parsed
+     */
+    public void trimToSize() {
+        load();
+        if (size < keys.length) {
+            keys = (size == 0) ? EMPTY_KEYS : Arrays.copyOf(keys, size);
+            values = (size == 0) ? EMPTY_VALUES : Arrays.copyOf(values, size);
+        }
+    }
+
     @Override
-    public void parse(PDFRawData src, PDFParser pdfFile) throws EParseError {
-        //throw new UnsupportedOperationException("Not supported yet.");
-        src.pos += 2;
+    public int size() {
+        load();
+        return size;
+    }
 
-        while (src.pos < src.length) {
-            src.skipWS();
-            if ((src.data[src.pos] == 0x3E) && (src.data[src.pos + 1] == 0x3E)) { // '>'
-                src.pos += 2;
-                return;
+    @Override
+    public boolean isEmpty() {
+        load();
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        LazySource l = lazy;
+        if ((l != null) && l.perKey)
+            return lazyIndexOf(key) >= 0;
+        load();
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public COSObject get(Object key) {
+        LazySource l = lazy;
+        if ((l != null) && l.perKey) {
+            synchronized (this) { // arrays may be changed by other threads until all entries are parsed
+                int pos = lazyIndexOf(key);
+                return (pos >= 0) ? values[pos] : null;
             }
+        }
+        load();
+        int pos = indexOf(key);
+        return (pos >= 0) ? values[pos] : null;
+    }
+
+    @Override
+    public COSObject put(COSName key, COSObject value) {
+        load();
+        return putEntry(key, value);
+    }
 
-            src.skipWS();
-            COSName name = new COSName(src, pdfFile);
-            //if ((name.length == 0)||(name[0]!=0x2F)) throw new Error('This token is not a name: ' + name.toString()); // '/'
-            COSObject obj = pdfFile.parseObject(src);
-            this.put(name, obj);
+    private COSObject putEntry(COSName key, COSObject value) {
+        int pos = indexOf(key);
+        if (pos >= 0) {
+            COSObject old = values[pos];
+            values[pos] = value;
+            return old;
+        }
+
+        if (size == keys.length) {
+            int capacity = (size < INITIAL_CAPACITY) ? INITIAL_CAPACITY : size + (size >> 1);
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        keys[size] = key;
+        values[size] = value;
+        size++;
+
+        if (index != null) {
+            if (size * 2 > index.length)
+                rebuildIndex();
+            else addToIndex(size - 1);
+        } else if (size > LINEAR_SCAN_LIMIT)
+            rebuildIndex();
+        return null;
+    }
+
+    @Override
+    public COSObject remove(Object key) {
+        load();
+        int pos = indexOf(key);
+        if (pos < 0)
+            return null;
+        COSObject old = values[pos];
+        removeAt(pos);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        lazy = null;
+        keys = EMPTY_KEYS;
+        values = EMPTY_VALUES;
+        size = 0;
+        index = null;
+    }
+
+    @Override
+    public Set<COSName> keySet() {
+        load();
+        return new AbstractSet<COSName>() {
+            @Override
+            public Iterator<COSName> iterator() {
+                return new Itr<COSName>() {
+                    @Override
+                    COSName get(int pos) {
+                        return keys[pos];
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Collection<COSObject> values() {
+        load();
+        return new AbstractCollection<COSObject>() {
+            @Override
+            public Iterator<COSObject> iterator() {
+                return new Itr<COSObject>() {
+                    @Override
+                    COSObject get(int pos) {
+                        return values[pos];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<COSName, COSObject>> entrySet() {
+        load();
+        return new AbstractSet<Map.Entry<COSName, COSObject>>() {
+            @Override
+            public Iterator<Map.Entry<COSName, COSObject>> iterator() {
+                return new Itr<Map.Entry<COSName, COSObject>>() {
+                    @Override
+                    Map.Entry<COSName, COSObject> get(int pos) {
+                        return new Entry(pos);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Iterates over positions in insertion order
+     */
+    private abstract class Itr<E> implements Iterator<E> {
+        private int next;
+        private int last = -1;
+
+        abstract E get(int pos);
+
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        @Override
+        public E next() {
+            if (next >= size)
+                throw new NoSuchElementException();
+            last = next++;
+            return get(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0)
+                throw new IllegalStateException();
+            removeAt(last);
+            next = last;
+            last = -1;
+        }
+    }
+
+    private final class Entry extends AbstractMap.SimpleEntry<COSName, COSObject> {
+        private final int pos;
+
+        Entry(int pos) {
+            super(keys[pos], values[pos]);
+            this.pos = pos;
+        }
+
+        @Override
+        public COSObject setValue(COSObject value) {
+            values[pos] = value;
+            return super.setValue(value);
+        }
+    }
+
+    @Override
+    public void parse(PDFRawData src, PDFParser pdfFile) throws EParseError {
+        PDFTokenReader tokens = src.getTokenReader();
+        src.pos += 2; // skip '<<'
+
+        while (true) {
+            switch (tokens.next()) {
+                case PDFTokenReader.DICT_END:
+                    if (size < keys.length) {
+                        keys = Arrays.copyOf(keys, size);
+                        values = Arrays.copyOf(values, size);
+                    }
+                    return;
+                case PDFTokenReader.NAME:
+                    COSName name = COSName.valueOf(src, tokens.getStart(), tokens.getEnd());
+                    COSObject obj = pdfFile.parseObject(src);
+                    putEntry(name, obj);
+                    break;
+                case PDFTokenReader.EOF:
+                    throw new EParseError("Reach end of file while parsing dictionary");
+                default:
+                    throw new EParseError("Expected SOLIDUS sign #2F in name object, but got x" + Integer.toHexString(src.byteAt(tokens.getStart())));
+            }
         }
-        throw new EParseError("Reach end of file while parsing dictionary");
     }
 
     @Override
     public void produce(OutputStream dst, PDFParser pdfFile) throws IOException {
         COSObject obj;
+        load();
         if (ParserSettings.PRETTY_PRINT)
             dst.write(S_OPEN_PP); // "<<\n"
         else dst.write(S_OPEN); // "<<"
 
-        for (COSName key : this.keySet()) {
-            key.produce(dst, pdfFile);
+        for (int i = 0; i < size; i++) {
+            keys[i].produce(dst, pdfFile);
             dst.write(0x20);
-            obj = this.get(key);
+            obj = values[i];
             if (obj == null)
                 dst.write(S_NULL);
             else
@@ -100,13 +532,14 @@ public class COSDictionary extends LinkedHashMap<COSName, COSObject> implements
     }
 
     private COSObject dereference(COSObject obj, ObjectRetriever cache) throws EParseError {
-        int counter = 5;
-        while (obj instanceof COSReference) {
-            obj = cache.getObject((COSReference) obj);
-            if (counter-- == 0)
-                throw new EParseError("Infinite or too deep loop for " + obj.toString());
-        }
-        return obj;
+        return COSReference.dereference(obj, cache);
+    }
+
+    /**
+     * @return value of the entry. References are resolved
+     */
+    public COSObject get(COSName name, ObjectRetriever cache) throws EParseError {
+        return dereference(this.get(name), cache);
     }
 
     public boolean getBool(COSName name, boolean def_value) {
@@ -126,7 +559,7 @@ public class COSDictionary extends LinkedHashMap<COSName, COSObject> implements
     }
 
     public void setBool(COSName name, boolean value) {
-        COSBool v = new COSBool(value);
+        COSBool v = COSBool.valueOf(value);
         this.put(name, v);
     }
 
@@ -146,6 +579,13 @@ public class COSDictionary extends LinkedHashMap<COSName, COSObject> implements
         else return def_value;
     }
 
+    public long getLong(COSName name, long def_value) {
+        COSObject obj = this.get(name);
+        if (obj == null) return def_value;
+        if (obj instanceof COSNumber) return ((COSNumber) obj).longValue();
+        else return def_value;
+    }
+
     public int getUInt(COSName name, int def_value) {
         return getInt(name, def_value);
     }
@@ -155,7 +595,7 @@ public class COSDictionary extends LinkedHashMap<COSName, COSObject> implements
     }
 
     public void setInt(COSName name, int value) {
-        COSNumber v = new COSNumber(value);
+        COSNumber v = COSNumber.valueOf(value);
         this.put(name, v);
     }
 
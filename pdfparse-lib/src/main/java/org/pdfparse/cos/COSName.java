@@ -20,6 +20,7 @@
 package org.pdfparse.cos;
 
 import org.pdfparse.exception.EParseError;
+import org.pdfparse.filter.CharTable;
 import org.pdfparse.parser.Diagnostics;
 import org.pdfparse.parser.PDFParser;
 import org.pdfparse.parser.PDFRawData;
@@ -28,104 +29,108 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 
 public class COSName implements COSObject {
-    public static final COSName EMPTY = new COSName("");
-    public static final COSName UNKNOWN = new COSName("/Unknown");
-    public static final COSName TRUE = new COSName("/True");
-    public static final COSName FALSE = new COSName("/False");
-
-    public static final COSName PREV = new COSName("/Prev");
-    public static final COSName XREFSTM = new COSName("/XRefStm");
-    public static final COSName LENGTH = new COSName("/Length");
-    public static final COSName TYPE = new COSName("/Type");
-    public static final COSName XREF = new COSName("/XRef");
-    public static final COSName W = new COSName("/W");
-    public static final COSName SIZE = new COSName("/Size");
-    public static final COSName INDEX = new COSName("/Index");
-    public static final COSName FILTER = new COSName("/Filter");
-
-    public static final COSName FLATEDECODE = new COSName("/FlateDecode");
-    public static final COSName FL = new COSName("/Fl");
-    public static final COSName ASCIIHEXDECODE = new COSName("/ASCIIHexDecode");
-    public static final COSName AHX = new COSName("/AHx");
-    public static final COSName ASCII85DECODE = new COSName("/ASCII85Decode");
-    public static final COSName A85 = new COSName("/A85");
-    public static final COSName LZWDECODE = new COSName("/LZWDecode");
-    public static final COSName CRYPT = new COSName("/Crypt");
-    public static final COSName RUNLENGTHDECODE = new COSName("/RunLengthDecode");
-    public static final COSName JPXDECODE = new COSName("/JPXDecode");
-    public static final COSName CCITTFAXDECODE = new COSName("/CCITTFaxDecode");
-    public static final COSName JBIG2DECODE = new COSName("/JBIG2Decode");
-
-
-    public static final COSName DCTDECODE = new COSName("/DCTDecode");
-    public static final COSName ENCRYPT = new COSName("/Encrypt");
-    public static final COSName DECODEPARMS = new COSName("/DecodeParms");
-    public static final COSName PREDICTOR = new COSName("/Predictor");
-    public static final COSName COLUMNS = new COSName("/Columns");
-    public static final COSName COLORS = new COSName("/Colors");
-    public static final COSName BITSPERCOMPONENT = new COSName("/BitsPerComponent");
-    public static final COSName ROOT = new COSName("/Root");
-    public static final COSName INFO = new COSName("/Info");
-    public static final COSName ID = new COSName("/ID");
-
-    public static final COSName TITLE = new COSName("/Title");
-    public static final COSName KEYWORDS = new COSName("/Keywords");
-    public static final COSName SUBJECT = new COSName("/Subject");
-    public static final COSName AUTHOR = new COSName("/Author");
-    public static final COSName CREATOR = new COSName("/Creator");
-    public static final COSName PRODUCER = new COSName("/Producer");
-    public static final COSName CREATION_DATE = new COSName("/CreationDate");
-    public static final COSName MOD_DATE = new COSName("/ModDate");
-    public static final COSName TRAPPED = new COSName("/Trapped");
-
-    public static final COSName PAGES = new COSName("/Pages");
-    public static final COSName METADATA = new COSName("/Metadata");
-    public static final COSName COUNT = new COSName("/Count");
-    public static final COSName CATALOG = new COSName("/Catalog");
-    public static final COSName VERSION = new COSName("/Version");
-    public static final COSName LANG = new COSName("/Lang");
-    public static final COSName PAGELAYOUT = new COSName("/PageLayout");
-    public static final COSName PAGEMODE = new COSName("/PageMode");
+    // Intern pool: open addressing table, which is filled without locks. It is never resized,
+    // so the number of shared names is bounded; names parsed after the pool is full are not shared
+    private static final int POOL_CAPACITY = 8192; // power of 2
+    private static final int POOL_MAX_NAMES = POOL_CAPACITY / 2;
+    private static final AtomicReferenceArray<COSName> pool = new AtomicReferenceArray<COSName>(POOL_CAPACITY);
+    private static final AtomicInteger poolSize = new AtomicInteger();
+
+    public static final COSName EMPTY = intern("");
+    public static final COSName UNKNOWN = intern("/Unknown");
+    public static final COSName TRUE = intern("/True");
+    public static final COSName FALSE = intern("/False");
+
+    public static final COSName PREV = intern("/Prev");
+    public static final COSName XREFSTM = intern("/XRefStm");
+    public static final COSName LENGTH = intern("/Length");
+    public static final COSName TYPE = intern("/Type");
+    public static final COSName XREF = intern("/XRef");
+    public static final COSName W = intern("/W");
+    public static final COSName SIZE = intern("/Size");
+    public static final COSName INDEX = intern("/Index");
+    public static final COSName FILTER = intern("/Filter");
+
+    public static final COSName FLATEDECODE = intern("/FlateDecode");
+    public static final COSName FL = intern("/Fl");
+    public static final COSName ASCIIHEXDECODE = intern("/ASCIIHexDecode");
+    public static final COSName AHX = intern("/AHx");
+    public static final COSName ASCII85DECODE = intern("/ASCII85Decode");
+    public static final COSName A85 = intern("/A85");
+    public static final COSName LZWDECODE = intern("/LZWDecode");
+    public static final COSName CRYPT = intern("/Crypt");
+    public static final COSName RUNLENGTHDECODE = intern("/RunLengthDecode");
+    public static final COSName JPXDECODE = intern("/JPXDecode");
+    public static final COSName CCITTFAXDECODE = intern("/CCITTFaxDecode");
+    public static final COSName JBIG2DECODE = intern("/JBIG2Decode");
+
+
+    public static final COSName DCTDECODE = intern("/DCTDecode");
+    public static final COSName ENCRYPT = intern("/Encrypt");
+    public static final COSName DECODEPARMS = intern("/DecodeParms");
+    public static final COSName DL = intern("/DL");
+    public static final COSName PREDICTOR = intern("/Predictor");
+    public static final COSName COLUMNS = intern("/Columns");
+    public static final COSName COLORS = intern("/Colors");
+    public static final COSName BITSPERCOMPONENT = intern("/BitsPerComponent");
+    public static final COSName ROOT = intern("/Root");
+    public static final COSName INFO = intern("/Info");
+    public static final COSName ID = intern("/ID");
+
+    public static final COSName TITLE = intern("/Title");
+    public static final COSName KEYWORDS = intern("/Keywords");
+    public static final COSName SUBJECT = intern("/Subject");
+    public static final COSName AUTHOR = intern("/Author");
+    public static final COSName CREATOR = intern("/Creator");
+    public static final COSName PRODUCER = intern("/Producer");
+    public static final COSName CREATION_DATE = intern("/CreationDate");
+    public static final COSName MOD_DATE = intern("/ModDate");
+    public static final COSName TRAPPED = intern("/Trapped");
+
+    public static final COSName PAGES = intern("/Pages");
+    public static final COSName METADATA = intern("/Metadata");
+    public static final COSName COUNT = intern("/Count");
+    public static final COSName CATALOG = intern("/Catalog");
+    public static final COSName VERSION = intern("/Version");
+    public static final COSName LANG = intern("/Lang");
+    public static final COSName PAGELAYOUT = intern("/PageLayout");
+    public static final COSName PAGEMODE = intern("/PageMode");
 
     // A name object specifying the page layout shall be used when the document is opened:
-    public static final COSName PL_SINGLE_PAGE = new COSName("/SinglePage");
-    public static final COSName PL_ONECOLUMN = new COSName("/OneColumn");
-    public static final COSName PL_TWOCOLUMNLEFT = new COSName("/TwoColumnLeft");
-    public static final COSName PL_TWOCOLUMNRIGHT = new COSName("/TwoColumnRight");
-    public static final COSName PL_TWOPAGELEFT = new COSName("/TwoPageLeft");
-    public static final COSName PL_TWOPAGERIGHT = new COSName("/TwoPageRight");
+    public static final COSName PL_SINGLE_PAGE = intern("/SinglePage");
+    public static final COSName PL_ONECOLUMN = intern("/OneColumn");
+    public static final COSName PL_TWOCOLUMNLEFT = intern("/TwoColumnLeft");
+    public static final COSName PL_TWOCOLUMNRIGHT = intern("/TwoColumnRight");
+    public static final COSName PL_TWOPAGELEFT = intern("/TwoPageLeft");
+    public static final COSName PL_TWOPAGERIGHT = intern("/TwoPageRight");
 
     // A name object specifying how the document shall be displayed when opened:
-    public static final COSName PM_NONE = new COSName("/UseNone");                 // Neither document outline nor thumbnail images visible
-    public static final COSName PM_OUTLINES = new COSName("/UseOutlines");         // Document outline visible
-    public static final COSName PM_THUMBS = new COSName("/UseThumbs");             // Thumbnail images visible
-    public static final COSName PM_FULLSCREEN = new COSName("/FullScreen");        // Full-screen mode, with no menu bar, window controls, or any other window visible
-    public static final COSName PM_OC = new COSName("/UseOC");                     // (PDF 1.5) Optional content group panel visible
-    public static final COSName PM_ATTACHMENTS = new COSName("/UseAttachments");   // (PDF 1.6) Attachments panel visible
+    public static final COSName PM_NONE = intern("/UseNone");                 // Neither document outline nor thumbnail images visible
+    public static final COSName PM_OUTLINES = intern("/UseOutlines");         // Document outline visible
+    public static final COSName PM_THUMBS = intern("/UseThumbs");             // Thumbnail images visible
+    public static final COSName PM_FULLSCREEN = intern("/FullScreen");        // Full-screen mode, with no menu bar, window controls, or any other window visible
+    public static final COSName PM_OC = intern("/UseOC");                     // (PDF 1.5) Optional content group panel visible
+    public static final COSName PM_ATTACHMENTS = intern("/UseAttachments");   // (PDF 1.6) Attachments panel visible
 
 
-    public static final COSName PARENT = new COSName("/PARENT");
-    public static final COSName PAGE = new COSName("/PAGE");
-    public static final COSName MEDIABOX = new COSName("/MediaBox");
-    public static final COSName CROPBOX = new COSName("CropBox");
-    public static final COSName KIDS = new COSName("Kids");
+    public static final COSName PARENT = intern("/PARENT");
+    public static final COSName PAGE = intern("/PAGE");
+    public static final COSName MEDIABOX = intern("/MediaBox");
+    public static final COSName CROPBOX = intern("CropBox");
+    public static final COSName KIDS = intern("Kids");
 
 
-    public static final COSName FIRST = new COSName("/First");
-    public static final COSName N = new COSName("/N");
-
-    private static final int[] HEX = { // '0'..'f'
-            0, 1, 2, 3, 4, 5, 6, 7, 8, 9, -1, -1, -1, -1, -1, -1,
-            -1, 10, 11, 12, 13, 14, 15, -1, -1, -1, -1, -1, -1, -1, -1, -1,
-            -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
-            -1, 10, 11, 12, 13, 14, 15};
-
+    public static final COSName FIRST = intern("/First");
+    public static final COSName N = intern("/N");
 
     private byte[] value;
     private int hc;
+    private boolean interned; // the only instance with such value in the pool
 
     public COSName(PDFRawData src, PDFParser pdfFile) throws EParseError {
         parse(src, pdfFile);
@@ -136,6 +141,74 @@ public class COSName implements COSObject {
         hc = Arrays.hashCode(value);
     }
 
+    /**
+     * @return shared instance of the name
+     */
+    public static COSName intern(String val) {
+        return intern(new COSName(val));
+    }
+
+    /**
+     * @return shared instance with the same value, or the name itself if it became shared
+     * or the pool is full
+     */
+    public static COSName intern(COSName name) {
+        if (name.interned)
+            return name;
+
+        int mask = POOL_CAPACITY - 1;
+        for (int i = name.hc & mask, probes = 0; probes < POOL_CAPACITY; i = (i + 1) & mask, probes++) {
+            COSName entry = pool.get(i);
+            if (entry == null) {
+                if (poolSize.get() >= POOL_MAX_NAMES)
+                    return name;
+                name.interned = true;
+                if (pool.compareAndSet(i, null, name)) {
+                    poolSize.incrementAndGet();
+                    return name;
+                }
+                name.interned = false; // another thread took the slot
+                entry = pool.get(i);
+            }
+            if ((entry.hc == name.hc) && Arrays.equals(entry.value, name.value))
+                return entry;
+        }
+        return name;
+    }
+
+    /**
+     * Returns shared instance of the name token in the source. Name is allocated only
+     * if it is not in the pool yet
+     *
+     * @param start offset of '/'
+     * @param end offset after the last char of the name
+     */
+    public static COSName valueOf(PDFRawData src, long start, long end) {
+        // hash of decoded value, the same as Arrays.hashCode()
+        int h = 1;
+        int len = 0;
+        for (long i = start; i < end; i++) {
+            byte b = src.byteAt(i);
+            int v = (b == 0x23) ? escapedByte(src, i, end) : -1;
+            if (v >= 0) {
+                b = (byte) v;
+                i += 2;
+            }
+            h = 31 * h + b;
+            len++;
+        }
+
+        int mask = POOL_CAPACITY - 1;
+        for (int i = h & mask, probes = 0; probes < POOL_CAPACITY; i = (i + 1) & mask, probes++) {
+            COSName entry = pool.get(i);
+            if (entry == null)
+                break;
+            if ((entry.hc == h) && (entry.value.length == len) && entry.matches(src, start, end))
+                return entry;
+        }
+        return intern(new COSName(src, start, end));
+    }
+
     public String asString() {
         return new String(value, Charset.defaultCharset());
     }
@@ -157,6 +230,8 @@ public class COSName implements COSObject {
             return false;
         }
         final COSName other = (COSName) obj;
+        if (this.interned && other.interned)
+            return false; // pool keeps one instance per value
         return (this.hc == other.hc) && Arrays.equals(this.value, other.value);
     }
 
@@ -168,19 +243,18 @@ public class COSName implements COSObject {
     @Override
     public void parse(PDFRawData src, PDFParser parser) throws EParseError {
         src.skipWS();
-        int p = src.pos;
-        int len = src.length;
-        int i, cnt = 0;
-        byte b, v1, v2;
+        long p = src.pos;
+        long len = src.length;
+        byte b;
         boolean stop = false;
 
-        if (src.data[src.pos] != 0x2F)
-            throw new EParseError("Expected SOLIDUS sign #2F in name object, but got x" + Integer.toHexString(src.data[p]));
+        if (src.byteAt(src.pos) != 0x2F)
+            throw new EParseError("Expected SOLIDUS sign #2F in name object, but got x" + Integer.toHexString(src.byteAt(p)));
 
         p++; // skip '/'
 
         while ((p <= len)) {
-            b = src.data[p];
+            b = src.byteAt(p);
             Diagnostics.softAssertSyntaxCompliance(parser.settings, b >= 0, "Illegal character in name token");
 
             switch (b) {
@@ -193,11 +267,6 @@ public class COSName implements COSObject {
                     stop = true;
                     break;
 
-                // Escape char
-                case 0x23:
-                    cnt++; // escape char. skip it
-                    break;
-
                 // Delimeters
                 case 0x28: // ( - LEFT PARENTHESIS
                 case 0x29: // ) - RIGHT PARENTHESIS
@@ -222,30 +291,74 @@ public class COSName implements COSObject {
             p++;
         } // while ...
 
-        if (cnt == 0) {
-            value = new byte[p - src.pos];
-            System.arraycopy(src.data, src.pos, value, 0, value.length);
-            src.pos = p;
-            hc = Arrays.hashCode(value);
-            return;
-        }
+        decode(src, src.pos, p);
+        src.pos = p;
+    }
 
-        value = new byte[p - src.pos - 2 * cnt];
-        cnt = 0;
-        for (i = src.pos; i < p; i++) {
-            if (src.data[i] == 0x23) {
-                v1 = (byte) HEX[src.data[i + 1] - 0x30];
-                v2 = (byte) HEX[src.data[i + 2] - 0x30];
-                value[cnt++] = (byte) ((v1 << 4) & (v2 & 0xF));
-                i += 2; //agh!!!!!
-            } else
-                value[cnt++] = src.data[i];
-        }
+    /**
+     * Creates name from the token span, e.g. returned by {@link org.pdfparse.parser.PDFTokenReader}
+     *
+     * @param start offset of '/'
+     * @param end offset after the last char of the name
+     */
+    public COSName(PDFRawData src, long start, long end) {
+        decode(src, start, end);
+    }
 
-        src.pos = p;
+    /**
+     * @return value of escape sequence '#xx' at the position, or -1 if there is no valid escape sequence
+     */
+    private static int escapedByte(PDFRawData src, long i, long end) {
+        if ((src.byteAt(i) != 0x23) || (i + 2 >= end))
+            return -1;
+        int v1 = CharTable.hex(src.byteAt(i + 1));
+        int v2 = CharTable.hex(src.byteAt(i + 2));
+        if ((v1 < 0) || (v2 < 0))
+            return -1;
+        return (v1 << 4) | v2;
+    }
+
+    private void decode(PDFRawData src, long start, long end) {
+        byte[] res = new byte[(int) (end - start)];
+        src.getBytes(start, res, 0, res.length);
+
+        int len = 0;
+        for (int i = 0; i < res.length; i++) {
+            int v = (res[i] == 0x23) ? escapedByte(src, start + i, end) : -1;
+            if (v >= 0) {
+                res[len++] = (byte) v;
+                i += 2;
+            } else {
+                res[len++] = res[i];
+            }
+        }
+        value = (len == res.length) ? res : Arrays.copyOf(res, len);
         hc = Arrays.hashCode(value);
     }
 
+    /**
+     * Compares the name with the name token in the source, without allocating a new name
+     *
+     * @param start offset of '/'
+     * @param end offset after the last char of the name
+     */
+    public boolean matches(PDFRawData src, long start, long end) {
+        if (end - start < value.length)
+            return false;
+        int j = 0;
+        for (long i = start; i < end; i++) {
+            int b = src.byteAt(i);
+            int v = (b == 0x23) ? escapedByte(src, i, end) : -1;
+            if (v >= 0) {
+                b = (byte) v;
+                i += 2;
+            }
+            if ((j == value.length) || (value[j++] != b))
+                return false;
+        }
+        return j == value.length;
+    }
+
     @Override
     public void produce(OutputStream dst, PDFParser pdfFile) throws IOException {
         int cnt = 0;
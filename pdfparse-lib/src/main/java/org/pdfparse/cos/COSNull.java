@@ -30,6 +30,11 @@ import java.io.OutputStream;
 public class COSNull implements COSObject {
     private static final byte[] S_NULL = {0x6E, 0x75, 0x6C, 0x6C}; // "null"
 
+    /**
+     * Shared instance. All null objects are equal, so there is no need to create others
+     */
+    public static final COSNull NULL = new COSNull();
+
     @Override
     public void parse(PDFRawData src, PDFParser pdfFile) throws EParseError {
         throw new UnsupportedOperationException("Not supported yet.");
@@ -40,6 +45,16 @@ public class COSNull implements COSObject {
         dst.write(S_NULL);
     }
 
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof COSNull;
+    }
+
+    @Override
+    public int hashCode() {
+        return 0;
+    }
+
     @Override
     public String toString() {
         return "null";
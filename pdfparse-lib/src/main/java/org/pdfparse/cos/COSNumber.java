@@ -40,12 +40,25 @@ import java.io.OutputStream;
 
 public final class COSNumber implements COSObject {
 
+    // Cached integers: covers most of /W, /Widths, /Index, generation numbers and coordinates
+    private static final int CACHE_LOW = -128;
+    private static final int CACHE_HIGH = 1024;
+    private static final COSNumber[] cache = new COSNumber[CACHE_HIGH - CACHE_LOW + 1];
+
+    static {
+        for (int i = 0; i < cache.length; i++) {
+            cache[i] = new COSNumber(i + CACHE_LOW);
+            cache[i].shared = true;
+        }
+    }
+
     /**
      * actual value of this <CODE>COSNumber</CODE>, represented as a
      * <CODE>double</CODE>
      */
     private double value;
     private boolean isInteger;
+    private boolean shared; // cached instance, should not be changed by parse()
 
     public COSNumber(double val) {
         value = val;
@@ -71,6 +84,30 @@ public final class COSNumber implements COSObject {
         parse(src, pdfFile);
     }
 
+    /**
+     * Returns integer number. Small values are taken from cache, so
+     * the returned instance may be shared and should not be re-parsed.
+     *
+     * @param val integer value
+     * @return number instance
+     */
+    public static COSNumber valueOf(long val) {
+        if ((val >= CACHE_LOW) && (val <= CACHE_HIGH))
+            return cache[(int) val - CACHE_LOW];
+        return new COSNumber(val);
+    }
+
+    public static COSNumber valueOf(int val) {
+        return valueOf((long) val);
+    }
+
+    /**
+     * @return true, if the instance is shared (returned from cache by {@link #valueOf(long)})
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
 
     /**
      * {@inheritDoc}
@@ -90,6 +127,13 @@ public final class COSNumber implements COSObject {
     }
 
 
+    /**
+     * @return true, if the number is integer (was written without fractional part)
+     */
+    public boolean isInteger() {
+        return isInteger;
+    }
+
     /**
      * Returns the primitive <CODE>int</CODE> value of this object.
      *
@@ -129,7 +173,10 @@ public final class COSNumber implements COSObject {
 
     @Override
     public void parse(PDFRawData src, PDFParser pdfFile) throws EParseError {
-        int prev = src.pos;
+        if (shared)
+            throw new UnsupportedOperationException("Cached number can not be changed");
+
+        long prev = src.pos;
         float sign = 1;
         float divider = 10;
 
@@ -139,7 +186,7 @@ public final class COSNumber implements COSObject {
         value = 0;
 
         while (src.pos < src.length) {
-            switch (src.data[src.pos]) {
+            switch (src.byteAt(src.pos)) {
                 case 0x30:
                 case 0x31:
                 case 0x32:
@@ -151,10 +198,10 @@ public final class COSNumber implements COSObject {
                 case 0x38:
                 case 0x39: // 5..9
                     if (hasFractional) {
-                        value += (src.data[src.pos] - 0x30) / divider;
+                        value += (src.byteAt(src.pos) - 0x30) / divider;
                         divider *= 10;
                     } else
-                        value = value * 10 + (src.data[src.pos] - 0x30);
+                        value = value * 10 + (src.byteAt(src.pos) - 0x30);
                     src.pos++;
                     break;
                 case 0x2B: // +
@@ -233,12 +280,16 @@ public final class COSNumber implements COSObject {
     }
 
     static public int readInteger(PDFRawData src) throws EParseError {
-        int prev = src.pos;
-        int res = 0;
+        return (int) readLong(src);
+    }
+
+    static public long readLong(PDFRawData src) throws EParseError {
+        long prev = src.pos;
+        long res = 0;
         int sign = 1;
 
         while (src.pos < src.length) {
-            switch (src.data[src.pos]) {
+            switch (src.byteAt(src.pos)) {
                 case 0x30:
                 case 0x31:
                 case 0x32:
@@ -249,7 +300,7 @@ public final class COSNumber implements COSObject {
                 case 0x37:
                 case 0x38:
                 case 0x39: // 5..9
-                    res = res * 10 + (src.data[src.pos] - 0x30);
+                    res = res * 10 + (src.byteAt(src.pos) - 0x30);
                     src.pos++;
                     break;
                 case 0x2B: // +
@@ -20,6 +20,7 @@
 package org.pdfparse.cos;
 
 import org.pdfparse.exception.EParseError;
+import org.pdfparse.parser.ObjectRetriever;
 import org.pdfparse.parser.PDFParser;
 import org.pdfparse.parser.PDFRawData;
 import org.pdfparse.parser.Token;
@@ -30,6 +31,9 @@ import java.nio.charset.Charset;
 
 
 public class COSReference extends COSId implements COSObject {
+    // Object, which this reference was resolved to. Used only when ObjectRetriever allows swizzling
+    private volatile COSObject resolved;
+
     public COSReference(int id, int gen) {
         super(id, gen);
     }
@@ -38,6 +42,33 @@ public class COSReference extends COSId implements COSObject {
         super(from.id, from.gen);
     }
 
+    /**
+     * Follows chain of references. If the retriever allows swizzling, the resolved object is remembered
+     * in the first reference, so next calls for the same dictionary entry or array element do not
+     * look it up again. The reference itself is kept in the container and still written by produce()
+     */
+    static COSObject dereference(COSObject obj, ObjectRetriever cache) throws EParseError {
+        if (!(obj instanceof COSReference))
+            return obj;
+
+        COSReference ref = (COSReference) obj;
+        COSObject res = ref.resolved;
+        if (res != null)
+            return res;
+
+        int counter = 5;
+        res = obj;
+        while (res instanceof COSReference) {
+            res = cache.getObject((COSReference) res);
+            if (counter-- == 0)
+                throw new EParseError("Infinite or too deep loop for " + res.toString());
+        }
+
+        if (cache.swizzleReferences())
+            ref.resolved = res;
+        return res;
+    }
+
     @Override
     public void parse(PDFRawData src, PDFParser pdfFile) throws EParseError {
         if (!tryReadId(src, this, Token.R)) {
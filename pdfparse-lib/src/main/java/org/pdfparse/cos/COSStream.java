@@ -20,29 +20,59 @@
 package org.pdfparse.cos;
 
 import org.pdfparse.exception.EParseError;
+import org.pdfparse.filter.DecodeBudget;
+import org.pdfparse.filter.StreamDecoder;
+import org.pdfparse.io.RandomAccessSource;
+import org.pdfparse.io.SourceInputStream;
 import org.pdfparse.parser.ObjectRetriever;
 import org.pdfparse.parser.PDFParser;
 import org.pdfparse.parser.PDFRawData;
+import org.pdfparse.parser.ParserSettings;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 
 
+/**
+ * Stream object.
+ * <p>
+ * Stream body is not copied while parsing. The object keeps only a reference to the
+ * source and the (offset, length) range of the body, bytes are read on demand.
+ */
 public class COSStream extends COSDictionary {
-    private byte[] data;
+    private RandomAccessSource source;
+    private long offset;
+    private int length;
+    private ParserSettings settings; // settings of the document, or null
+    private DecodeBudget budget; // budget of the document, or null
 
     public COSStream(COSDictionary dict, PDFRawData src, ObjectRetriever retriever) throws EParseError {
+        this(dict, src, retriever, null, null);
+    }
+
+    public COSStream(COSDictionary dict, PDFRawData src, ObjectRetriever retriever, ParserSettings settings, DecodeBudget budget) throws EParseError {
         super(dict, retriever);
 
         int length = this.getUInt(COSName.LENGTH, retriever, 0);
-        data = src.readStream(length, true);
+        locate(src, length);
+        this.settings = settings;
+        this.budget = budget;
     }
 
     @Override
     public void parse(PDFRawData src, PDFParser parser) throws EParseError {
         super.parse(src, parser);
         int length = this.getUInt(COSName.LENGTH, parser.getXref(), 0);
-        data = src.readStream(length, true);
+        locate(src, length);
+        settings = parser.settings;
+        budget = parser.getDecodeBudget();
+    }
+
+    private void locate(PDFRawData src, int len) throws EParseError {
+        offset = src.skipStream(len, true);
+        length = len;
+        source = src.getSource();
     }
 
     @Override
@@ -50,7 +80,60 @@ public class COSStream extends COSDictionary {
         super.produce(dst, pdfFile);
     }
 
+    /**
+     * Reads the raw (not decoded) stream body. A new array is allocated on every call.
+     *
+     * @return raw stream data
+     */
     public byte[] getData() {
-        return data;
+        byte[] res = new byte[length];
+        source.get(offset, res, 0, length);
+        return res;
+    }
+
+    /**
+     * Opens the raw (not decoded) stream body for reading without copying it.
+     *
+     * @return input stream over the stream body
+     */
+    public InputStream openRawStream() {
+        return new SourceInputStream(source, offset, length);
+    }
+
+    /**
+     * Opens the stream body for reading with all filters applied. Data is decoded
+     * on the fly while reading, so only small working buffers are allocated.
+     *
+     * Decoded data is accounted in the document's {@link DecodeBudget}, if the stream was parsed from a document.
+     * The stream is charged once, reading it again does not count against the document limit.
+     *
+     * @return input stream over decoded data
+     */
+    public InputStream openDecodedStream(ParserSettings settings) throws EParseError {
+        if (budget != null)
+            return StreamDecoder.openDecodedStream(openRawStream(), this, settings, budget, offset);
+        return StreamDecoder.openDecodedStream(openRawStream(), this, settings, new DecodeBudget(settings));
+    }
+
+    /**
+     * Opens the stream body for reading with all filters applied, using settings of the document
+     * (filter registry, decoding limits). See {@link #openDecodedStream(ParserSettings)}
+     */
+    public InputStream openDecodedStream() throws EParseError {
+        return openDecodedStream((settings != null) ? settings : new ParserSettings());
+    }
+
+    /**
+     * @return position of the raw stream body in the source
+     */
+    public long getRawOffset() {
+        return offset;
+    }
+
+    /**
+     * @return length of the raw stream body in bytes
+     */
+    public int getRawLength() {
+        return length;
     }
 }
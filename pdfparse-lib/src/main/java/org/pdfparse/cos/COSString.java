@@ -20,6 +20,8 @@
 package org.pdfparse.cos;
 
 import org.pdfparse.exception.EParseError;
+import org.pdfparse.filter.ASCIIHexInputStream;
+import org.pdfparse.filter.CharTable;
 import org.pdfparse.parser.Diagnostics;
 import org.pdfparse.parser.PDFParser;
 import org.pdfparse.parser.PDFRawData;
@@ -28,6 +30,7 @@ import org.pdfparse.utils.IntIntHashtable;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 
 public final class COSString implements COSObject {
 
@@ -88,11 +91,6 @@ public final class COSString implements COSObject {
         }
     }
 
-    private static final int[] HEX2V = { // '0'..'f'
-            0, 1, 2, 3, 4, 5, 6, 7, 8, 9, -1, -1, -1, -1, -1, -1,
-            -1, 10, 11, 12, 13, 14, 15, -1, -1, -1, -1, -1, -1, -1,
-            -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
-            -1, -1, -1, -1, -1, 10, 11, 12, 13, 14, 15};
     private static final byte[] V2HEX = { // '0'..'f'
             0x30, 0x31, 0x32, 0x33, 0x34, 0x35, 0x36, 0x37, 0x38, 0x39,
             0x61, 0x62, 0x63, 0x64, 0x65, 0x66};
@@ -168,7 +166,7 @@ public final class COSString implements COSObject {
         value = "";
         binaryValue = EMPTY;
 
-        if (src.data[src.pos] == '<') {
+        if (src.byteAt(src.pos) == '<') {
             src.pos++; // Skip the opening bracket '<'
             byte[] bytes = parseHexStream(src);
             setBinaryValue(bytes);
@@ -184,14 +182,14 @@ public final class COSString implements COSObject {
         buffer.reset();
 
         while (src.pos < src.length) {
-            ch = src.data[src.pos];
+            ch = src.byteAt(src.pos);
             switch (ch) {
                 case 0x5C: // '\'
                     src.pos++;
                     if (src.pos >= src.length)
                         break; // finish. ignore this reverse solidus
 
-                    ch = src.data[src.pos];
+                    ch = src.byteAt(src.pos);
                     switch (ch) {
                         case 0x6E: // 'n'
                             buffer.append(0x0A);
@@ -226,18 +224,18 @@ public final class COSString implements COSObject {
                         case 0x36:
                         case 0x37:
                             v = ch - 0x30; // convert first char to number
-                            if ((src.data[src.pos + 1] >= 0x30) && (src.data[src.pos + 1] <= 0x37)) {
+                            if ((src.byteAt(src.pos + 1) >= 0x30) && (src.byteAt(src.pos + 1) <= 0x37)) {
                                 src.pos++;
-                                v = v * 8 + (src.data[src.pos] - 0x30);
-                                if ((src.data[src.pos + 1] >= 0x30) && (src.data[src.pos + 1] <= 0x37)) {
+                                v = v * 8 + (src.byteAt(src.pos) - 0x30);
+                                if ((src.byteAt(src.pos + 1) >= 0x30) && (src.byteAt(src.pos + 1) <= 0x37)) {
                                     src.pos++;
-                                    v = v * 8 + (src.data[src.pos] - 0x30);
+                                    v = v * 8 + (src.byteAt(src.pos) - 0x30);
                                 }
                             }
                             buffer.append(v);
                             break;
                         case 0x0A:
-                            if (((src.pos + 1) < src.length) && (src.data[src.pos + 1] == 0x0D)) {
+                            if (((src.pos + 1) < src.length) && (src.byteAt(src.pos + 1) == 0x0D)) {
                                 src.pos++;
                             }
                             break;
@@ -247,7 +245,7 @@ public final class COSString implements COSObject {
                         default:
                             // If the character following the REVERSE SOLIDUS is not one of those shown in Table 3,
                             // the REVERSE SOLIDUS shall be ignored.
-                            buffer.append(src.data[src.pos]); //add this char
+                            buffer.append(src.byteAt(src.pos)); //add this char
                     }//switch after '\'
 
                     src.pos++;
@@ -278,7 +276,7 @@ public final class COSString implements COSObject {
                     src.pos++;
                     break;
                 default:
-                    buffer.append(src.data[src.pos]);
+                    buffer.append(src.byteAt(src.pos));
                     src.pos++;
             } // switch
         } // while ...
@@ -530,32 +528,44 @@ public final class COSString implements COSObject {
 
 
     public static byte[] parseHexStream(PDFRawData src) throws EParseError {
-        int ch, n, n1 = 0;
-        boolean first = true;
-
         //data.pos++; // Skip the opening bracket '<'
 
-        ByteBuffer out = src.tmpBuffer;
-        out.reset();
-        for (int i = src.pos; i < src.length; i++) {
-            ch = src.data[i] & 0xFF;
-
-            if (ch == 0x3E) { // '>' - EOD
-                src.pos = i + 1;
-                if (!first)
-                    out.append((byte) (n1 << 4));
-                return out.toByteArray();
-            }
-            // whitespace ?
-            if ((ch == 0x00) || (ch == 0x09) || (ch == 0x0A) || (ch == 0x0C) || (ch == 0x0D) || (ch == 0x20))
-                continue;
+        byte[] data = src.data;
+        if (data != null) {
+            // Data is in memory: find the end first, so decoded string is allocated once
+            int from = (int) src.pos;
+            int to = from;
+            int end = (int) src.length;
+            while ((to < end) && (data[to] != 0x3E)) // '>'
+                to++;
+            if (to == end)
+                throw new EParseError("Unterminated hexadecimal string"); // ">"
+
+            PDFRawData decoded = ASCIIHexInputStream.decode(data, from, to + 1);
+            src.pos = to + 1;
+            if (decoded.length == decoded.data.length)
+                return decoded.data;
+            return Arrays.copyOf(decoded.data, (int) decoded.length);
+        }
 
-            if ((ch < 0x30) || (ch > 0x66))
-                throw new EParseError("Illegal character in hex string");
+        int n, n1 = 0;
+        boolean first = true;
 
-            n = HEX2V[ch - 0x30];
-            if (n < 0)
+        ByteBuffer out = src.tmpBuffer;
+        out.reset();
+        for (long i = src.pos; i < src.length; i++) {
+            n = CharTable.hex(src.byteAt(i));
+            if (n < 0) {
+                if (n == CharTable.WHITESPACE)
+                    continue;
+                if (n == CharTable.EOD) {
+                    src.pos = i + 1;
+                    if (!first)
+                        out.append((byte) (n1 << 4));
+                    return out.toByteArray();
+                }
                 throw new EParseError("Illegal character in hex string");
+            }
 
             if (first)
                 n1 = n;
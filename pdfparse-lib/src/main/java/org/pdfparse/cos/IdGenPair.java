@@ -25,20 +25,20 @@ public class IdGenPair {
     // if next token is not a reference/Object header, function return false (without position changes)
     // otherwise it fetches destRef and changes stream position
     public static boolean tryReadId(PDFRawData src, IdGenPair destPair, byte[] endToken) {
-        int pos = src.pos;
-        int len = src.length;
+        long pos = src.pos;
+        long len = src.length;
         int ch;
         int obj_id = 0, obj_gen = 0;
 
         if (pos >= len) return false;
 
         // parse int #1 --------------------------------------------
-        ch = src.data[pos];
+        ch = src.byteAt(pos);
         while ((ch >= 0x30) && (ch <= 0x39)) {
             obj_id = obj_id * 10 + (ch - 0x30);
             pos++; // 0..9
             if (pos >= len) return false;
-            ch = src.data[pos];
+            ch = src.byteAt(pos);
         }
 
         //check if not a whitespace or EOF
@@ -48,11 +48,11 @@ public class IdGenPair {
         if (pos >= len) return false;
 
         // skip succeeded spaces if any
-        ch = src.data[pos];
+        ch = src.byteAt(pos);
         while ((ch == 0x20) || (ch == 0x09) || (ch == 0x0A) || (ch == 0x0D)) {
             pos++;
             if (pos >= len) return false;
-            ch = src.data[pos];
+            ch = src.byteAt(pos);
         }
 
         // parse int #2 --------------------------------------------
@@ -60,7 +60,7 @@ public class IdGenPair {
             obj_gen = obj_gen * 10 + (ch - 0x30);
             pos++;
             if (pos >= len) return false;
-            ch = src.data[pos];
+            ch = src.byteAt(pos);
         }
 
         //check if not a whitespace or EOF
@@ -70,11 +70,11 @@ public class IdGenPair {
         if (pos >= len) return false;
 
         // skip succeeded spaces if any
-        ch = src.data[pos];
+        ch = src.byteAt(pos);
         while ((ch == 0x20) || (ch == 0x09) || (ch == 0x0A) || (ch == 0x0D)) {
             pos++;
             if (pos >= len) return false;
-            ch = src.data[pos];
+            ch = src.byteAt(pos);
         }
 
         // check if next token is endToken ---------------------------------
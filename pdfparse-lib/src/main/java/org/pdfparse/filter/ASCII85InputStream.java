@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+package org.pdfparse.filter;
+
+import org.pdfparse.exception.EDecoderException;
+import org.pdfparse.io.ArraySource;
+import org.pdfparse.parser.PDFRawData;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming decoder for ASCII85Decode filter
+ */
+public class ASCII85InputStream extends DecodeInputStream {
+    // Added to the incomplete group of 2, 3 or 4 digits (kept as in the original decoder)
+    private static final int[] PARTIAL_PADDING = {0, 0, 85 * 85 * 85 + 85 * 85 + 85, 85 * 85 + 85, 85};
+    private static final int[] PARTIAL_SCALE = {0, 0, 85 * 85 * 85, 85 * 85, 85};
+
+    private final byte[] inBuf = new byte[BUFFER_SIZE];
+    private int acc = 0;
+    private int state = 0;
+
+    public ASCII85InputStream(InputStream in) {
+        super(in, BUFFER_SIZE * 4 + 4);
+    }
+
+    /**
+     * Writes decoded bytes of the incomplete last group
+     *
+     * @return new output length
+     */
+    private static int finish(int acc, int state, byte[] out, int len) {
+        // We'll ignore the incomplete group of 1 char for the sake of perpetuating broken PDFs
+        if (state < 2)
+            return len;
+        int r = acc * PARTIAL_SCALE[state] + PARTIAL_PADDING[state];
+        for (int i = 1; i < state; i++)
+            out[len++] = (byte) (r >> (32 - 8 * i));
+        return len;
+    }
+
+    @Override
+    protected boolean fill() throws IOException {
+        int n = in.read(inBuf);
+        if (n < 0) {
+            limit = finish(acc, state, buf, limit);
+            state = 0;
+            return false;
+        }
+
+        byte[] out = buf;
+        int len = limit;
+        for (int k = 0; k < n; k++) {
+            int v = CharTable.base85(inBuf[k]);
+            if (v >= 0) {
+                acc = acc * 85 + v;
+                if (++state == 5) {
+                    out[len++] = (byte) (acc >> 24);
+                    out[len++] = (byte) (acc >> 16);
+                    out[len++] = (byte) (acc >> 8);
+                    out[len++] = (byte) acc;
+                    acc = 0;
+                    state = 0;
+                }
+            } else if (v == CharTable.WHITESPACE) {
+                continue;
+            } else if (v == CharTable.ZERO4 && state == 0) {
+                out[len++] = 0;
+                out[len++] = 0;
+                out[len++] = 0;
+                out[len++] = 0;
+            } else if (v == CharTable.EOD) {
+                limit = finish(acc, state, out, len);
+                state = 0;
+                return false;
+            } else {
+                throw new EDecoderException("Illegal character in ascii85decode (#%d)", inBuf[k] & 0xFF);
+            }
+        }
+        limit = len;
+        return true;
+    }
+
+    /**
+     * Decodes data which is already in memory. Output array is allocated once:
+     * its size is computed by a quick pass, which counts digits and 'z' characters
+     *
+     * @param src encoded data
+     * @param from index of the first byte
+     * @param to index after the last byte
+     * @return decoded data
+     */
+    public static PDFRawData decode(byte[] src, int from, int to) throws EDecoderException {
+        return decode(src, from, to, Long.MAX_VALUE);
+    }
+
+    /**
+     * Decodes data which is already in memory, see {@link #decode(byte[], int, int)}
+     *
+     * @param maxLength max allowed length of decoded data. Decoding fails before output array is allocated
+     */
+    public static PDFRawData decode(byte[] src, int from, int to, long maxLength) throws EDecoderException {
+        long digits = 0, zeros = 0;
+        for (int i = from; i < to; i++) {
+            int v = CharTable.base85(src[i]);
+            if (v >= 0)
+                digits++;
+            else if (v == CharTable.ZERO4)
+                zeros++;
+            else if (v == CharTable.EOD)
+                break;
+        }
+
+        // every 5 digits give 4 bytes, every 'z' - 4 bytes; plus the incomplete group
+        long size = digits / 5 * 4 + Math.max(digits % 5 - 1, 0) + 4 * zeros;
+        if (size > maxLength)
+            throw new EDecoderException("Decoded stream size exceeds the limit (%d bytes)", maxLength);
+        if (size > Integer.MAX_VALUE - 16)
+            throw new EDecoderException("ASCII85Decode: decoded data is too large (%d bytes)", size);
+        byte[] out = new byte[(int) size + 4];
+        int len = 0, acc = 0, state = 0;
+
+        for (int k = from; k < to; k++) {
+            int v = CharTable.base85(src[k]);
+            if (v >= 0) {
+                acc = acc * 85 + v;
+                if (++state == 5) {
+                    out[len++] = (byte) (acc >> 24);
+                    out[len++] = (byte) (acc >> 16);
+                    out[len++] = (byte) (acc >> 8);
+                    out[len++] = (byte) acc;
+                    acc = 0;
+                    state = 0;
+                }
+            } else if (v == CharTable.WHITESPACE) {
+                continue;
+            } else if (v == CharTable.ZERO4 && state == 0) {
+                out[len++] = 0;
+                out[len++] = 0;
+                out[len++] = 0;
+                out[len++] = 0;
+            } else if (v == CharTable.EOD) {
+                break;
+            } else {
+                throw new EDecoderException("Illegal character in ascii85decode (#%d)", src[k] & 0xFF);
+            }
+        }
+        len = finish(acc, state, out, len);
+        return new PDFRawData(new ArraySource(out, len));
+    }
+}
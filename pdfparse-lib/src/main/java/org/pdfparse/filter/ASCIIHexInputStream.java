@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+package org.pdfparse.filter;
+
+import org.pdfparse.exception.EDecoderException;
+import org.pdfparse.io.ArraySource;
+import org.pdfparse.parser.PDFRawData;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming decoder for ASCIIHexDecode filter
+ */
+public class ASCIIHexInputStream extends DecodeInputStream {
+    private final byte[] inBuf = new byte[BUFFER_SIZE];
+    private int hi = -1; // first (high) digit of the pair, or -1
+
+    public ASCIIHexInputStream(InputStream in) {
+        super(in, BUFFER_SIZE / 2 + 1);
+    }
+
+    @Override
+    protected boolean fill() throws IOException {
+        int n = in.read(inBuf);
+        if (n < 0)
+            throw new EDecoderException("Unterminated hexadecimal string"); // ">"
+
+        for (int i = 0; i < n; i++) {
+            int v = CharTable.hex(inBuf[i]);
+            if (v < 0) {
+                if (v == CharTable.WHITESPACE)
+                    continue;
+                if (v == CharTable.EOD) {
+                    if (hi >= 0)
+                        buf[limit++] = (byte) (hi << 4);
+                    return false;
+                }
+                throw new EDecoderException("Illegal character in hex string");
+            }
+
+            if (hi < 0) {
+                hi = v;
+            } else {
+                buf[limit++] = (byte) ((hi << 4) + v);
+                hi = -1;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes data which is already in memory. Output array is allocated once:
+     * two digits give one byte, so it is never longer than a half of the input
+     *
+     * @param src encoded data
+     * @param from index of the first byte
+     * @param to index after the last byte
+     * @return decoded data
+     */
+    public static PDFRawData decode(byte[] src, int from, int to) throws EDecoderException {
+        return decode(src, from, to, Long.MAX_VALUE);
+    }
+
+    /**
+     * Decodes data which is already in memory, see {@link #decode(byte[], int, int)}
+     *
+     * @param maxLength max allowed length of decoded data. Output array is not allocated larger than that
+     */
+    public static PDFRawData decode(byte[] src, int from, int to, long maxLength) throws EDecoderException {
+        byte[] out = new byte[(int) Math.min((to - from + 1) / 2, maxLength)];
+        int len = 0, hi = -1;
+
+        for (int i = from; i < to; i++) {
+            int v = CharTable.hex(src[i]);
+            if (v < 0) {
+                if (v == CharTable.WHITESPACE)
+                    continue;
+                if (v == CharTable.EOD) {
+                    if (hi >= 0) {
+                        if (len == out.length) // only possible when the limit is less than the input allows
+                            throw new EDecoderException("Decoded stream size exceeds the limit (%d bytes)", maxLength);
+                        out[len++] = (byte) (hi << 4);
+                    }
+                    return new PDFRawData(new ArraySource(out, len));
+                }
+                throw new EDecoderException("Illegal character in hex string");
+            }
+
+            if (hi < 0) {
+                hi = v;
+            } else {
+                if (len == out.length)
+                    throw new EDecoderException("Decoded stream size exceeds the limit (%d bytes)", maxLength);
+                out[len++] = (byte) ((hi << 4) + v);
+                hi = -1;
+            }
+        }
+        throw new EDecoderException("Unterminated hexadecimal string"); // ">"
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse.filter;
+
+/**
+ * Character class lookup tables for ASCII filters and hexadecimal strings.
+ * Value of a table entry is either a digit value or one of the negative class codes
+ */
+public final class CharTable {
+    public static final byte ILLEGAL = -1;
+    public static final byte WHITESPACE = -2;
+    public static final byte EOD = -3;  // '>' for ASCIIHex, '~' for ASCII85
+    public static final byte ZERO4 = -4; // 'z' for ASCII85: four zero bytes
+
+    private static final byte[] HEX = new byte[256];
+    private static final byte[] BASE85 = new byte[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            HEX[i] = ILLEGAL;
+            BASE85[i] = ILLEGAL;
+        }
+        for (int ch : new int[]{0x00, 0x09, 0x0A, 0x0C, 0x0D, 0x20}) {
+            HEX[ch] = WHITESPACE;
+            BASE85[ch] = WHITESPACE;
+        }
+        for (int i = 0; i < 10; i++)
+            HEX['0' + i] = (byte) i;
+        for (int i = 0; i < 6; i++) {
+            HEX['a' + i] = (byte) (10 + i);
+            HEX['A' + i] = (byte) (10 + i);
+        }
+        HEX['>'] = EOD;
+
+        for (int ch = '!'; ch <= 'u'; ch++)
+            BASE85[ch] = (byte) (ch - '!');
+        BASE85['z'] = ZERO4;
+        BASE85['~'] = EOD;
+    }
+
+    private CharTable() {
+    }
+
+    /**
+     * @return value of hexadecimal digit (0..15), or one of class codes
+     */
+    public static int hex(int ch) {
+        return HEX[ch & 0xFF];
+    }
+
+    /**
+     * @return value of base-85 digit (0..84), or one of class codes
+     */
+    public static int base85(int ch) {
+        return BASE85[ch & 0xFF];
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse.filter;
+
+import org.pdfparse.exception.EDecoderException;
+import org.pdfparse.parser.ParserSettings;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the amount of decoded data: per stream and in total for the document
+ * ({@link ParserSettings#maxStreamDecodedSize}, {@link ParserSettings#maxDocumentDecodedSize}).
+ * Decoding fails with {@link EDecoderException} as soon as a limit is exceeded,
+ * so a decompression bomb does not exhaust the heap.
+ * <p>
+ * A document keeps one budget, which is shared by all threads decoding its streams.
+ * Streams identified by a key (e.g. offset of the stream body in the file) are charged once:
+ * decoding the same stream again, e.g. after it was evicted from the object cache, adds to the total
+ * only the bytes beyond those already charged for the key.
+ */
+public class DecodeBudget {
+    public static final long NO_KEY = -1; // stream without identity, every decoding is charged
+
+    private final long maxStreamSize;   // Long.MAX_VALUE - unlimited
+    private final long maxDocumentSize; // Long.MAX_VALUE - unlimited
+    private final AtomicLong decoded = new AtomicLong();
+    private final ConcurrentHashMap<Long, AtomicLong> charged = new ConcurrentHashMap<Long, AtomicLong>(); // decoded size per key
+
+    public DecodeBudget(ParserSettings settings) {
+        this(settings.maxStreamDecodedSize, settings.maxDocumentDecodedSize);
+    }
+
+    /**
+     * @param maxStreamSize max decoded size of one stream in bytes, 0 - unlimited
+     * @param maxDocumentSize max total decoded size in bytes, 0 - unlimited
+     */
+    public DecodeBudget(long maxStreamSize, long maxDocumentSize) {
+        this.maxStreamSize = maxStreamSize > 0 ? maxStreamSize : Long.MAX_VALUE;
+        this.maxDocumentSize = maxDocumentSize > 0 ? maxDocumentSize : Long.MAX_VALUE;
+    }
+
+    /**
+     * @return total number of decoded bytes
+     */
+    public long getDecodedSize() {
+        return decoded.get();
+    }
+
+    /**
+     * @return max number of bytes the next stream may decode to
+     */
+    public long getStreamLimit() {
+        return getStreamLimit(NO_KEY);
+    }
+
+    /**
+     * @param key stream identity, or {@link #NO_KEY}
+     * @return max number of bytes the stream may decode to
+     */
+    public long getStreamLimit(long key) {
+        AtomicLong done = (key != NO_KEY) ? charged.get(key) : null;
+        long recharge = (done != null) ? done.get() : 0; // already charged bytes are not charged again
+        return Math.min(maxStreamSize, Math.max(0, maxDocumentSize - decoded.get() + recharge));
+    }
+
+    /**
+     * Accounts the stream decoded at once
+     *
+     * @param streamSize decoded size of the stream
+     */
+    public void charge(long streamSize) throws EDecoderException {
+        charge(streamSize, NO_KEY);
+    }
+
+    /**
+     * Accounts the stream decoded at once
+     *
+     * @param streamSize decoded size of the stream
+     * @param key stream identity, or {@link #NO_KEY}
+     */
+    public void charge(long streamSize, long key) throws EDecoderException {
+        if (streamSize > maxStreamSize)
+            throw new EDecoderException("Decoded stream size exceeds the limit (%d bytes)", maxStreamSize);
+        reach(key, 0, streamSize);
+    }
+
+    /**
+     * Accounts that the stream is decoded from 'from' up to 'to' bytes
+     */
+    private void reach(long key, long from, long to) throws EDecoderException {
+        if (key == NO_KEY) {
+            add(to - from);
+            return;
+        }
+
+        AtomicLong done = charged.get(key);
+        if (done == null) {
+            AtomicLong created = new AtomicLong();
+            done = charged.putIfAbsent(key, created);
+            if (done == null)
+                done = created;
+        }
+        while (true) {
+            long prev = done.get();
+            if (to <= prev)
+                return;
+            if (done.compareAndSet(prev, to)) {
+                add(to - prev);
+                return;
+            }
+        }
+    }
+
+    private void add(long n) throws EDecoderException {
+        if (decoded.addAndGet(n) > maxDocumentSize)
+            throw new EDecoderException("Decoded size of document streams exceeds the limit (%d bytes)", maxDocumentSize);
+    }
+
+    /**
+     * @return stream, which accounts all bytes read from the decoded stream.
+     * Reading fails as soon as the limit is exceeded
+     */
+    public InputStream limit(InputStream in) {
+        return limit(in, NO_KEY);
+    }
+
+    /**
+     * @param key stream identity, or {@link #NO_KEY}
+     * @return stream, which accounts all bytes read from the decoded stream.
+     * Reading fails as soon as the limit is exceeded
+     */
+    public InputStream limit(InputStream in, long key) {
+        return new CountingInputStream(in, key);
+    }
+
+    private class CountingInputStream extends FilterInputStream {
+        private final long key;
+        private long count;
+
+        CountingInputStream(InputStream in, long key) {
+            super(in);
+            this.key = key;
+        }
+
+        private void account(long n) throws EDecoderException {
+            count += n;
+            if (count > maxStreamSize)
+                throw new EDecoderException("Decoded stream size exceeds the limit (%d bytes)", maxStreamSize);
+            reach(key, count - n, count);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b >= 0)
+                account(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n > 0)
+                account(n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.read(new byte[(int) Math.min(n, 4096)]);
+            if (skipped > 0)
+                account(skipped);
+            return Math.max(0, skipped);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
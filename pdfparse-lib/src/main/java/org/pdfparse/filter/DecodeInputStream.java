@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse.filter;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Base class for streaming filter stages. Decoded data is produced by {@link #fill()}
+ * in small portions into internal buffer, so memory usage does not depend on stream size.
+ */
+public abstract class DecodeInputStream extends InputStream {
+    protected static final int BUFFER_SIZE = 4096;
+
+    protected final InputStream in;
+    protected byte[] buf;
+    protected int pos;
+    protected int limit;
+    private boolean eof;
+
+    protected DecodeInputStream(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buf = new byte[bufferSize];
+    }
+
+    /**
+     * Decodes next portion of data into buf[0..limit)
+     *
+     * @return false when there is no more data
+     */
+    protected abstract boolean fill() throws IOException;
+
+    private boolean ensureData() throws IOException {
+        while (pos >= limit) {
+            if (eof)
+                return false;
+            pos = 0;
+            limit = 0;
+            if (!fill()) {
+                eof = true;
+                return limit > 0;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData())
+            return -1;
+        return buf[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (!ensureData())
+            return -1;
+
+        int n = Math.min(len, limit - pos);
+        System.arraycopy(buf, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return limit - pos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse.filter;
+
+/**
+ * Service provider of stream filters. Providers are discovered through {@link java.util.ServiceLoader}:
+ * list implementation class names in <code>META-INF/services/org.pdfparse.filter.FilterProvider</code>.
+ * Filters registered by providers replace the built-in ones with the same name.
+ */
+public interface FilterProvider {
+    void registerFilters(FilterRegistry registry);
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse.filter;
+
+import org.pdfparse.cos.COSName;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Set of stream filters, used for decoding streams of a document ({@link org.pdfparse.parser.ParserSettings#filterRegistry}).
+ * <p>
+ * Default registry contains built-in filters and filters of all {@link FilterProvider}s found on the classpath.
+ * It is shared: to customize filters for one document make a copy with {@link #FilterRegistry(FilterRegistry)}.
+ * <p>
+ * A disabled filter is not applied: decoding stops at this filter and the data is returned encoded
+ * with it (and with all filters after it). E.g. disable /DCTDecode to get JPEG data as is.
+ */
+public class FilterRegistry {
+    private static volatile FilterRegistry defaultRegistry;
+
+    private final Map<COSName, StreamDecoder.FilterHandler> handlers = new ConcurrentHashMap<COSName, StreamDecoder.FilterHandler>();
+    private final Set<COSName> disabled = Collections.newSetFromMap(new ConcurrentHashMap<COSName, Boolean>());
+
+    /**
+     * Creates registry with built-in filters only
+     */
+    public FilterRegistry() {
+        handlers.putAll(StreamDecoder.BUILT_IN);
+    }
+
+    /**
+     * Creates a copy of the registry
+     */
+    public FilterRegistry(FilterRegistry registry) {
+        handlers.putAll(registry.handlers);
+        disabled.addAll(registry.disabled);
+    }
+
+    /**
+     * @return shared registry with built-in and discovered filters
+     */
+    public static FilterRegistry getDefault() {
+        FilterRegistry res = defaultRegistry;
+        if (res == null) {
+            synchronized (FilterRegistry.class) {
+                res = defaultRegistry;
+                if (res == null) {
+                    res = new FilterRegistry();
+                    res.discover(FilterRegistry.class.getClassLoader());
+                    defaultRegistry = res;
+                }
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Registers filters of all providers visible to the class loader
+     */
+    public void discover(ClassLoader loader) {
+        for (FilterProvider provider : ServiceLoader.load(FilterProvider.class, loader))
+            provider.registerFilters(this);
+    }
+
+    public void register(COSName filterName, StreamDecoder.FilterHandler handler) {
+        handlers.put(filterName, handler);
+    }
+
+    /**
+     * @return handler of the filter, or null if the filter is not supported
+     */
+    public StreamDecoder.FilterHandler get(COSName filterName) {
+        return handlers.get(filterName);
+    }
+
+    public void setEnabled(COSName filterName, boolean enabled) {
+        if (enabled)
+            disabled.remove(filterName);
+        else
+            disabled.add(filterName);
+    }
+
+    public boolean isEnabled(COSName filterName) {
+        return !disabled.contains(filterName);
+    }
+
+    /**
+     * @return true if the filter is handled by built-in implementation, which has in-memory fast path
+     */
+    boolean isBuiltIn(COSName filterName) {
+        StreamDecoder.FilterHandler handler = handlers.get(filterName);
+        return (handler != null) && (handler == StreamDecoder.BUILT_IN.get(filterName)) && isEnabled(filterName);
+    }
+}
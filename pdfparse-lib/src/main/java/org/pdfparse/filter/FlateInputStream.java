@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse.filter;
+
+import org.pdfparse.exception.EDecoderException;
+import org.pdfparse.io.ArraySource;
+import org.pdfparse.parser.PDFRawData;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Streaming decoder for FlateDecode filter. Inflaters and scratch buffers are taken
+ * from the per-thread pool and returned there on {@link #close()}.
+ * Truncated data is tolerated: stream just ends where compressed data ends.
+ */
+public class FlateInputStream extends InputStream {
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final InputStream in;
+    private InflaterPool.Entry entry;
+    private boolean eof;
+    private final byte[] single = new byte[1];
+
+    public FlateInputStream(InputStream in) {
+        this.in = in;
+        this.entry = InflaterPool.acquire();
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (eof || (entry == null))
+            return -1;
+
+        Inflater inf = entry.inflater;
+        try {
+            while (true) {
+                int n = inf.inflate(b, off, len);
+                if (n > 0)
+                    return n;
+                if (inf.finished() || inf.needsDictionary())
+                    break;
+                if (inf.needsInput()) {
+                    int r = in.read(entry.scratch);
+                    if (r < 0)
+                        break; // Unexpected end of ZLIB input stream
+                    inf.setInput(entry.scratch, 0, r);
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new EDecoderException("FlateDecode error", e);
+        }
+        eof = true;
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (entry != null) {
+            InflaterPool.release(entry);
+            entry = null;
+        }
+        in.close();
+    }
+
+    /**
+     * Inflates data which is already in memory. Input is passed to Inflater without copying,
+     * output is written into a single array.
+     *
+     * @param src compressed data
+     * @param decodedLength expected length of decoded data (/DL), or -1 if unknown
+     * @return decoded data. It wraps the output array, there is no final copy
+     */
+    public static PDFRawData inflate(byte[] src, int decodedLength) throws EDecoderException {
+        return inflate(src, decodedLength, Long.MAX_VALUE);
+    }
+
+    /**
+     * Inflates data which is already in memory, see {@link #inflate(byte[], int)}
+     *
+     * @param maxLength max allowed length of decoded data. Decoding fails as soon as it is exceeded
+     */
+    public static PDFRawData inflate(byte[] src, int decodedLength, long maxLength) throws EDecoderException {
+        long capacity = (maxLength < MAX_ARRAY_SIZE) ? maxLength + 1 : MAX_ARRAY_SIZE;
+        // With exact size hint one spare byte lets Inflater consume the trailer without growing the array
+        byte[] out = new byte[(int) Math.min(decodedLength >= 0 ? decodedLength + 1L : Math.max(src.length * 4L, 64), capacity)];
+        int len = 0;
+
+        InflaterPool.Entry entry = InflaterPool.acquire();
+        Inflater inf = entry.inflater;
+        try {
+            inf.setInput(src);
+            while (true) {
+                if (len == out.length) {
+                    if (len >= capacity)
+                        throw new EDecoderException("Decoded stream size exceeds the limit (%d bytes)", maxLength);
+                    out = Arrays.copyOf(out, (int) Math.min(out.length * 2L, capacity));
+                }
+                int n = inf.inflate(out, len, out.length - len);
+                len += n;
+                if (len > maxLength)
+                    throw new EDecoderException("Decoded stream size exceeds the limit (%d bytes)", maxLength);
+                if (inf.finished() || inf.needsDictionary())
+                    break;
+                if ((n == 0) && inf.needsInput())
+                    break; // truncated data
+            }
+        } catch (DataFormatException e) {
+            throw new EDecoderException("FlateDecode error", e);
+        } finally {
+            InflaterPool.release(entry);
+        }
+        return new PDFRawData(new ArraySource(out, len));
+    }
+}
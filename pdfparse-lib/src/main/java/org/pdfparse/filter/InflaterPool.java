@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse.filter;
+
+import java.util.ArrayDeque;
+import java.util.zip.Inflater;
+
+/**
+ * Per-thread pool of Inflaters. Creating and destroying the native part of Inflater
+ * costs much more than decoding a small stream, so Inflaters are reused.
+ * Every pooled Inflater comes with its own scratch input buffer, because Inflater
+ * keeps a reference to the input array until it is consumed.
+ */
+final class InflaterPool {
+    static final int SCRATCH_SIZE = 32 * 1024;
+    private static final int MAX_POOLED = 4; // per thread. Nested pipelines rarely use more
+
+    static final class Entry {
+        final Inflater inflater = new Inflater();
+        final byte[] scratch = new byte[SCRATCH_SIZE];
+    }
+
+    private static final ThreadLocal<ArrayDeque<Entry>> pool = new ThreadLocal<ArrayDeque<Entry>>() {
+        @Override
+        protected ArrayDeque<Entry> initialValue() {
+            return new ArrayDeque<Entry>(MAX_POOLED);
+        }
+    };
+
+    private InflaterPool() {
+    }
+
+    static Entry acquire() {
+        Entry entry = pool.get().poll();
+        return entry != null ? entry : new Entry();
+    }
+
+    static void release(Entry entry) {
+        ArrayDeque<Entry> entries = pool.get();
+        if (entries.size() < MAX_POOLED) {
+            entry.inflater.reset();
+            entries.push(entry);
+        } else {
+            entry.inflater.end();
+        }
+    }
+}
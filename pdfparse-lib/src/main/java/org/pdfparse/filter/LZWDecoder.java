@@ -45,151 +45,247 @@
  */
 package org.pdfparse.filter;
 
+import org.pdfparse.exception.EDecoderException;
+import org.pdfparse.exception.ENotSupported;
+
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Arrays;
 
 /**
  * A class for performing LZW decoding.
+ * <p>
+ * String table is kept in flat arrays: every entry is a (prefix code, last byte, length) triple,
+ * so adding a new entry does not allocate anything. Strings are written directly into
+ * output buffer, walking the prefix chain from the end.
+ * Decoder is shared by LZWDecode filter and {@link TIFFLZWDecoder}.
  */
 public class LZWDecoder {
-
-    byte stringTable[][];
-    byte data[] = null;
-    OutputStream uncompData;
-    int tableIndex, bitsToGet = 9;
-    int bytePointer, bitPointer;
-    int nextData = 0;
-    int nextBits = 0;
-
-    int andTable[] = {
-            511,
-            1023,
-            2047,
-            4095
-    };
+    private static final int CLEAR_TABLE = 256;
+    private static final int END_OF_DATA = 257;
+    private static final int MAX_CODES = 4096; // codes are 12 bits at most
+    private static final int SHORT_STRING = 8; // shorter strings are built from the table, longer ones are copied
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final int[] prefix = new int[MAX_CODES];
+    private final byte[] suffix = new byte[MAX_CODES];
+    private final byte[] first = new byte[MAX_CODES];
+    private final int[] length = new int[MAX_CODES];
+    private final int[] offset = new int[MAX_CODES]; // where the string was written to output
+    private int lastOffset; // where the last string was written
+    private int tableIndex, bitsToGet = 9;
+
+    private byte[] data;
+    private int bytePointer;
+    private int nextData = 0;
+    private int nextBits = 0;
+
+    private byte[] out;
+    private int outLength;
+    private boolean growable;
+    private long maxLength; // growable buffer is not grown beyond that
 
     public LZWDecoder() {
+        for (int i = 0; i < 256; i++) {
+            prefix[i] = -1;
+            suffix[i] = (byte) i;
+            first[i] = (byte) i;
+            length[i] = 1;
+        }
+    }
+
+    /**
+     * Method to decode LZW compressed data.
+     *
+     * @param data The compressed data.
+     * @return uncompressed data
+     */
+    public byte[] decode(byte[] data) {
+        int len = decode(data, data.length * 3L, Long.MAX_VALUE);
+        return Arrays.copyOf(out, len);
     }
 
     /**
      * Method to decode LZW compressed data.
      *
      * @param data       The compressed data.
+     * @param uncompData Stream to return the uncompressed data in.
+     */
+    public void decode(byte[] data, OutputStream uncompData) {
+        int len = decode(data, data.length * 3L, Long.MAX_VALUE);
+        try {
+            uncompData.write(out, 0, len);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Method to decode LZW compressed data into fixed size array.
+     * Data which does not fit into array is dropped.
+     *
+     * @param data       The compressed data.
      * @param uncompData Array to return the uncompressed data in.
+     * @return number of bytes written
      */
-    public void decode(byte data[], OutputStream uncompData) {
+    public int decode(byte[] data, byte[] uncompData) {
+        out = uncompData;
+        growable = false;
+        return run(data);
+    }
 
-        if (data[0] == (byte) 0x00 && data[1] == (byte) 0x01) {
-            throw new RuntimeException("LZW flavour not supported");
+    /**
+     * Decodes data into internal growable buffer, see {@link #getBuffer()}
+     *
+     * @param maxLength max allowed length of decoded data. Decoding fails as soon as it is exceeded
+     * @return number of decoded bytes
+     */
+    int decode(byte[] data, long sizeHint, long maxLength) throws EDecoderException {
+        out = new byte[(int) Math.min(Math.max(sizeHint, 64), Math.min(maxLength, MAX_ARRAY_SIZE))];
+        this.growable = true;
+        this.maxLength = Math.min(maxLength, MAX_ARRAY_SIZE);
+        return run(data);
+    }
+
+    /**
+     * @return buffer with decoded data. Only first bytes (as returned by decode) are valid
+     */
+    byte[] getBuffer() {
+        return out;
+    }
+
+    private int run(byte[] data) {
+        if (data.length >= 2 && data[0] == (byte) 0x00 && data[1] == (byte) 0x01) {
+            throw new ENotSupported("LZW flavour not supported");
         }
 
         initializeStringTable();
 
         this.data = data;
-        this.uncompData = uncompData;
+        this.outLength = 0;
 
         // Initialize pointers
         bytePointer = 0;
-        bitPointer = 0;
-
         nextData = 0;
         nextBits = 0;
 
-        int code, oldCode = 0;
-        byte string[];
+        int code, oldCode = -1;
 
-        while ((code = getNextCode()) != 257) {
+        while ((code = getNextCode()) != END_OF_DATA) {
 
-            if (code == 256) {
+            if ((code == CLEAR_TABLE) || (oldCode < 0)) {
+                // Clear-Table code is usually the first one, but it may be omitted
 
-                initializeStringTable();
-                code = getNextCode();
+                if (code == CLEAR_TABLE) {
+                    initializeStringTable();
+                    code = getNextCode();
+                }
 
-                if (code == 257) {
+                if (code > 255) // END_OF_DATA or damaged data
                     break;
-                }
 
-                writeString(stringTable[code]);
+                if (!writeString(code))
+                    break;
                 oldCode = code;
 
-            } else {
-
-                if (code < tableIndex) {
+            } else if (code < tableIndex) {
 
-                    string = stringTable[code];
-
-                    writeString(string);
-                    addStringToTable(stringTable[oldCode], string[0]);
-                    oldCode = code;
-
-                } else {
+                int prevOffset = lastOffset;
+                if (!writeString(code))
+                    break;
+                // new string is the previous one followed by first byte of the current one
+                addStringToTable(oldCode, first[code], prevOffset);
+                oldCode = code;
 
-                    string = stringTable[oldCode];
-                    string = composeString(string, string[0]);
-                    writeString(string);
-                    addStringToTable(string);
-                    oldCode = code;
-                }
+            } else {
+                // Code is not in the table yet: it is the previous string followed by its own first byte
+                if (!writeString(oldCode) || !writeByte(first[oldCode]))
+                    break;
+                addStringToTable(oldCode, first[oldCode], lastOffset);
+                oldCode = code < tableIndex ? code : tableIndex - 1;
             }
         }
-    }
 
+        this.data = null;
+        return outLength;
+    }
 
     /**
      * Initialize the string table.
      */
-    public void initializeStringTable() {
-
-        stringTable = new byte[8192][];
-
-        for (int i = 0; i < 256; i++) {
-            stringTable[i] = new byte[1];
-            stringTable[i][0] = (byte) i;
-        }
-
+    private void initializeStringTable() {
         tableIndex = 258;
         bitsToGet = 9;
     }
 
-    /**
-     * Write out the string just uncompressed.
-     */
-    public void writeString(byte string[]) {
-        try {
-            uncompData.write(string);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+    private void ensureCapacity(int size) throws EDecoderException {
+        if (size <= out.length)
+            return;
+        if ((size > maxLength) || (size < 0))
+            throw new EDecoderException("Decoded stream size exceeds the limit (%d bytes)", maxLength);
+        out = Arrays.copyOf(out, (int) Math.min(Math.max(size, out.length * 2L), maxLength));
     }
 
     /**
-     * Add a new string to the string table.
+     * Write out the string just uncompressed.
+     *
+     * @return false if output is full
      */
-    public void addStringToTable(byte oldString[], byte newString) {
-        int length = oldString.length;
-        byte string[] = new byte[length + 1];
-        System.arraycopy(oldString, 0, string, 0, length);
-        string[length] = newString;
-
-        // Add this new String to the table
-        stringTable[tableIndex++] = string;
+    private boolean writeString(int code) {
+        int len = length[code];
+        int end = outLength + len;
+        if (growable)
+            ensureCapacity(end);
+
+        lastOffset = outLength;
+        if (end > out.length) {
+            // Fix for broken tiff files: write only the part which fits
+            int c = code;
+            for (int i = end - 1; i >= outLength; i--) {
+                if (i < out.length)
+                    out[i] = suffix[c];
+                c = prefix[c];
+            }
+            outLength = out.length;
+            return false;
+        }
 
-        if (tableIndex == 511) {
-            bitsToGet = 10;
-        } else if (tableIndex == 1023) {
-            bitsToGet = 11;
-        } else if (tableIndex == 2047) {
-            bitsToGet = 12;
+        if (len <= SHORT_STRING) {
+            int c = code;
+            for (int i = end - 1; i >= outLength; i--) {
+                out[i] = suffix[c];
+                c = prefix[c];
+            }
+        } else {
+            // Long string is already in output, copy it from there
+            System.arraycopy(out, offset[code], out, outLength, len);
         }
+        outLength = end;
+        return true;
+    }
+
+    private boolean writeByte(byte b) {
+        if (growable)
+            ensureCapacity(outLength + 1);
+        if (outLength >= out.length)
+            return false;
+        out[outLength++] = b;
+        return true;
     }
 
     /**
      * Add a new string to the string table.
      */
-    public void addStringToTable(byte string[]) {
+    private void addStringToTable(int prefixCode, byte b, int stringOffset) {
+        if (tableIndex >= MAX_CODES)
+            return; // Table is full, wait for CLEAR_TABLE code
 
-        // Add this new String to the table
-        stringTable[tableIndex++] = string;
+        offset[tableIndex] = stringOffset;
+        prefix[tableIndex] = prefixCode;
+        suffix[tableIndex] = b;
+        first[tableIndex] = first[prefixCode];
+        length[tableIndex] = length[prefixCode] + 1;
+        tableIndex++;
 
         if (tableIndex == 511) {
             bitsToGet = 10;
@@ -200,41 +296,26 @@ public class LZWDecoder {
         }
     }
 
-    /**
-     * Append <code>newString</code> to the end of <code>oldString</code>.
-     */
-    public byte[] composeString(byte oldString[], byte newString) {
-        int length = oldString.length;
-        byte string[] = new byte[length + 1];
-        System.arraycopy(oldString, 0, string, 0, length);
-        string[length] = newString;
-
-        return string;
-    }
-
     // Returns the next 9, 10, 11 or 12 bits
-    public int getNextCode() {
-        // Attempt to get the next code. The exception is caught to make
-        // this robust to cases wherein the EndOfInformation code has been
-        // omitted from a strip. Examples of such cases have been observed
-        // in practice.
-        try {
+    private int getNextCode() {
+        // Return EndOfInformation code when data ends. This makes decoder robust
+        // to cases wherein the EndOfInformation code has been omitted from a strip.
+        // Examples of such cases have been observed in practice.
+        if (bytePointer >= data.length)
+            return END_OF_DATA;
+        nextData = (nextData << 8) | (data[bytePointer++] & 0xff);
+        nextBits += 8;
+
+        if (nextBits < bitsToGet) {
+            if (bytePointer >= data.length)
+                return END_OF_DATA;
             nextData = (nextData << 8) | (data[bytePointer++] & 0xff);
             nextBits += 8;
+        }
 
-            if (nextBits < bitsToGet) {
-                nextData = (nextData << 8) | (data[bytePointer++] & 0xff);
-                nextBits += 8;
-            }
-
-            int code =
-                    (nextData >> (nextBits - bitsToGet)) & andTable[bitsToGet - 9];
-            nextBits -= bitsToGet;
+        int code = (nextData >> (nextBits - bitsToGet)) & ((1 << bitsToGet) - 1);
+        nextBits -= bitsToGet;
 
-            return code;
-        } catch (ArrayIndexOutOfBoundsException e) {
-            // Strip not terminated as expected: return EndOfInformation code.
-            return 257;
-        }
+        return code;
     }
 }
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse.filter;
+
+import org.pdfparse.cos.COSDictionary;
+import org.pdfparse.cos.COSName;
+import org.pdfparse.exception.EDecoderException;
+
+/**
+ * PNG and TIFF predictors (/Predictor entry of /DecodeParms).
+ * <p>
+ * Rows are decoded by tight loops specialized per PNG filter type and per bits per component.
+ * Every loop reads encoded row from one place and writes decoded row to another, which may be
+ * the same array: this allows decoding of the whole buffer in place, as well as row by row
+ * in {@link PredictorInputStream}.
+ */
+public final class Predictor {
+    public static final int NONE = 1;
+    public static final int TIFF = 2;
+    public static final int PNG_MIN = 10; // 10..15 - PNG predictors, actual filter is specified in each row
+
+    public final int predictor;
+    public final int colors;
+    public final int bitsPerComponent;
+    public final int columns;
+    public final int bytesPerPixel; // at least 1, as PNG specifies for filtering
+    public final int bytesPerRow;
+
+    public Predictor(int predictor, int colors, int bitsPerComponent, int columns) {
+        if ((bitsPerComponent != 1) && (bitsPerComponent != 2) && (bitsPerComponent != 4)
+                && (bitsPerComponent != 8) && (bitsPerComponent != 16))
+            throw new EDecoderException("Unsupported BitsPerComponent for predictor (%d)", bitsPerComponent);
+        if ((colors < 1) || (columns < 1))
+            throw new EDecoderException("Invalid predictor parameters: Colors %d, Columns %d", colors, columns);
+
+        this.predictor = predictor;
+        this.colors = colors;
+        this.bitsPerComponent = bitsPerComponent;
+        this.columns = columns;
+        this.bytesPerPixel = Math.max(1, (colors * bitsPerComponent + 7) / 8);
+        this.bytesPerRow = (int) (((long) colors * columns * bitsPerComponent + 7) / 8);
+    }
+
+    /**
+     * @return predictor for stream parameters, or null if data is not predicted
+     */
+    public static Predictor fromParams(COSDictionary params) {
+        if (params == null)
+            return null;
+
+        int predictor = params.getInt(COSName.PREDICTOR, NONE);
+        if ((predictor != TIFF) && (predictor < PNG_MIN))
+            return null;
+
+        return new Predictor(predictor,
+                params.getInt(COSName.COLORS, 1),
+                params.getInt(COSName.BITSPERCOMPONENT, 8),
+                params.getInt(COSName.COLUMNS, 1));
+    }
+
+    public boolean isPNG() {
+        return predictor >= PNG_MIN;
+    }
+
+    /**
+     * @return length of encoded row (PNG rows are prefixed by filter type byte)
+     */
+    public int getEncodedRowLength() {
+        return isPNG() ? bytesPerRow + 1 : bytesPerRow;
+    }
+
+    /**
+     * Decodes whole buffer in place
+     *
+     * @param data encoded data, replaced by decoded data
+     * @param length length of encoded data
+     * @return length of decoded data
+     */
+    public int decode(byte[] data, int length) {
+        int encodedRow = getEncodedRowLength();
+        int in = 0, out = 0, prior = -1;
+
+        while (in < length) {
+            int len = Math.min(encodedRow, length - in); // the last row may be incomplete
+            if (isPNG()) {
+                int filter = data[in] & 0xFF;
+                decodeRow(filter, data, in + 1, data, out, data, prior, len - 1);
+                len--;
+            } else {
+                decodeRow(data, in, data, out, len);
+            }
+            prior = out;
+            in += encodedRow;
+            out += len;
+        }
+        return out;
+    }
+
+    /**
+     * Decodes one PNG row. Decoded row may overwrite encoded one, as long as it doesn't start after it.
+     *
+     * @param filter PNG filter type
+     * @param prior array with previous decoded row
+     * @param priorOff offset of previous decoded row, or -1 for the first row
+     * @param len number of bytes to decode (less than bytesPerRow for incomplete row)
+     */
+    public void decodeRow(int filter, byte[] in, int inOff, byte[] out, int outOff, byte[] prior, int priorOff, int len) {
+        int bpp = Math.min(bytesPerPixel, len);
+        int i;
+        switch (filter) {
+            case 0: // None
+                if (in != out || inOff != outOff)
+                    System.arraycopy(in, inOff, out, outOff, len);
+                break;
+            case 1: // Sub
+                if (in != out || inOff != outOff)
+                    System.arraycopy(in, inOff, out, outOff, bpp);
+                for (i = bpp; i < len; i++)
+                    out[outOff + i] = (byte) (in[inOff + i] + out[outOff + i - bpp]);
+                break;
+            case 2: // Up
+                if (priorOff < 0) {
+                    if (in != out || inOff != outOff)
+                        System.arraycopy(in, inOff, out, outOff, len);
+                    break;
+                }
+                for (i = 0; i < len; i++)
+                    out[outOff + i] = (byte) (in[inOff + i] + prior[priorOff + i]);
+                break;
+            case 3: // Average
+                if (priorOff < 0) {
+                    if (in != out || inOff != outOff)
+                        System.arraycopy(in, inOff, out, outOff, bpp);
+                    for (i = bpp; i < len; i++)
+                        out[outOff + i] = (byte) (in[inOff + i] + ((out[outOff + i - bpp] & 0xFF) >>> 1));
+                    break;
+                }
+                for (i = 0; i < bpp; i++)
+                    out[outOff + i] = (byte) (in[inOff + i] + ((prior[priorOff + i] & 0xFF) >>> 1));
+                for (; i < len; i++)
+                    out[outOff + i] = (byte) (in[inOff + i]
+                            + (((out[outOff + i - bpp] & 0xFF) + (prior[priorOff + i] & 0xFF)) >>> 1));
+                break;
+            case 4: // Paeth
+                if (priorOff < 0) { // with zero prior row Paeth is the same as Sub
+                    decodeRow(1, in, inOff, out, outOff, prior, priorOff, len);
+                    break;
+                }
+                for (i = 0; i < bpp; i++)
+                    out[outOff + i] = (byte) (in[inOff + i] + prior[priorOff + i]);
+                for (; i < len; i++) {
+                    int a = out[outOff + i - bpp] & 0xFF;
+                    int b = prior[priorOff + i] & 0xFF;
+                    int c = prior[priorOff + i - bpp] & 0xFF;
+                    int p = a + b - c;
+                    int pa = Math.abs(p - a);
+                    int pb = Math.abs(p - b);
+                    int pc = Math.abs(p - c);
+                    int pred = (pa <= pb && pa <= pc) ? a : (pb <= pc) ? b : c;
+                    out[outOff + i] = (byte) (in[inOff + i] + pred);
+                }
+                break;
+            default:
+                // Error -- unknown filter type
+                throw new EDecoderException("PNG filter unknown (%d)", filter);
+        }
+    }
+
+    /**
+     * Decodes one row predicted with TIFF predictor 2 (horizontal differencing)
+     *
+     * @param len number of bytes to decode (less than bytesPerRow for incomplete row)
+     */
+    public void decodeRow(byte[] in, int inOff, byte[] out, int outOff, int len) {
+        if (in != out || inOff != outOff)
+            System.arraycopy(in, inOff, out, outOff, len);
+
+        int i;
+        switch (bitsPerComponent) {
+            case 8:
+                for (i = colors; i < len; i++)
+                    out[outOff + i] += out[outOff + i - colors];
+                break;
+            case 16: {
+                int step = colors * 2;
+                for (i = step; i + 1 < len; i += 2) {
+                    int prev = ((out[outOff + i - step] & 0xFF) << 8) | (out[outOff + i - step + 1] & 0xFF);
+                    int curr = ((out[outOff + i] & 0xFF) << 8) | (out[outOff + i + 1] & 0xFF);
+                    curr += prev;
+                    out[outOff + i] = (byte) (curr >> 8);
+                    out[outOff + i + 1] = (byte) curr;
+                }
+                break;
+            }
+            default: { // 1, 2, 4 bits: components are packed
+                int bpc = bitsPerComponent;
+                int mask = (1 << bpc) - 1;
+                int samples = Math.min(colors * columns, len * 8 / bpc);
+                for (i = colors; i < samples; i++) {
+                    int bit = i * bpc;
+                    int prevBit = bit - colors * bpc;
+                    int shift = 8 - bpc - (bit & 7);
+                    int prev = (out[outOff + (prevBit >> 3)] >> (8 - bpc - (prevBit & 7))) & mask;
+                    int idx = outOff + (bit >> 3);
+                    int curr = ((out[idx] >> shift) + prev) & mask;
+                    out[idx] = (byte) ((out[idx] & ~(mask << shift)) | (curr << shift));
+                }
+                break;
+            }
+        }
+    }
+}
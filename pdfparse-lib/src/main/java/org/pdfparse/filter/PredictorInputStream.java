@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse.filter;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming PNG/TIFF predictor stage. Only two row buffers are kept: current and previous row
+ */
+public class PredictorInputStream extends DecodeInputStream {
+    private final Predictor predictor;
+    private byte[] prior;
+    private boolean first = true;
+
+    public PredictorInputStream(InputStream in, Predictor predictor) {
+        super(in, predictor.getEncodedRowLength());
+        this.predictor = predictor;
+        this.prior = new byte[buf.length];
+    }
+
+    @Override
+    protected boolean fill() throws IOException {
+        // swap rows: previous decoded row becomes prior
+        byte[] row = prior;
+        prior = buf;
+        buf = row;
+
+        int rowLength = predictor.getEncodedRowLength();
+        int len = 0;
+        while (len < rowLength) {
+            int n = in.read(row, len, rowLength - len);
+            if (n < 0)
+                break;
+            len += n;
+        }
+        if (len == 0)
+            return false;
+
+        if (predictor.isPNG()) {
+            // decoded row is shifted by one byte left, over the filter type byte
+            predictor.decodeRow(row[0] & 0xFF, row, 1, row, 0, prior, first ? -1 : 0, len - 1);
+            limit = len - 1;
+        } else {
+            predictor.decodeRow(row, 0, row, 0, len);
+            limit = len;
+        }
+        first = false;
+        return len == rowLength;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse.filter;
+
+import org.pdfparse.exception.EDecoderException;
+import org.pdfparse.io.ArraySource;
+import org.pdfparse.parser.PDFRawData;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming decoder for RunLengthDecode filter
+ */
+public class RunLengthInputStream extends DecodeInputStream {
+    private final byte[] inBuf = new byte[BUFFER_SIZE];
+    private int inPos;
+    private int inLimit;
+
+    public RunLengthInputStream(InputStream in) {
+        super(in, BUFFER_SIZE + 128);
+    }
+
+    /**
+     * @return false if there is no more input
+     */
+    private boolean ensureInput() throws IOException {
+        if (inPos < inLimit)
+            return true;
+        inLimit = Math.max(0, in.read(inBuf));
+        inPos = 0;
+        return inLimit > 0;
+    }
+
+    private int nextByte() throws IOException {
+        if (!ensureInput())
+            return -1;
+        return inBuf[inPos++] & 0xFF;
+    }
+
+    @Override
+    protected boolean fill() throws IOException {
+        byte[] out = buf;
+        // decode whole runs while there is a room for the longest one
+        while (limit <= BUFFER_SIZE) {
+            int dupCount = nextByte();
+            if ((dupCount < 0) || (dupCount == 128)) {
+                return false; // 128 is implicit end of data
+            }
+
+            if (dupCount < 128) {
+                // copy next dupCount + 1 bytes literally
+                int len = dupCount + 1;
+                while (len > 0) {
+                    if (!ensureInput())
+                        return false;
+                    int n = Math.min(len, inLimit - inPos);
+                    System.arraycopy(inBuf, inPos, out, limit, n);
+                    inPos += n;
+                    limit += n;
+                    len -= n;
+                }
+            } else {
+                // make 257 - dupCount copies of the next byte
+                int b = nextByte();
+                if (b < 0)
+                    return false;
+                for (int end = limit + 257 - dupCount; limit < end; limit++)
+                    out[limit] = (byte) b;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes data which is already in memory. Exact output size is computed by
+     * a quick pass over run headers, so output array is allocated once
+     *
+     * @param src encoded data
+     * @param from index of the first byte
+     * @param to index after the last byte
+     * @return decoded data
+     */
+    public static PDFRawData decode(byte[] src, int from, int to) throws EDecoderException {
+        return decode(src, from, to, Long.MAX_VALUE);
+    }
+
+    /**
+     * Decodes data which is already in memory, see {@link #decode(byte[], int, int)}
+     *
+     * @param maxLength max allowed length of decoded data. Decoding fails before output array is allocated
+     */
+    public static PDFRawData decode(byte[] src, int from, int to, long maxLength) throws EDecoderException {
+        long size = 0;
+        int i = from;
+        while (i < to) {
+            int dupCount = src[i] & 0xFF;
+            if (dupCount == 128)
+                break;
+            if (dupCount < 128) {
+                size += Math.min(dupCount + 1, to - i - 1);
+                i += dupCount + 2;
+            } else {
+                if (i + 1 < to)
+                    size += 257 - dupCount;
+                i += 2;
+            }
+        }
+        if (size > maxLength)
+            throw new EDecoderException("Decoded stream size exceeds the limit (%d bytes)", maxLength);
+        if (size > Integer.MAX_VALUE - 8)
+            throw new EDecoderException("RunLengthDecode: decoded data is too large (%d bytes)", size);
+
+        byte[] out = new byte[(int) size];
+        int len = 0;
+        i = from;
+        while (len < size) {
+            int dupCount = src[i] & 0xFF;
+            if (dupCount < 128) {
+                int n = Math.min(dupCount + 1, to - i - 1);
+                System.arraycopy(src, i + 1, out, len, n);
+                len += n;
+                i += dupCount + 2;
+            } else {
+                int n = 257 - dupCount;
+                byte b = src[i + 1];
+                for (int end = len + n; len < end; len++)
+                    out[len] = b;
+                i += 2;
+            }
+        }
+        return new PDFRawData(new ArraySource(out, len));
+    }
+}
@@ -24,24 +24,37 @@ package org.pdfparse.filter;
 import org.pdfparse.cos.*;
 import org.pdfparse.exception.EDecoderException;
 import org.pdfparse.exception.EParseError;
+import org.pdfparse.io.ArraySource;
 import org.pdfparse.parser.Diagnostics;
 import org.pdfparse.parser.PDFRawData;
 import org.pdfparse.parser.ParserSettings;
 
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.zip.DataFormatException;
-import java.util.zip.Inflater;
 
 public class StreamDecoder {
 
+    /**
+     * Decoding stage of the filter pipeline. Stage wraps the stream with encoded data
+     * and returns the stream with decoded data.
+     */
     public interface FilterHandler {
-        byte[] decode(byte[] b, COSName filterName, COSObject decodeParams, final COSDictionary streamDictionary, ParserSettings settings) throws EParseError;
+        /**
+         * @param maxLength max allowed length of decoded data. A stage which keeps data in memory checks it
+         *                  before allocating; output of streaming stages is limited by the pipeline
+         */
+        InputStream decode(InputStream in, COSName filterName, COSObject decodeParams, final COSDictionary streamDictionary,
+                           ParserSettings settings, long maxLength) throws EParseError;
     }
 
-    private static final Map<COSName, FilterHandler> defaults;
+    static final Map<COSName, FilterHandler> BUILT_IN;
+    private static final int MAX_COMPRESSION_RATIO = 1032; // Deflate can not compress better
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
 
     static {
         HashMap<COSName, FilterHandler> map = new HashMap<COSName, FilterHandler>();
@@ -63,315 +76,250 @@ public class StreamDecoder {
         map.put(COSName.CCITTFAXDECODE, new Filter_DoNothing());
         map.put(COSName.JBIG2DECODE, new Filter_DoNothing());
 
-        defaults = Collections.unmodifiableMap(map);
+        BUILT_IN = Collections.unmodifiableMap(map);
     }
 
 
-    private static byte[] FLATEDecode(final byte[] src) {
-        byte[] buf = new byte[1024];
-
-        Inflater decompressor = new Inflater();
-        decompressor.setInput(src);
-
-        // Create an expandable byte array to hold the decompressed data
-        ByteArrayOutputStream bos = new ByteArrayOutputStream(src.length);
-
-        try {
-            while (!decompressor.finished()) {
-                int count = decompressor.inflate(buf);
-                bos.write(buf, 0, count);
-            }
-        } catch (DataFormatException e) {
-            decompressor.end();
-            throw new EDecoderException("FlateDecode error", e);
-        }
-        decompressor.end();
-
-        return bos.toByteArray();
-    }
-
     /**
      * Decodes a stream that has the LZWDecode filter.
      *
      * @param in the input data
+     * @param maxLength max allowed length of decoded data
      * @return the decoded data
      */
-    private static byte[] LZWDecode(final byte in[]) {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private static InputStream LZWDecode(final byte in[], long maxLength) throws EDecoderException {
         LZWDecoder lzw = new LZWDecoder();
-        lzw.decode(in, out);
-        return out.toByteArray();
+        int len = lzw.decode(in, in.length * 3L, maxLength);
+        return new ByteArrayInputStream(lzw.getBuffer(), 0, len);
+    }
+
+    private static COSArray getFilters(COSDictionary dic) {
+        COSObject objFilter = dic.get(COSName.FILTER);
+        COSArray filters = new COSArray();
+        if (objFilter instanceof COSName)
+            filters.add(objFilter);
+        else if (objFilter instanceof COSArray)
+            filters.addAll((COSArray) objFilter);
+        return filters;
     }
 
     /**
-     * Decodes a stream that has the ASCIIHexDecode filter.
-     *
-     * @param in the input data
-     * @return the decoded data
+     * @return parameters for the filter #idx, or null if filter has no parameters
      */
-    private static byte[] ASCIIHexDecode(final byte in[], ParserSettings settings) throws EParseError {
-        PDFRawData data = new PDFRawData();
-        data.data = in;
-        data.length = in.length;
-        data.pos = 0;
+    private static COSDictionary getDecodeParams(COSDictionary dic, int idx) {
+        COSObject objParams = dic.get(COSName.DECODEPARMS);
+        if (objParams instanceof COSArray) // parameters for each filter
+            objParams = (idx < ((COSArray) objParams).size()) ? ((COSArray) objParams).get(idx) : null;
+        return (objParams instanceof COSDictionary) ? (COSDictionary) objParams : null;
+    }
 
-        return COSString.parseHexStream(data);
+    private static FilterRegistry getRegistry(ParserSettings settings) {
+        return (settings.filterRegistry != null) ? settings.filterRegistry : FilterRegistry.getDefault();
     }
 
     /**
-     * Decodes a stream that has the ASCII85Decode filter.
-     *
-     * @param in the input data
-     * @return the decoded data
+     * @param maxLength max allowed length of decoded data, passed to every stage
      */
-    private static byte[] ASCII85Decode(final byte in[]) {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        int state = 0;
-        int chn[] = new int[5];
-        for (int k = 0; k < in.length; ++k) {
-            int ch = in[k] & 0xff;
-            if (ch == '~')
+    private static InputStream buildPipeline(InputStream in, COSArray filters, int from, COSDictionary dic, ParserSettings settings, long maxLength) throws EParseError {
+        FilterRegistry registry = getRegistry(settings);
+        for (int i = from; i < filters.size(); i++) {
+            COSName currFilterName = (COSName) filters.get(i);
+            if (!registry.isEnabled(currFilterName)) {
+                Diagnostics.debugMessage(settings, "Filter %s is disabled. Stream data is left encoded", currFilterName);
                 break;
-
-            if (PDFRawData.isWhitespace(ch))
-                continue;
-            if (ch == 'z' && state == 0) {
-                out.write(0);
-                out.write(0);
-                out.write(0);
-                out.write(0);
-                continue;
-            }
-            if (ch < '!' || ch > 'u')
-                throw new EDecoderException("Illegal character in ascii85decode (#%d)", ch);
-            chn[state] = ch - '!';
-            ++state;
-            if (state == 5) {
-                state = 0;
-                int r = 0;
-                for (int j = 0; j < 5; ++j)
-                    r = r * 85 + chn[j];
-                out.write((byte) (r >> 24));
-                out.write((byte) (r >> 16));
-                out.write((byte) (r >> 8));
-                out.write((byte) r);
             }
+            FilterHandler fhandler = registry.get(currFilterName);
+            if (fhandler == null)
+                throw new EParseError("Stream filter not supported: " + currFilterName.toString());
+
+            in = fhandler.decode(in, currFilterName, getDecodeParams(dic, i), dic, settings, maxLength);
         }
-        int r;
-        // We'll ignore the next two lines for the sake of perpetuating broken PDFs
-//        if (state == 1)
-//            throw new RuntimeException("illegal.length.in.ascii85decode");
-        if (state == 2) {
-            r = chn[0] * 85 * 85 * 85 * 85 + chn[1] * 85 * 85 * 85 + 85 * 85 * 85 + 85 * 85 + 85;
-            out.write((byte) (r >> 24));
-        } else if (state == 3) {
-            r = chn[0] * 85 * 85 * 85 * 85 + chn[1] * 85 * 85 * 85 + chn[2] * 85 * 85 + 85 * 85 + 85;
-            out.write((byte) (r >> 24));
-            out.write((byte) (r >> 16));
-        } else if (state == 4) {
-            r = chn[0] * 85 * 85 * 85 * 85 + chn[1] * 85 * 85 * 85 + chn[2] * 85 * 85 + chn[3] * 85 + 85;
-            out.write((byte) (r >> 24));
-            out.write((byte) (r >> 16));
-            out.write((byte) (r >> 8));
-        }
-        return out.toByteArray();
+        return in;
     }
 
-    public static PDFRawData decodeStream(byte[] src, COSDictionary dic, ParserSettings settings) throws EParseError {
-        // Decompress stream
-        COSObject objFilter = dic.get(COSName.FILTER);
-        if (objFilter != null) {
-            COSArray filters = new COSArray();
-            if (objFilter instanceof COSName)
-                filters.add(objFilter);
-            else if (objFilter instanceof COSArray)
-                filters.addAll((COSArray) objFilter);
-
-            byte[] bytes = src;
-            for (int i = 0; i < filters.size(); i++) {
-                COSName currFilterName = (COSName) filters.get(i);
-                FilterHandler fhandler = defaults.get(currFilterName);
-                if (fhandler == null)
-                    throw new EParseError("Stream filter not supported: " + currFilterName.toString());
-
-                bytes = fhandler.decode(bytes, currFilterName, dic.get(COSName.DECODEPARMS), dic, settings);
-            }
-            return new PDFRawData(bytes);
-        }
+    /**
+     * Builds decoding pipeline for the stream. Every filter is a streaming stage,
+     * so decoded data is produced on demand and intermediate results are not materialized.
+     * Returned stream should be closed, that returns pooled decoder resources.
+     *
+     * @param raw raw (encoded) stream body
+     * @param dic stream dictionary
+     * @param budget limits of decoded size. Reading fails when the limit is exceeded
+     * @param key stream identity in the budget (see {@link DecodeBudget}), or {@link DecodeBudget#NO_KEY}
+     * @return decoded stream
+     */
+    public static InputStream openDecodedStream(InputStream raw, COSDictionary dic, ParserSettings settings, DecodeBudget budget, long key) throws EParseError {
+        return budget.limit(buildPipeline(raw, getFilters(dic), 0, dic, settings, budget.getStreamLimit(key)), key);
+    }
 
-        return new PDFRawData(src);
+    public static InputStream openDecodedStream(InputStream raw, COSDictionary dic, ParserSettings settings, DecodeBudget budget) throws EParseError {
+        return openDecodedStream(raw, dic, settings, budget, DecodeBudget.NO_KEY);
+    }
 
+    public static InputStream openDecodedStream(InputStream raw, COSDictionary dic, ParserSettings settings) throws EParseError {
+        return openDecodedStream(raw, dic, settings, new DecodeBudget(settings));
     }
 
-    public static PDFRawData decodeStream(PDFRawData src, COSDictionary dic, ParserSettings settings) throws EParseError {
-        byte[] bstream =  // TODO: implement max verbosity mode
-                src.readStream(dic.getUInt(COSName.LENGTH, 0), false);
-        return decodeStream(bstream, dic, settings);
+    public static PDFRawData decodeStream(byte[] src, COSDictionary dic, ParserSettings settings) throws EParseError {
+        return decodeStream(src, dic, settings, new DecodeBudget(settings));
     }
 
+    /**
+     * Decodes the whole stream at once
+     *
+     * @param src raw (encoded) stream body
+     * @param dic stream dictionary
+     * @param budget limits of decoded size
+     * @return decoded data
+     */
+    public static PDFRawData decodeStream(byte[] src, COSDictionary dic, ParserSettings settings, DecodeBudget budget) throws EParseError {
+        return decodeStream(src, dic, settings, budget, DecodeBudget.NO_KEY);
+    }
 
     /**
-     * @param in_out
-     * @param dic
-     * @return a new length
+     * Decodes the whole stream at once
+     *
+     * @param src raw (encoded) stream body
+     * @param dic stream dictionary
+     * @param budget limits of decoded size
+     * @param key stream identity in the budget (see {@link DecodeBudget}), or {@link DecodeBudget#NO_KEY}
+     * @return decoded data
      */
-    private static byte[] decodePredictor(byte in_out[], final COSDictionary dic, ParserSettings settings) {
-        int predictor = dic.getInt(COSName.PREDICTOR, -1);
-        if (predictor < 0)
-            return in_out;
-
-        if (predictor < 10 && predictor != 2)
-            return in_out;
-
-        int width = dic.getInt(COSName.COLUMNS, 1);
-        int colors = dic.getInt(COSName.COLORS, 1);
-        int bpc = dic.getInt(COSName.BITSPERCOMPONENT, 8);
-
-        int bytesPerPixel = colors * bpc / 8;
-        int bytesPerRow = (colors * width * bpc + 7) / 8;
-
-        if (predictor == 2) {
-            if (bpc == 8) {
-                int numRows = in_out.length / bytesPerRow;
-                for (int row = 0; row < numRows; row++) {
-                    int rowStart = row * bytesPerRow;
-                    for (int col = 0 + bytesPerPixel; col < bytesPerRow; col++) {       // TODO: Check documentation (BUG ?)
-                        int idx = rowStart + col;
-                        in_out[idx] = (byte) (in_out[idx] + in_out[idx - bytesPerPixel]);
-                    }
-                }
+    public static PDFRawData decodeStream(byte[] src, COSDictionary dic, ParserSettings settings, DecodeBudget budget, long key) throws EParseError {
+        COSArray filters = getFilters(dic);
+        if (filters.isEmpty())
+            return new PDFRawData(src);
+
+        long maxLength = budget.getStreamLimit(key);
+
+        int decodedLength = dic.getInt(COSName.DL, -1);
+        if (decodedLength > (long) src.length * MAX_COMPRESSION_RATIO)
+            decodedLength = -1; // do not trust the hint of damaged file
+        InputStream in;
+        COSName firstFilter = (COSName) filters.get(0);
+        FilterRegistry registry = getRegistry(settings);
+        if (!registry.isBuiltIn(firstFilter)) {
+            // custom or disabled filter: no in-memory shortcuts
+            in = buildPipeline(new ByteArrayInputStream(src), filters, 0, dic, settings, maxLength);
+        } else if (firstFilter.equals(COSName.FLATEDECODE) || firstFilter.equals(COSName.FL)) {
+            // Data is already in memory: inflate it at once, without intermediate buffers
+            COSDictionary params = getDecodeParams(dic, 0);
+            boolean lastStage = (filters.size() == 1) && !hasPredictor(params);
+            PDFRawData inflated = FlateInputStream.inflate(src, lastStage ? decodedLength : -1, maxLength);
+            if (lastStage)
+                return charge(inflated, budget, key);
+
+            if (filters.size() == 1) {
+                // Flate + predictor (typical for XRef streams): undo prediction in the inflated buffer
+                Predictor predictor = Predictor.fromParams(params);
+                if (Diagnostics.softAssertDataIntegrity(settings, inflated.length > predictor.bytesPerPixel, "Data to small for decoding prediction"))
+                    inflated.length = predictor.decode(inflated.data, (int) inflated.length);
+                return charge(inflated, budget, key);
             }
-            return in_out;
-        }
 
-        if (!Diagnostics.softAssertDataIntegrity(settings, in_out.length > bytesPerPixel, "Data to small for decoding PNG prediction")) {
-            return in_out;
+            in = new ByteArrayInputStream(inflated.data, 0, (int) inflated.length);
+            in = buildPipeline(applyPredictor(in, params, settings), filters, 1, dic, settings, maxLength);
+        } else {
+            PDFRawData decoded = decodeInMemory(src, firstFilter, maxLength);
+            if (decoded == null) {
+                in = buildPipeline(new ByteArrayInputStream(src), filters, 0, dic, settings, maxLength);
+            } else if (filters.size() == 1) {
+                return charge(decoded, budget, key);
+            } else {
+                in = new ByteArrayInputStream(decoded.data, 0, (int) decoded.length);
+                in = buildPipeline(in, filters, 1, dic, settings, maxLength);
+            }
         }
 
+        try {
+            return readAll(budget.limit(in, key), decodedLength >= 0 ? decodedLength : src.length * 2L, maxLength);
+        } catch (IOException e) {
+            throw new EDecoderException("Failed to decode stream", e);
+        }
+    }
 
-        int filter;
-        int curr_in_idx = 0, curr_out_idx = 0, prior_idx = 0;
-        // Decode the first line -------------------
-        filter = in_out[curr_in_idx++];
+    private static PDFRawData charge(PDFRawData decoded, DecodeBudget budget, long key) throws EDecoderException {
+        budget.charge(decoded.length, key);
+        return decoded;
+    }
 
-        switch (filter) {
-            case 0: //PNG_FILTER_NONE
-            case 2: //PNG_FILTER_UP
-                System.arraycopy(in_out, curr_in_idx, in_out, curr_out_idx, bytesPerRow);
-                break;
-            case 1: //PNG_FILTER_SUB
-            case 4: //PNG_FILTER_PAETH
-                //curr[i] += curr[i - bytesPerPixel];
-                System.arraycopy(in_out, curr_in_idx, in_out, curr_out_idx, bytesPerPixel);
+    /**
+     * Decodes the first stage of ASCII filters at once, when encoded data is already in memory
+     *
+     * @param maxLength max allowed length of decoded data, checked before output is allocated
+     * @return decoded data, or null if the filter has no such decoder
+     */
+    private static PDFRawData decodeInMemory(byte[] src, COSName filter, long maxLength) throws EParseError {
+        if (filter.equals(COSName.ASCIIHEXDECODE) || filter.equals(COSName.AHX))
+            return ASCIIHexInputStream.decode(src, 0, src.length, maxLength);
+        if (filter.equals(COSName.ASCII85DECODE) || filter.equals(COSName.A85))
+            return ASCII85InputStream.decode(src, 0, src.length, maxLength);
+        if (filter.equals(COSName.RUNLENGTHDECODE))
+            return RunLengthInputStream.decode(src, 0, src.length, maxLength);
+        return null;
+    }
 
-                for (int i = bytesPerPixel; i < bytesPerRow; i++)
-                    in_out[curr_out_idx + i] = (byte) ((in_out[curr_out_idx + i - bytesPerPixel] & 0xff + in_out[curr_in_idx + i] & 0xff) & 0xff);
-                break;
-            case 3: //PNG_FILTER_AVERAGE
-                System.arraycopy(in_out, curr_in_idx, in_out, curr_out_idx, bytesPerPixel);
+    /**
+     * Reads the stream body at the current position and decodes it. The stream is identified
+     * in the budget by the position of its body
+     */
+    public static PDFRawData decodeStream(PDFRawData src, COSDictionary dic, ParserSettings settings, DecodeBudget budget) throws EParseError {
+        int length = dic.getUInt(COSName.LENGTH, 0);
+        long start = src.skipStream(length, false); // TODO: implement max verbosity mode
+        return decodeStream(src.getBytes(start, length), dic, settings, budget, start);
+    }
 
-                for (int i = bytesPerPixel; i < bytesPerRow; i++)
-                    in_out[curr_out_idx + i] = (byte) ((in_out[curr_in_idx + i - bytesPerPixel] & 0xff) / 2);
+    /**
+     * Reads the stream till the end. Data is not copied once more, returned object wraps the read buffer
+     */
+    private static PDFRawData readAll(InputStream in, long sizeHint, long maxLength) throws IOException {
+        long capacity = (maxLength < MAX_ARRAY_SIZE) ? maxLength + 1 : MAX_ARRAY_SIZE;
+        // one spare byte: reaching the end of stream with exact hint does not grow the array.
+        // The hint is not trusted beyond the limit
+        byte[] buf = new byte[(int) Math.min(Math.max(sizeHint + 1, 64), capacity)];
+        int len = 0, n;
+        while (true) {
+            if (len == buf.length) {
+                if (len > maxLength)
+                    throw new EDecoderException("Decoded stream size exceeds the limit (%d bytes)", maxLength);
+                buf = Arrays.copyOf(buf, (int) Math.min(buf.length * 2L, capacity));
+            }
+            n = in.read(buf, len, buf.length - len);
+            if (n < 0)
                 break;
-            default:
-                // Error -- unknown filter type
-                throw new EDecoderException("PNG filter unknown (%d)", filter);
+            len += n;
         }
-        curr_in_idx += bytesPerRow;
-        curr_out_idx += bytesPerRow;
-
-        //-------------------------
-
-
-        // Decode the (sub)image row-by-row
-        while (curr_in_idx < in_out.length) {
-            filter = in_out[curr_in_idx++];
-
-            switch (filter) {
-                case 0: //PNG_FILTER_NONE
-                    System.arraycopy(in_out, curr_in_idx, in_out, curr_out_idx, bytesPerPixel);
-                    break;
-                case 1: //PNG_FILTER_SUB
-                    //curr[i] += curr[i - bytesPerPixel];
-                    System.arraycopy(in_out, curr_in_idx, in_out, curr_out_idx, bytesPerPixel);
-
-                    for (int i = bytesPerPixel; i < bytesPerRow; i++)
-                        in_out[curr_out_idx + i] = (byte) (((in_out[curr_out_idx + i - bytesPerPixel] & 0xff) + (in_out[curr_in_idx + i] & 0xff)) & 0xff);
-                    break;
-                case 2: //PNG_FILTER_UP
-                    for (int i = 0; i < bytesPerRow; i++) {
-                        //curr[i] += prior[i];
-                        in_out[curr_out_idx + i] = (byte) ((in_out[curr_in_idx + i] & 0xff) + (in_out[prior_idx + i] & 0xff) & 0xff);
-                    }
-                    break;
-                case 3: //PNG_FILTER_AVERAGE
-                    for (int i = 0; i < bytesPerPixel; i++) {
-                        //curr[i] += prior[i] / 2;
-                        in_out[curr_out_idx + i] += (byte) (((in_out[curr_in_idx + i] & 0xff) + (in_out[prior_idx + i] & 0xff) / 2) & 0xff);
-                    }
-                    for (int i = bytesPerPixel; i < bytesPerRow; i++) {
-                        //curr[i] += ((curr[i - bytesPerPixel] & 0xff) + (prior[i] & 0xff))/2;
-                        in_out[curr_out_idx + i] += (byte) ((
-                                (in_out[curr_out_idx + i - bytesPerPixel] & 0xff) + (in_out[prior_idx + i] & 0xff)) / 2);
-                    }
-                    break;
-                case 4: //PNG_FILTER_PAETH
-                    for (int i = 0; i < bytesPerPixel; i++) {
-                        //curr[i] += prior[i];
-                        in_out[curr_out_idx + i] = (byte) (((in_out[curr_in_idx + i] & 0xff) + (in_out[prior_idx + i] & 0xff) & 0xff));
-                    }
-
-                    for (int i = bytesPerPixel; i < bytesPerRow; i++) {
-                        //int a = curr[i - bytesPerPixel] & 0xff;
-                        //int b = prior[i] & 0xff;
-                        //int c = prior[i - bytesPerPixel] & 0xff;
-                        int a = in_out[curr_out_idx + i - bytesPerPixel] & 0xFF;
-                        int b = in_out[prior_idx + i] & 0xFF;
-                        int c = in_out[prior_idx + i - bytesPerPixel] & 0xFF;
-
-                        int p = a + b - c;
-                        int pa = Math.abs(p - a);
-                        int pb = Math.abs(p - b);
-                        int pc = Math.abs(p - c);
-
-                        int ret;
-
-                        if (pa <= pb && pa <= pc) {
-                            ret = a;
-                        } else if (pb <= pc) {
-                            ret = b;
-                        } else {
-                            ret = c;
-                        }
-                        //curr[i] += (byte)ret;
-                        in_out[curr_out_idx + i] += (byte) ret;
-                    }
-                    break;
-                default:
-                    // Error -- unknown filter type
-                    throw new EDecoderException("PNG filter unknown (%d)", filter);
-            }
+        in.close();
+        return new PDFRawData(new ArraySource(buf, len));
+    }
+
+    /**
+     * Reads the stream till the end
+     *
+     * @param maxLength max allowed length of data
+     */
+    private static byte[] readFully(InputStream in, long maxLength) throws IOException {
+        PDFRawData data = readAll(in, 1024, maxLength);
+        return Arrays.copyOf(data.data, (int) data.length);
+    }
 
-            // Swap curr and prior
-            prior_idx = curr_out_idx;
-            curr_in_idx += bytesPerRow;
-            curr_out_idx += bytesPerRow;
-        } // while (true) ...
+    private static boolean hasPredictor(COSDictionary decodeParams) {
+        return Predictor.fromParams(decodeParams) != null;
+    }
 
-        byte[] res = new byte[curr_out_idx];
-        System.arraycopy(in_out, 0, res, 0, res.length);
-        return res;
+    private static InputStream applyPredictor(InputStream in, COSDictionary decodeParams, ParserSettings settings) throws EParseError {
+        Predictor predictor = Predictor.fromParams(decodeParams);
+        if (predictor == null)
+            return in;
+        return new PredictorInputStream(in, predictor);
     }
 
     /**
      * Handles FLATEDECODE filter
      */
     private static class Filter_FLATEDECODE implements FilterHandler {
-        public byte[] decode(byte[] b, COSName filterName, COSObject decodeParams, COSDictionary streamDictionary, ParserSettings settings) throws EParseError {
-            b = StreamDecoder.FLATEDecode(b);
-            if (decodeParams != null)
-                b = StreamDecoder.decodePredictor(b, (COSDictionary) decodeParams, settings);
-            return b;
+        public InputStream decode(InputStream in, COSName filterName, COSObject decodeParams, COSDictionary streamDictionary, ParserSettings settings, long maxLength) throws EParseError {
+            return applyPredictor(new FlateInputStream(in), (COSDictionary) decodeParams, settings);
         }
     }
 
@@ -379,19 +327,17 @@ public class StreamDecoder {
      * Handles ASCIIHEXDECODE filter
      */
     private static class Filter_ASCIIHEXDECODE implements FilterHandler {
-        public byte[] decode(byte[] b, COSName filterName, COSObject decodeParams, COSDictionary streamDictionary, ParserSettings settings) throws EParseError {
-            b = StreamDecoder.ASCIIHexDecode(b, settings);
-            return b;
+        public InputStream decode(InputStream in, COSName filterName, COSObject decodeParams, COSDictionary streamDictionary, ParserSettings settings, long maxLength) throws EParseError {
+            return new ASCIIHexInputStream(in);
         }
     }
 
     /**
-     * Handles ASCIIHEXDECODE filter
+     * Handles ASCII85DECODE filter
      */
     private static class Filter_ASCII85DECODE implements FilterHandler {
-        public byte[] decode(byte[] b, COSName filterName, COSObject decodeParams, COSDictionary streamDictionary, ParserSettings settings) throws EParseError {
-            b = StreamDecoder.ASCII85Decode(b);
-            return b;
+        public InputStream decode(InputStream in, COSName filterName, COSObject decodeParams, COSDictionary streamDictionary, ParserSettings settings, long maxLength) throws EParseError {
+            return new ASCII85InputStream(in);
         }
     }
 
@@ -399,11 +345,14 @@ public class StreamDecoder {
      * Handles LZWDECODE filter
      */
     private static class Filter_LZWDECODE implements FilterHandler {
-        public byte[] decode(byte[] b, COSName filterName, COSObject decodeParams, COSDictionary streamDictionary, ParserSettings settings) throws EParseError {
-            b = StreamDecoder.LZWDecode(b);
-            if (decodeParams != null)
-                b = StreamDecoder.decodePredictor(b, (COSDictionary) decodeParams, settings);
-            return b;
+        // LZW stage is not streaming: encoded and decoded data are kept in memory, so both are limited
+        public InputStream decode(InputStream in, COSName filterName, COSObject decodeParams, COSDictionary streamDictionary, ParserSettings settings, long maxLength) throws EParseError {
+            try {
+                in = StreamDecoder.LZWDecode(readFully(in, maxLength), maxLength);
+            } catch (IOException e) {
+                throw new EDecoderException("Failed to decode stream", e);
+            }
+            return applyPredictor(in, (COSDictionary) decodeParams, settings);
         }
     }
 
@@ -412,8 +361,8 @@ public class StreamDecoder {
      * A filter that doesn't modify the stream at all
      */
     private static class Filter_DoNothing implements FilterHandler {
-        public byte[] decode(byte[] b, COSName filterName, COSObject decodeParams, COSDictionary streamDictionary, ParserSettings settings) throws EParseError {
-            return b;
+        public InputStream decode(InputStream in, COSName filterName, COSObject decodeParams, COSDictionary streamDictionary, ParserSettings settings, long maxLength) throws EParseError {
+            return in;
         }
     }
 
@@ -421,30 +370,8 @@ public class StreamDecoder {
      * Handles RUNLENGTHDECODE filter
      */
     private static class Filter_RUNLENGTHDECODE implements FilterHandler {
-
-
-        public byte[] decode(byte[] b, COSName filterName, COSObject decodeParams, COSDictionary streamDictionary, ParserSettings settings) throws EParseError {
-            // allocate the output buffer
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            byte dupCount;
-            for (int i = 0; i < b.length; i++) {
-                dupCount = b[i];
-                if (dupCount == -128) break; // this is implicit end of data
-
-                if (dupCount >= 0) { //  && dupCount <= 127
-                    int bytesToCopy = dupCount + 1;
-                    baos.write(b, i, bytesToCopy);
-                    i += bytesToCopy;
-                } else {
-                    // make dupcount copies of the next byte
-                    i++;
-                    for (int j = 0; j < 1 - (int) (dupCount); j++) {
-                        baos.write(b[i]);
-                    }
-                }
-            }
-
-            return baos.toByteArray();
+        public InputStream decode(InputStream in, COSName filterName, COSObject decodeParams, COSDictionary streamDictionary, ParserSettings settings, long maxLength) throws EParseError {
+            return new RunLengthInputStream(in);
         }
     }
 
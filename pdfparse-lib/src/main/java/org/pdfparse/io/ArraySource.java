@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse.io;
+
+/**
+ * A {@link RandomAccessSource} backed by an in-memory byte array
+ */
+public class ArraySource implements RandomAccessSource {
+    private final byte[] data;
+    private final int length;
+
+    public ArraySource(byte[] data) {
+        this(data, data.length);
+    }
+
+    public ArraySource(byte[] data, int length) {
+        if (length < 0 || length > data.length)
+            throw new IllegalArgumentException("Invalid source length: " + length);
+        this.data = data;
+        this.length = length;
+    }
+
+    @Override
+    public byte get(long position) {
+        if (position >= length)
+            throw new IndexOutOfBoundsException("Position " + position + " is out of source range");
+        return data[(int) position];
+    }
+
+    @Override
+    public void get(long position, byte[] dst, int off, int len) {
+        if (position < 0 || position + len > length)
+            throw new IndexOutOfBoundsException("Range " + position + "+" + len + " is out of source range");
+        System.arraycopy(data, (int) position, dst, off, len);
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    /**
+     * @return the underlying array. Only first {@link #length()} bytes are valid
+     */
+    public byte[] getArray() {
+        return data;
+    }
+}
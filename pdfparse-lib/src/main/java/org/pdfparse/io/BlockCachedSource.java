@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse.io;
+
+import org.pdfparse.exception.EGenericException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A {@link RandomAccessSource} which reads a {@link SeekableByteChannel} in fixed-size blocks on demand.
+ * <p>
+ * Recently used blocks are kept in a LRU cache of bounded size, so memory usage does not depend
+ * on the file size. Only the blocks which are actually accessed are read from the channel.
+ * The channel is owned by the caller and is not closed by this class.
+ * <p>
+ * Read-ahead hints read missing blocks of the range in ascending order, at most half of the cache at once.
+ */
+public class BlockCachedSource implements ReadAheadSource {
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+    public static final int DEFAULT_MAX_BLOCKS = 64;
+
+    private static final class Block {
+        final long index;
+        final byte[] data;
+
+        Block(long index, byte[] data) {
+            this.index = index;
+            this.data = data;
+        }
+    }
+
+    private final SeekableByteChannel channel;
+    private final int blockShift;
+    private final long blockMask;
+    private final long length;
+    private final int maxBlocks;
+    private final LinkedHashMap<Long, Block> cache;
+
+    // Last accessed block. Most reads hit it, so the cache is not touched
+    private volatile Block last;
+    private long blocksRead;
+
+    public BlockCachedSource(SeekableByteChannel channel) throws IOException {
+        this(channel, DEFAULT_BLOCK_SIZE, DEFAULT_MAX_BLOCKS);
+    }
+
+    /**
+     * @param channel   channel to read from
+     * @param blockSize size of the block in bytes. Rounded up to the power of two
+     * @param maxBlocks maximum number of blocks kept in memory
+     */
+    public BlockCachedSource(SeekableByteChannel channel, int blockSize, final int maxBlocks) throws IOException {
+        if (blockSize < 16 || blockSize > (1 << 30))
+            throw new IllegalArgumentException("Invalid block size: " + blockSize);
+        if (maxBlocks < 1)
+            throw new IllegalArgumentException("Invalid cache size: " + maxBlocks);
+
+        this.channel = channel;
+        this.blockShift = 32 - Integer.numberOfLeadingZeros(blockSize - 1);
+        this.blockMask = (1L << blockShift) - 1;
+        this.length = channel.size();
+        this.maxBlocks = maxBlocks;
+        this.cache = new LinkedHashMap<Long, Block>(maxBlocks * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Block> eldest) {
+                return size() > maxBlocks;
+            }
+        };
+    }
+
+    @Override
+    public byte get(long position) {
+        if (position < 0 || position >= length)
+            throw new IndexOutOfBoundsException("Position " + position + " is out of source range");
+
+        long index = position >>> blockShift;
+        Block b = last;
+        if (b == null || b.index != index)
+            b = fetch(index);
+        return b.data[(int) (position & blockMask)];
+    }
+
+    @Override
+    public void get(long position, byte[] dst, int off, int len) {
+        if (position < 0 || position + len > length)
+            throw new IndexOutOfBoundsException("Range " + position + "+" + len + " is out of source range");
+
+        while (len > 0) {
+            Block b = fetch(position >>> blockShift);
+            int from = (int) (position & blockMask);
+            int chunk = Math.min(len, b.data.length - from);
+            System.arraycopy(b.data, from, dst, off, chunk);
+
+            position += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public void readAhead(long position, long len) {
+        if ((position < 0) || (position >= length) || (len <= 0))
+            return;
+
+        long first = position >>> blockShift;
+        long last = (Math.min(position + len, length) - 1) >>> blockShift;
+        last = Math.min(last, first + Math.max(maxBlocks / 2, 1) - 1);
+        synchronized (this) {
+            for (long index = first; index <= last; index++) {
+                if (cache.containsKey(index))
+                    continue;
+                cache.put(index, new Block(index, readBlock(index)));
+                blocksRead++;
+            }
+        }
+    }
+
+    /**
+     * @return number of blocks read from the channel so far
+     */
+    public synchronized long getBlocksRead() {
+        return blocksRead;
+    }
+
+    private synchronized Block fetch(long index) {
+        Block b = cache.get(index);
+        if (b == null) {
+            b = new Block(index, readBlock(index));
+            cache.put(index, b);
+            blocksRead++;
+        }
+        last = b;
+        return b;
+    }
+
+    private byte[] readBlock(long index) {
+        long start = index << blockShift;
+        int size = (int) Math.min(blockMask + 1, length - start);
+        byte[] data = new byte[size];
+        ByteBuffer bb = ByteBuffer.wrap(data);
+        try {
+            channel.position(start);
+            while (bb.hasRemaining()) {
+                if (channel.read(bb) < 0)
+                    throw new EGenericException("Unexpected end of channel at %d", start + bb.position());
+            }
+        } catch (IOException e) {
+            throw new EGenericException("Failed to read block at " + start, e);
+        }
+        return data;
+    }
+}
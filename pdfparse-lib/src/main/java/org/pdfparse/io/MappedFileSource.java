@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link RandomAccessSource} backed by read-only memory-mapped file regions.
+ * <p>
+ * File contents are not copied to the heap, pages are loaded by the OS on demand.
+ * A single mapping is limited to 2 GB, so larger files are mapped as a sequence of
+ * equally sized segments and addressed with 64-bit offsets.
+ * The mappings stay valid after the file channel is closed, so no explicit close is needed.
+ * <p>
+ * Read-ahead hints touch every page of the range, so the OS loads them in one forward pass.
+ */
+public class MappedFileSource implements ReadAheadSource {
+    public static final int DEFAULT_SEGMENT_SHIFT = 30; // 1 GB segments
+    private static final int PAGE_SIZE = 4096;
+
+    private final MappedByteBuffer[] segments;
+    private final int segmentShift;
+    private final long segmentMask;
+    private final long length;
+    private volatile int touched; // keeps page touching from being optimized away
+
+    public MappedFileSource(File file) throws IOException {
+        this(file, DEFAULT_SEGMENT_SHIFT);
+    }
+
+    /**
+     * @param file         file to map
+     * @param segmentShift log2 of the segment size (at most 30)
+     */
+    public MappedFileSource(File file, int segmentShift) throws IOException {
+        if (segmentShift < 1 || segmentShift > 30)
+            throw new IllegalArgumentException("Invalid segment shift: " + segmentShift);
+
+        this.segmentShift = segmentShift;
+        this.segmentMask = (1L << segmentShift) - 1;
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            length = channel.size();
+
+            long segmentSize = 1L << segmentShift;
+            int count = (int) ((length + segmentSize - 1) >>> segmentShift);
+            segments = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long start = (long) i << segmentShift;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentSize, length - start));
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Override
+    public byte get(long position) {
+        if (position < 0 || position >= length)
+            throw new IndexOutOfBoundsException("Position " + position + " is out of source range");
+        return segments[(int) (position >>> segmentShift)].get((int) (position & segmentMask));
+    }
+
+    @Override
+    public void get(long position, byte[] dst, int off, int len) {
+        if (position < 0 || position + len > length)
+            throw new IndexOutOfBoundsException("Range " + position + "+" + len + " is out of source range");
+
+        while (len > 0) {
+            // Use a duplicate to keep position of the shared buffer untouched
+            ByteBuffer view = segments[(int) (position >>> segmentShift)].duplicate();
+            view.position((int) (position & segmentMask));
+            int chunk = Math.min(len, view.remaining());
+            view.get(dst, off, chunk);
+
+            position += chunk;
+            off += chunk;
+            len -= chunk;
+        }
+    }
+
+    @Override
+    public long length() {
+        return length;
+    }
+
+    @Override
+    public void readAhead(long position, long len) {
+        if ((position < 0) || (len <= 0))
+            return;
+
+        long end = Math.min(position + len, length);
+        int sum = 0;
+        for (long p = position; p < end; p += PAGE_SIZE)
+            sum += segments[(int) (p >>> segmentShift)].get((int) (p & segmentMask));
+        touched = sum;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse.io;
+
+/**
+ * Random access to the raw bytes of a PDF file.
+ * <p>
+ * Implementations are read-only: the bytes never change once the source is created,
+ * so a single source may be shared between several {@link org.pdfparse.parser.PDFRawData} cursors.
+ */
+public interface RandomAccessSource {
+    /**
+     * Returns the byte at the given position.
+     *
+     * @param position absolute position within the source
+     * @return the byte value
+     * @throws IndexOutOfBoundsException if position is outside of the source
+     */
+    byte get(long position);
+
+    /**
+     * Copies a range of bytes into the destination array.
+     *
+     * @param position absolute position of the first byte to copy
+     * @param dst      destination array
+     * @param off      offset within the destination array
+     * @param len      number of bytes to copy
+     * @throws IndexOutOfBoundsException if the range is outside of the source
+     */
+    void get(long position, byte[] dst, int off, int len);
+
+    /**
+     * @return the total number of bytes in this source
+     */
+    long length();
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+package org.pdfparse.io;
+
+/**
+ * A {@link RandomAccessSource} which can prepare data before it is accessed,
+ * e.g. read blocks from a slow device in one forward pass. Hints are advisory,
+ * implementation may ignore them.
+ */
+public interface ReadAheadSource extends RandomAccessSource {
+    /**
+     * Hints that the range is going to be read soon, in forward direction.
+     *
+     * @param position absolute position of the range. Range is clipped to the source bounds
+     * @param length   length of the range
+     */
+    void readAhead(long position, long length);
+}
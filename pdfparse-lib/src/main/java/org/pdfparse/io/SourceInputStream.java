@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse.io;
+
+import java.io.InputStream;
+
+/**
+ * An {@link InputStream} over a range of a {@link RandomAccessSource}.
+ * Bytes are read directly from the source, nothing is copied in advance.
+ */
+public class SourceInputStream extends InputStream {
+    private final RandomAccessSource source;
+    private final long end;
+    private long pos;
+    private long mark;
+
+    public SourceInputStream(RandomAccessSource source, long offset, long length) {
+        if (offset < 0 || length < 0 || offset + length > source.length())
+            throw new IndexOutOfBoundsException("Range " + offset + "+" + length + " is out of source range");
+        this.source = source;
+        this.pos = offset;
+        this.mark = offset;
+        this.end = offset + length;
+    }
+
+    @Override
+    public int read() {
+        if (pos >= end)
+            return -1;
+        return source.get(pos++) & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0)
+            return 0;
+        if (pos >= end)
+            return -1;
+        int n = (int) Math.min(len, end - pos);
+        source.get(pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) {
+        if (n <= 0)
+            return 0;
+        long k = Math.min(n, end - pos);
+        pos += k;
+        return k;
+    }
+
+    @Override
+    public int available() {
+        return (int) Math.min(Integer.MAX_VALUE, end - pos);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+        mark = pos;
+    }
+
+    @Override
+    public synchronized void reset() {
+        pos = mark;
+    }
+}
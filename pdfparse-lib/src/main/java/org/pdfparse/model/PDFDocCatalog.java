@@ -65,8 +65,11 @@ public class PDFDocCatalog {
 
         return pages.size();
     }
-    private void loadPage(COSReference cosReference) {
-        COSDictionary dict = retriever.getDictionary(cosReference);
+    private void loadPage(COSObject obj) {
+        if (!(obj instanceof COSDictionary))
+            throw new EParseError("Dictionary expected for page tree node. But retrieved object is %s", obj.getClass().getName());
+
+        COSDictionary dict = (COSDictionary) obj;
         if (dict.getName(COSName.TYPE, COSName.EMPTY).equals(COSName.PAGES)) {
             loadPages(dict); // This is a page node
             return;
@@ -87,12 +90,12 @@ public class PDFDocCatalog {
         }
 
         if (kids != null) {
-            for (COSObject ref : kids) {
-                if (! (ref instanceof COSReference)) {
+            for (int i = 0; i < kids.size(); i++) {
+                if (! (kids.get(i) instanceof COSReference)) {
                     throw new EParseError("/Kids element should be a reference");
                 }
 
-                loadPage((COSReference) ref);
+                loadPage(kids.get(i, retriever)); // resolved once, if references are swizzled
             }
         }
     }
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+package org.pdfparse.parser;
+
+/**
+ * When entries of dictionaries are parsed. In lazy modes {@link PDFParser#parseObject(PDFRawData)}
+ * only finds the end of a dictionary, and entries are parsed on the first access.
+ * Stream dictionaries and trailers are always parsed at once.
+ *
+ * @see ParserSettings#dictionaryParsing
+ */
+public enum DictionaryParsing {
+    /** Parse all entries together with the dictionary */
+    EAGER,
+    /** Parse all entries on the first access to the dictionary */
+    LAZY,
+    /** Parse only the requested entry on get() and containsKey(). Other operations parse all entries */
+    LAZY_PER_KEY
+}
@@ -0,0 +1,311 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse.parser;
+
+import org.pdfparse.cos.*;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Storage for parsed objects and decoded object streams of XRefTable.
+ * All implementations are safe to use from several threads.
+ */
+abstract class ObjectCache {
+
+    abstract COSObject get(int id);
+
+    /**
+     * Stores parsed object, unless another thread has already done it.
+     *
+     * @return the cached object
+     */
+    abstract COSObject putIfAbsent(int id, COSObject obj);
+
+    abstract ObjectStream getObjectStream(int containerId);
+
+    abstract ObjectStream putObjectStream(int containerId, ObjectStream objectStream);
+
+    /**
+     * Called when XRef table is pre-sized or grown
+     */
+    void ensureCapacity(int size) {
+    }
+
+    /**
+     * @return number of evicted entries since creation
+     */
+    long getEvictions() {
+        return 0;
+    }
+
+    static ObjectCache create(ParserSettings settings, int capacity) {
+        switch (settings.objectCachePolicy) {
+            case LRU:
+                return new BoundedCache(settings.objectCacheSize, Long.MAX_VALUE);
+            case WEIGHTED:
+                return new BoundedCache(Integer.MAX_VALUE, settings.objectCacheWeight);
+            case SOFT:
+                return new SoftCache();
+            default:
+                return new UnboundedCache(capacity);
+        }
+    }
+
+    /**
+     * Rough estimation of heap size occupied by object (in bytes)
+     */
+    static long estimateSize(COSObject obj) {
+        if (obj instanceof COSDictionary) {
+            if (!((COSDictionary) obj).isLoaded())
+                return 64; // entries are not parsed yet, do not parse them here
+            long size = 64;
+            for (COSObject value : ((COSDictionary) obj).values())
+                size += 8 + estimateSize(value); // names are shared, count key/value slots only
+            return size;
+        }
+        if (obj instanceof COSArray) {
+            if (((COSArray) obj).isNumeric())
+                return 48 + 8 * ((COSArray) obj).size(); // primitive storage
+            long size = 32;
+            for (COSObject item : (COSArray) obj)
+                size += 8 + estimateSize(item);
+            return size;
+        }
+        if (obj instanceof COSString)
+            return 48 + ((COSString) obj).getBinaryValue().length;
+        if ((obj == COSNull.NULL) || (obj == COSBool.TRUE) || (obj == COSBool.FALSE))
+            return 0;
+        if ((obj instanceof COSNumber) && ((COSNumber) obj).isShared())
+            return 0;
+        return 24;
+    }
+
+    /**
+     * Keeps everything. Objects are kept in array indexed by object id
+     */
+    private static class UnboundedCache extends ObjectCache {
+        private AtomicReferenceArray<COSObject> objects;
+        private final ConcurrentHashMap<Integer, ObjectStream> objectStreams = new ConcurrentHashMap<Integer, ObjectStream>();
+
+        UnboundedCache(int capacity) {
+            objects = new AtomicReferenceArray<COSObject>(capacity);
+        }
+
+        @Override
+        COSObject get(int id) {
+            AtomicReferenceArray<COSObject> arr = objects;
+            return id < arr.length() ? arr.get(id) : null;
+        }
+
+        @Override
+        COSObject putIfAbsent(int id, COSObject obj) {
+            if (objects.compareAndSet(id, null, obj))
+                return obj;
+            return objects.get(id);
+        }
+
+        @Override
+        ObjectStream getObjectStream(int containerId) {
+            return objectStreams.get(containerId);
+        }
+
+        @Override
+        ObjectStream putObjectStream(int containerId, ObjectStream objectStream) {
+            ObjectStream old = objectStreams.putIfAbsent(containerId, objectStream);
+            return old != null ? old : objectStream;
+        }
+
+        @Override
+        void ensureCapacity(int size) {
+            AtomicReferenceArray<COSObject> old = objects;
+            if (size <= old.length())
+                return;
+
+            AtomicReferenceArray<COSObject> arr = new AtomicReferenceArray<COSObject>(size);
+            for (int i = 0; i < old.length(); i++)
+                arr.set(i, old.get(i));
+            objects = arr;
+        }
+    }
+
+    /**
+     * Keeps entries while garbage collector allows. Entries cleared by the collector are
+     * removed from the map on the next access and counted as evicted
+     */
+    private static class SoftCache extends ObjectCache {
+        private static final long STREAM_KEY = 1L << 32;
+
+        private final ConcurrentHashMap<Long, Entry> entries = new ConcurrentHashMap<Long, Entry>();
+        private final ReferenceQueue<Object> cleared = new ReferenceQueue<Object>();
+        private final AtomicLong evictions = new AtomicLong();
+
+        private static class Entry extends SoftReference<Object> {
+            final long key;
+
+            Entry(long key, Object value, ReferenceQueue<Object> queue) {
+                super(value, queue);
+                this.key = key;
+            }
+        }
+
+        private void drain() {
+            Reference<?> ref;
+            while ((ref = cleared.poll()) != null) {
+                Entry entry = (Entry) ref;
+                if (entries.remove(entry.key, entry)) // not replaced yet
+                    evictions.incrementAndGet();
+            }
+        }
+
+        private Object lookup(long key) {
+            drain();
+            Entry entry = entries.get(key);
+            return entry != null ? entry.get() : null;
+        }
+
+        private Object store(long key, Object value) {
+            drain();
+            Entry entry = new Entry(key, value, cleared);
+            while (true) {
+                Entry old = entries.putIfAbsent(key, entry);
+                if (old == null)
+                    return value;
+                Object res = old.get();
+                if (res != null)
+                    return res;
+                if (entries.replace(key, old, entry)) { // referent was collected, but not drained yet
+                    evictions.incrementAndGet();
+                    return value;
+                }
+            }
+        }
+
+        @Override
+        COSObject get(int id) {
+            return (COSObject) lookup(id);
+        }
+
+        @Override
+        COSObject putIfAbsent(int id, COSObject obj) {
+            return (COSObject) store(id, obj);
+        }
+
+        @Override
+        ObjectStream getObjectStream(int containerId) {
+            return (ObjectStream) lookup(STREAM_KEY | containerId);
+        }
+
+        @Override
+        ObjectStream putObjectStream(int containerId, ObjectStream objectStream) {
+            return (ObjectStream) store(STREAM_KEY | containerId, objectStream);
+        }
+
+        @Override
+        long getEvictions() {
+            drain();
+            return evictions.get();
+        }
+    }
+
+    /**
+     * Keeps recently used entries. Limited by number of entries and by their estimated size
+     */
+    private static class BoundedCache extends ObjectCache {
+        private static final long STREAM_KEY = 1L << 32;
+
+        private final int maxCount;
+        private final long maxWeight;
+        private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+        private long weight;
+        private long evictions;
+
+        private static class Entry {
+            final Object value;
+            final long weight;
+
+            Entry(Object value, long weight) {
+                this.value = value;
+                this.weight = weight;
+            }
+        }
+
+        BoundedCache(int maxCount, long maxWeight) {
+            this.maxCount = Math.max(maxCount, 1);
+            this.maxWeight = maxWeight;
+        }
+
+        private synchronized Object lookup(long key) {
+            Entry entry = entries.get(key);
+            return entry != null ? entry.value : null;
+        }
+
+        private synchronized Object store(long key, Object value, long valueWeight) {
+            Entry entry = entries.get(key);
+            if (entry != null)
+                return entry.value;
+
+            entries.put(key, new Entry(value, valueWeight));
+            weight += valueWeight;
+
+            // Evict least recently used entries, but always keep just stored one
+            Iterator<Entry> it = entries.values().iterator();
+            while ((entries.size() > 1) && ((entries.size() > maxCount) || (weight > maxWeight))) {
+                Entry eldest = it.next();
+                weight -= eldest.weight;
+                it.remove();
+                evictions++;
+            }
+            return value;
+        }
+
+        @Override
+        COSObject get(int id) {
+            return (COSObject) lookup(id);
+        }
+
+        @Override
+        COSObject putIfAbsent(int id, COSObject obj) {
+            return (COSObject) store(id, obj, estimateSize(obj));
+        }
+
+        @Override
+        ObjectStream getObjectStream(int containerId) {
+            return (ObjectStream) lookup(STREAM_KEY | containerId);
+        }
+
+        @Override
+        ObjectStream putObjectStream(int containerId, ObjectStream objectStream) {
+            return (ObjectStream) store(STREAM_KEY | containerId, objectStream, objectStream.estimateSize());
+        }
+
+        @Override
+        synchronized long getEvictions() {
+            return evictions;
+        }
+    }
+}
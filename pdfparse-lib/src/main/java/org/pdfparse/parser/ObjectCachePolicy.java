@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse.parser;
+
+/**
+ * How parsed objects and decoded object streams are kept in memory.
+ * Evicted objects are transparently parsed again on the next access.
+ *
+ * @see ParserSettings#objectCachePolicy
+ */
+public enum ObjectCachePolicy {
+    /** Keep everything for the life of the document. Same object is always returned for the same reference */
+    UNBOUNDED,
+    /** Keep at most {@link ParserSettings#objectCacheSize} recently used entries */
+    LRU,
+    /** Keep entries while there is enough memory (entries are softly reachable) */
+    SOFT,
+    /** Keep recently used entries while their estimated size is below {@link ParserSettings#objectCacheWeight} */
+    WEIGHTED
+}
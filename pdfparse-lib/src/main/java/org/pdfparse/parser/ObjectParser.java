@@ -3,5 +3,5 @@ package org.pdfparse.parser;
 import org.pdfparse.cos.COSObject;
 
 public interface ObjectParser {
-    COSObject getObject(XRefEntry xref);
+    COSObject getObject(int id);
 }
@@ -31,4 +31,10 @@ public interface ObjectRetriever {
 
     COSStream getStream(COSReference ref);
 
+    /**
+     * @return true, if dictionaries and arrays may remember objects resolved through this retriever
+     * @see ParserSettings#swizzleReferences
+     */
+    boolean swizzleReferences();
+
 }
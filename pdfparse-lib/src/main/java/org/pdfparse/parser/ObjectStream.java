@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse.parser;
+
+import org.pdfparse.exception.EParseError;
+import org.pdfparse.io.ArraySource;
+
+/**
+ * Decoded object stream (/Type /ObjStm) with parsed header.
+ * Header is kept as a compact array of (id, offset) pairs, so any object
+ * may be parsed alone, without parsing its neighbours.
+ */
+class ObjectStream {
+    private final ArraySource data;
+    private final int[] index; // pairs of (object id, absolute offset within data)
+
+    ObjectStream(ArraySource data, int n, int first) throws EParseError {
+        // each header entry takes at least two bytes, so do not trust /N larger than that
+        if ((n < 0) || (n > data.length() / 2))
+            throw new EParseError("Invalid number of objects in object stream (%d)", n);
+        this.data = data;
+        this.index = new int[n * 2];
+
+        PDFRawData src = new PDFRawData(data);
+        for (int i = 0; i < n; i++) {
+            index[i * 2] = src.fetchUInt();
+            index[i * 2 + 1] = first + src.fetchUInt();
+        }
+    }
+
+    int size() {
+        return index.length / 2;
+    }
+
+    /**
+     * Returns offset of the object within decoded data
+     *
+     * @param id object id
+     * @param hint expected position of the object in the header (index within container in XRef)
+     * @return offset of object, or -1 if there is no such object in the stream
+     */
+    int findOffset(int id, int hint) {
+        if ((hint >= 0) && (hint < size()) && (index[hint * 2] == id))
+            return index[hint * 2 + 1];
+
+        // XRef and stream header do not agree. Search whole header
+        for (int i = 0; i < index.length; i += 2)
+            if (index[i] == id)
+                return index[i + 1];
+        return -1;
+    }
+
+    /**
+     * @return rough estimation of occupied heap size (in bytes)
+     */
+    long estimateSize() {
+        return data.length() + index.length * 4L + 64;
+    }
+
+    /**
+     * Points the cursor to decoded data. Cursors are not shared between threads,
+     * so the same cursor may be reused for all object streams of a thread
+     */
+    PDFRawData attach(PDFRawData cursor) {
+        cursor.setSource(data);
+        return cursor;
+    }
+}
@@ -21,12 +21,41 @@ package org.pdfparse.parser;
 
 import org.pdfparse.cos.*;
 import org.pdfparse.exception.EParseError;
+import org.pdfparse.filter.DecodeBudget;
 import org.pdfparse.filter.StreamDecoder;
+import org.pdfparse.io.ArraySource;
+import org.pdfparse.io.RandomAccessSource;
+import org.pdfparse.io.ReadAheadSource;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
 public class PDFParser implements ObjectParser {
     private PDFRawData pdfData;
+    private final RandomAccessSource source;
+    // Cursors are reused by the thread, but attached to the source only while they are used:
+    // threads of a pool may outlive the document
+    private final ThreadLocal<PDFRawData> cursors = new ThreadLocal<PDFRawData>() {
+        @Override
+        protected PDFRawData initialValue() {
+            return new PDFRawData();
+        }
+    };
+    private final ThreadLocal<PDFRawData> lazyCursors = new ThreadLocal<PDFRawData>() {
+        @Override
+        protected PDFRawData initialValue() {
+            return new PDFRawData();
+        }
+    };
+    private final ThreadLocal<PDFRawData> streamCursors = new ThreadLocal<PDFRawData>() {
+        @Override
+        protected PDFRawData initialValue() {
+            return new PDFRawData();
+        }
+    };
     private ParsingEvent parsingEvent;
 
     private COSReference rootId = null;
@@ -38,11 +67,14 @@ public class PDFParser implements ObjectParser {
 
     public ParserSettings settings;
     public Diagnostics diagnostics;
+    private final DecodeBudget decodeBudget; // decoded size of all streams of this document
 
     public PDFParser(PDFRawData pData) {
         this.settings = new ParserSettings();
         this.diagnostics = new Diagnostics(settings);
+        this.decodeBudget = new DecodeBudget(settings);
         this.pdfData = pData;
+        this.source = pData.getSource();
         this.xref = new XRefTable(this.settings);
         this.xref.setParser(this);
     }
@@ -50,7 +82,9 @@ public class PDFParser implements ObjectParser {
     public PDFParser(PDFRawData pData, XRefTable xref, ParserSettings settings, ParsingEvent evt) {
         this.settings = settings;
         this.diagnostics = new Diagnostics(settings);
+        this.decodeBudget = new DecodeBudget(settings);
         this.pdfData = pData;
+        this.source = pData.getSource();
         this.parsingEvent = evt;
         this.xref = xref;
         this.xref.setParser(this);
@@ -87,7 +121,7 @@ public class PDFParser implements ObjectParser {
         processVersion(versionLine.substring(Token.PDF_HEADER.length));
 
         // Scan for EOF -----------------------------------------
-        int eofPosition = src.reverseScan(src.length, Token.EOF, settings.eofLookupRange);
+        long eofPosition = src.reverseScan(src.length, Token.EOF, settings.eofLookupRange);
         Diagnostics.softAssertSyntaxCompliance(settings, eofPosition > 0, "Missing EOF marker");
         if (eofPosition <= 0) {
             eofPosition = src.length;
@@ -102,7 +136,7 @@ public class PDFParser implements ObjectParser {
         src.pos += 10; // skip over "startxref" and first EOL char
         src.skipWS();
 
-        int xref_offset = COSNumber.readInteger(src);
+        long xref_offset = COSNumber.readLong(src);
 
         if ((xref_offset == 0) || (xref_offset >= src.length)) {
             throw new EParseError("Invalid xref offset");
@@ -136,174 +170,181 @@ public class PDFParser implements ObjectParser {
         parsingEvent.onDocumentVersionFound(majorVersion, minorVersion);
     }
 
+    /**
+     * Returns the cursor of the current thread. Cursors of all threads share the same source bytes,
+     * so objects may be retrieved from several threads at once.
+     */
+    private PDFRawData cursor() {
+        return cursors.get();
+    }
+
+    /**
+     * Drops cursors of the current thread
+     */
+    private void releaseCursors() {
+        cursors.remove();
+        lazyCursors.remove();
+        streamCursors.remove();
+    }
+
+    /**
+     * Returns the cursor of the current thread pointed to the source. Used to parse
+     * entries of lazily parsed dictionaries, see {@link ParserSettings#dictionaryParsing}.
+     * Caller detaches the cursor when done, see {@link PDFRawData#detach()}
+     */
+    public PDFRawData lazyCursor(RandomAccessSource source) {
+        PDFRawData res = lazyCursors.get();
+        res.setSource(source);
+        return res;
+    }
+
     @Override
-    public COSObject getObject(XRefEntry x) throws EParseError {
-        if (x.cachedObject != null) {
-            return x.cachedObject;
+    public COSObject getObject(int id) throws EParseError {
+        COSObject obj = xref.getCachedObject(id);
+        if (obj != null) {
+            return obj;
         }
 
-        int savedPos = pdfData.pos;
+        PDFRawData src = cursor();
+        boolean outermost = !src.isAttached(); // objects are retrieved recursively, e.g. /Length of a stream
+        if (outermost)
+            src.setSource(source);
+        long savedPos = src.pos;
         try {
-            if (!x.isCompressed) {
-                x.cachedObject = parseIndirectObject(x);
-                return x.cachedObject;
+            if (!xref.isCompressed(id)) {
+                return xref.publish(id, parseIndirectObject(src, id));
             }
 
             // -------- This is compressed object. Needed to do some actions
-            XRefEntry containerXRef = xref.get(x.containerObjId);
-            if (containerXRef == null) {
-                Diagnostics.debugMessage(settings, "No XRef entry for compressed stream %d 0 R referenced by %d %d R. Used COSNull instead", x.containerObjId, x.id, x.gen);
-                return new COSNull();
+            int containerId = xref.getContainerId(id);
+            if (!xref.contains(containerId)) {
+                Diagnostics.debugMessage(settings, "No XRef entry for compressed stream %d 0 R referenced by %d 0 R. Used COSNull instead", containerId, id);
+                return COSNull.NULL;
             }
-            if (containerXRef.isCompressed) {
-                throw new EParseError("Referenced container for compressed object should not be compressed itself (%d %d R)", containerXRef.id, containerXRef.gen);
+            if (xref.isCompressed(containerId)) {
+                throw new EParseError("Referenced container for compressed object should not be compressed itself (%d 0 R)", containerId);
             }
 
-            if (containerXRef.cachedObject == null) { // Extract compressed block (stream object)
-                containerXRef.cachedObject = parseIndirectObject(containerXRef);
-
-                if (!(containerXRef.cachedObject instanceof COSStream))
-                    throw new EParseError("Referenced object-container is not stream object (%d %d R)", containerXRef.id, containerXRef.gen);
+            COSObject container = xref.getCachedObject(containerId);
+            if (container == null) { // Extract compressed block (stream object)
+                container = xref.publish(containerId, parseIndirectObject(src, containerId));
             }
+            if (!(container instanceof COSStream))
+                throw new EParseError("Referenced object-container is not stream object (%d %d R)", containerId, xref.getGeneration(containerId));
 
             // -------- Now got compressed stream
-            // -------- decompress its data, and put in cache
-            COSStream streamObject = (COSStream) containerXRef.cachedObject;
-
-            if (containerXRef.decompressedStreamData == null) {
-                containerXRef.decompressedStreamData = StreamDecoder.decodeStream(streamObject.getData(), streamObject, this.settings);
+            // -------- decompress its data, parse header and put in cache
+            ObjectStream objectStream = xref.getObjectStream(containerId);
+            if (objectStream == null) {
+                COSStream streamObject = (COSStream) container;
+                // keyed by stream position, so decoding it again after eviction is not charged twice
+                PDFRawData decoded = StreamDecoder.decodeStream(streamObject.getData(), streamObject, this.settings, decodeBudget,
+                        streamObject.getRawOffset());
+                objectStream = new ObjectStream(new ArraySource(decoded.data, (int) decoded.length),
+                        streamObject.getInt(COSName.N, 0), streamObject.getInt(COSName.FIRST, 0));
+                objectStream = xref.putObjectStream(containerId, objectStream);
             }
-            PDFRawData streamData = containerXRef.decompressedStreamData;
-
-            // -------- Got decompressed data
-            // -------- Parse stream index & content
-            int n = streamObject.getInt(COSName.N, 0);
-            int first = streamObject.getInt(COSName.FIRST, 0);
-            int idxId, idxOffset, savepos;
-            XRefEntry idxXRefEntry;
-            COSObject result = null;
-            for (int i = 0; i < n; i++) { // Extract all objects within stream
-                idxId = streamData.fetchUInt();
-                idxOffset = streamData.fetchUInt();
-
-                // Update all corresponding entries in XRef table with decompressed objects
-                idxXRefEntry = xref.get(idxId);
-                if (idxXRefEntry == null)
-                    continue; // This object marked in XRef as unused. Skip it
-
-                if (!idxXRefEntry.isCompressed)
-                    throw new EParseError(String.format("Something wrong. Compressed object #%d marked as regular object in XRef", idxId));
-
-                savepos = streamData.pos;
-
-                streamData.pos = first + idxOffset;
-                idxXRefEntry.cachedObject = this.parseObject(streamData);
-                if (idxId == x.id)
-                    result = idxXRefEntry.cachedObject; // found it
-
-                streamData.pos = savepos;
+
+            // -------- Parse requested object only
+            int offset = objectStream.findOffset(id, xref.getIndexWithinContainer(id));
+            if (offset < 0) {
+                Diagnostics.debugMessage(settings, "Compressed object %d 0 R not found in object stream %d 0 R", id, containerId);
+                return null;
             }
 
-            return result;
+            // Decompressed data is shared, so every thread uses its own cursor over it.
+            // Compressed objects are never streams, so parsing them does not re-enter the cursor
+            PDFRawData streamData = objectStream.attach(streamCursors.get());
+            try {
+                streamData.pos = offset;
+                return xref.publish(id, this.parseObject(streamData));
+            } finally {
+                streamData.detach();
+            }
         } finally {
-            pdfData.pos = savedPos;
+            if (outermost)
+                src.detach();
+            else src.pos = savedPos;
         }
     }
 
-    private COSObject parseIndirectObject(XRefEntry xref) throws EParseError {
-        pdfData.pos = xref.fileOffset;
+    private COSObject parseIndirectObject(PDFRawData pdfData, int id) throws EParseError {
+        int gen = xref.getGeneration(id);
+        pdfData.pos = xref.getFileOffset(id);
         //----- Do extra checks
         if (!IdGenPair.tryReadId(pdfData, pdfData.tmpIdGenPair, Token.OBJ))
-            throw new EParseError(String.format("Invalid indirect object header (expected '%d %d obj' @ %d)", xref.id, xref.gen, pdfData.pos));
+            throw new EParseError(String.format("Invalid indirect object header (expected '%d %d obj' @ %d)", id, gen, pdfData.pos));
 
-        if ((pdfData.tmpIdGenPair.id != xref.id) || (pdfData.tmpIdGenPair.gen != xref.gen))
-            throw new EParseError(String.format("Object header not correspond data specified in reference (expected '%d %d obj' @ %d)", xref.id, xref.gen, pdfData.pos));
+        if ((pdfData.tmpIdGenPair.id != id) || (pdfData.tmpIdGenPair.gen != gen))
+            throw new EParseError(String.format("Object header not correspond data specified in reference (expected '%d %d obj' @ %d)", id, gen, pdfData.pos));
 
         //----- Parse object itself
         return this.parseObject(pdfData);
     }
 
+    /**
+     * Parses the value at the current position of the source into COS object.
+     * Tokens are read by {@link PDFTokenReader}, use it directly to scan values without materializing them.
+     */
     public COSObject parseObject(PDFRawData src) throws EParseError {
-        byte ch;
+        PDFTokenReader tokens = src.getTokenReader();
+
+        tokens.skipSpaces();
+        if (src.pos < src.length) {
+            byte ch = src.byteAt(src.pos);
+            // strings are decoded while scanning them
+            if ((ch == 0x28) || ((ch == 0x3C) && ((src.pos + 1 >= src.length) || (src.byteAt(src.pos + 1) != 0x3C))))
+                return new COSString(src, this);
+        }
 
-        while (true) {
-            // skip spaces if any
-            int dlen = src.length;
-            ch = src.data[src.pos];
-            while ((src.pos < dlen) && ((ch == 0x20) || (ch == 0x09) || (ch == 0x0A) || (ch == 0x0D))) {
-                src.pos++;
-                ch = src.data[src.pos];
-            }
-            //--------------
-            ch = src.data[src.pos];
-            switch (ch) {
-                case 0x25: // '%' - comment
-                    src.skipLine();
-                    break;
-                case 0x2F: // '/' - name
-                    return new COSName(src, this);
-                case 0x74: // 't' - true
-                    //assert(StrLComp(pCurr, 'true', 4) = 0, 'It is not a "true"');
-                    src.pos += 4;
-                    return new COSBool(true);
-                case 0x66: // 'f' - false
-                    // Assert(StrLComp(pCurr, 'false', 5) = 0, 'It is not a "false"');
-                    src.pos += 5;
-                    return new COSBool(false);
-                case 0x6E: // 'n' - null
-                    // Assert(StrLComp(pCurr, 'false', 5) = 0, 'It is not a "false"');
-                    src.pos += 4;
-                    return new COSNull();
-                case 0x28: // '(' - raw string
-                    return new COSString(src, this);
-                case 0x3C: // '<' - hexadecimal string
-                    if (src.data[src.pos + 1] == 0x3C) { // '<'
-                        COSDictionary dict = new COSDictionary(src, this);
-                        // check for stream object
-                        src.skipWS();
-                        if (!src.checkSignature(Token.STREAM))
-                            return dict; // this is COSDictionary only
-                        // this is stream object
-                        COSStream stm = new COSStream(dict, src, this.xref);
-                        dict.clear();
-                        return stm;
-                    }
-                    // this is only Hexadecimal string
-                    return new COSString(src, this);
-                case 0x5B: // '[' - array
-                    return new COSArray(src, this);
-
-                case 0x30:
-                case 0x31:
-                case 0x32:
-                case 0x33:
-                case 0x34: // 0..4
-                case 0x35:
-                case 0x36:
-                case 0x37:
-                case 0x38:
-                case 0x39: // 5..9
-                case 0x2B:
-                case 0x2D:
-                case 0x2E: // '+', '-', '.'
-                    if (IdGenPair.tryReadId(src, src.tmpIdGenPair, Token.R)) {
-                        // this is a valid reference
-                        return new COSReference(src.tmpIdGenPair);
+        switch (tokens.next()) {
+            case PDFTokenReader.NAME:
+                return COSName.valueOf(src, tokens.getStart(), tokens.getEnd());
+            case PDFTokenReader.INTEGER:
+                return COSNumber.valueOf(tokens.longValue());
+            case PDFTokenReader.REAL:
+                return new COSNumber(tokens.doubleValue());
+            case PDFTokenReader.REFERENCE:
+                return new COSReference(tokens.getReferenceId(), tokens.getReferenceGen());
+            case PDFTokenReader.BOOLEAN:
+                return COSBool.valueOf(tokens.booleanValue());
+            case PDFTokenReader.NULL:
+                return COSNull.NULL;
+            case PDFTokenReader.ARRAY_BEGIN:
+                src.pos = tokens.getStart();
+                return new COSArray(src, this);
+            case PDFTokenReader.DICT_BEGIN:
+                long dictStart = tokens.getStart();
+                if (settings.dictionaryParsing != DictionaryParsing.EAGER) {
+                    tokens.skipValue();
+                    src.skipWS();
+                    if (!src.checkSignature(Token.STREAM)) {
+                        return new COSDictionary(this, src.getSource(), dictStart,
+                                settings.dictionaryParsing == DictionaryParsing.LAZY_PER_KEY);
                     }
-
-                    return new COSNumber(src, this);
-                default:
-                    Diagnostics.debugMessage(settings, "Bytes before error occurs: %s", src.dbgPrintBytes());
-                    throw new EParseError("Unknown value token at %d", src.pos);
-            } // switch
-        } // while
+                }
+                src.pos = dictStart;
+                COSDictionary dict = new COSDictionary(src, this);
+                // check for stream object
+                src.skipWS();
+                if (!src.checkSignature(Token.STREAM))
+                    return dict; // this is COSDictionary only
+                // this is stream object
+                COSStream stm = new COSStream(dict, src, this.xref, settings, decodeBudget);
+                dict.clear();
+                return stm;
+            default:
+                src.pos = tokens.getStart();
+                Diagnostics.debugMessage(settings, "Bytes before error occurs: %s", src.dbgPrintBytes());
+                throw new EParseError("Unknown value token at %d", src.pos);
+        }
     }
 
     //  Read the cross reference table from a PDF file.  When this method
     //  is called, the file pointer must point to the start of the word
     //  "xref" in the file.
     private void parseTrailer(PDFRawData src) throws EParseError {
-        int prevOffset = src.pos;
+        long prevOffset = src.pos;
 
         while (prevOffset != 0) {
             src.pos = prevOffset;
@@ -321,11 +362,11 @@ public class PDFParser implements ObjectParser {
             src.skipWS();
 
             COSDictionary trailer = new COSDictionary(src, this);
-            prevOffset = trailer.getInt(COSName.PREV, 0);
+            prevOffset = trailer.getLong(COSName.PREV, 0);
             updateDocumentRoots(trailer);
 
             // Check for a hybrid PDF-file
-            int xrefstrm = trailer.getInt(COSName.XREFSTM, 0);
+            long xrefstrm = trailer.getLong(COSName.XREFSTM, 0);
             if (xrefstrm != 0) { // Yes, this is a hybrid
                 src.pos = xrefstrm;
                 parseXRefStream(src);
@@ -338,8 +379,9 @@ public class PDFParser implements ObjectParser {
         src.skipWS();
         int start;
         int count;
-        int n, p;
-        int obj_off;
+        int n;
+        long p;
+        long obj_off;
         int obj_gen;
         boolean obj_use;
 
@@ -351,32 +393,78 @@ public class PDFParser implements ObjectParser {
 
             if (start == 1) { // fix incorrect start number
                 p = src.pos;
-                obj_off = src.fetchUInt();
+                obj_off = src.fetchULong();
                 obj_gen = src.fetchUInt();
                 if (obj_off == 0 && obj_gen == 65535)
                     start--;
                 src.pos = p;
             }
 
+            // each entry takes 20 bytes, so damaged count can not make table larger than file
+            xref.ensureCapacity((int) Math.min(start + count, start + (src.length - src.pos) / 20));
+            if (decodeXRefSubsection(src, start, count))
+                count = 0; // entries are already added, skip the tolerant scanner
             for (n = 0; n < count; n++) {
-                obj_off = src.fetchUInt();
+                obj_off = src.fetchULong();
                 obj_gen = src.fetchUInt();
                 src.skipWS();
-                obj_use = (src.data[src.pos] == 0x6E);   // 'n'
+                obj_use = (src.byteAt(src.pos) == 0x6E);   // 'n'
                 src.pos++; // skip flag
                 if (!obj_use) continue;
 
                 xref.add(start + n, obj_gen, obj_off);
             }
             src.skipWS();
-            byte b = src.data[src.pos];
+            byte b = src.byteAt(src.pos);
             if ((b < 0x30) || (b > 0x39)) break; // not in [0..9] range
         }// while(1)...
     }
 
+    /**
+     * Fast path for well-formed subsections: entries are decoded by fixed-width arithmetic,
+     * large subsections on several threads (see {@link ParserSettings#xrefParallelThreshold}).
+     *
+     * @return false if subsection does not follow strict layout. Nothing is added to XRef table then
+     */
+    private boolean decodeXRefSubsection(PDFRawData src, int start, int count) {
+        long size = (long) count * XRefSectionDecoder.ENTRY_SIZE;
+        if ((count == 0) || (size > Integer.MAX_VALUE) || (src.pos + size > src.length))
+            return false;
+
+        XRefSectionDecoder decoder;
+        if (src.data != null)
+            decoder = new XRefSectionDecoder(src.data, (int) src.pos, count);
+        else decoder = new XRefSectionDecoder(src.getBytes(src.pos, (int) size), 0, count);
+
+        boolean decoded;
+        if ((settings.xrefParallelThreshold > 0) && (count >= settings.xrefParallelThreshold)) {
+            ForkJoinPool pool = settings.parserPool;
+            boolean ownPool = (pool == null);
+            if (ownPool)
+                pool = new ForkJoinPool();
+            try {
+                decoded = decoder.decode(pool);
+            } finally {
+                if (ownPool)
+                    pool.shutdown();
+            }
+        } else decoded = decoder.decode();
+
+        if (!decoded) {
+            Diagnostics.debugMessage(settings, "Malformed XRef subsection at %d, using tolerant scanner", src.pos);
+            return false;
+        }
+
+        for (int i = 0; i < count; i++)
+            if (decoder.offsets[i] >= 0)
+                xref.add(start + i, decoder.generations[i], decoder.offsets[i]);
+        src.pos += size;
+        return true;
+    }
+
     private void parseXRefStream(PDFRawData src) throws EParseError {
         COSDictionary curr_trailer;
-        int prev;
+        long prev;
         while (true) {
             src.skipWS();
 
@@ -395,64 +483,41 @@ public class PDFParser implements ObjectParser {
             COSArray oW = curr_trailer.getArray(COSName.W, null);
             if ((oW == null) || (oW.size() != 3))
                 throw new EParseError("Invalid PDF file");
-            int[] w = {oW.getInt(0), oW.getInt(1), oW.getInt(2)};
+            int[] w = oW.toIntArray();
 
             int size = curr_trailer.getUInt(COSName.SIZE, 0);
+            xref.ensureCapacity((int) Math.min(size, src.length)); // do not trust huge /Size of damaged files
             COSArray index = curr_trailer.getArray(COSName.INDEX, null);
             if (index == null) {
                 index = new COSArray();
-                index.add(new COSNumber(0));
-                index.add(new COSNumber(size));
+                index.add(COSNumber.valueOf(0));
+                index.add(COSNumber.valueOf(size));
             }
 
             PDFRawData bstream;
-            bstream = StreamDecoder.decodeStream(src, curr_trailer, this.settings);
+            bstream = StreamDecoder.decodeStream(src, curr_trailer, this.settings, decodeBudget);
 
-            int start;
-            int count;
+            XRefStreamDecoder decoder = new XRefStreamDecoder(xref, settings, w);
+            byte[] entries = (bstream.data != null) ? bstream.data : bstream.getBytes(0, (int) bstream.length);
+            int entriesPos = 0;
             int index_idx = 0;
 
-            int itype, i2, i3;
-
-            while (index_idx < index.size()) {
-                start = index.getInt(index_idx++);
-                count = index.getInt(index_idx++);
-
-                int i = 0;
-                while (i < count) {
-                    if (w[0] != 0) itype = bstream.fetchBinaryUInt(w[0]);
-                    else itype = 1; // default value (see specs)
-                    if (w[1] != 0) i2 = bstream.fetchBinaryUInt(w[1]);
-                    else i2 = 0;
-                    if (w[2] != 0) i3 = bstream.fetchBinaryUInt(w[2]);
-                    else i3 = 0;
-
-                    switch (itype) {
-                        case 0:  // linked list of free objects (corresponding to f entries in a cross-reference table).
-                            i++; //TODO: mark as free (delete if exist)
-                            continue;
-                        case 1: // objects that are in use but are not compressed (corresponding to n entries in a cross-reference table).
-                            xref.add((start + i), i3, i2);
-                            i++;
-                            continue;
-                        case 2: // compressed objects.
-                            xref.addCompressed(start + i, i2, i3);
-                            i++;
-                            continue;
-                        default:
-                            //throw new EParseError("Invalid iType entry in xref stream");
-                            Diagnostics.debugMessage(settings, "Invalid iType entry in xref stream: %d", itype);
-                            continue;
-                    }// switch
-                }// for
+            while (index_idx + 1 < index.size()) {
+                int start = index.getInt(index_idx++);
+                int count = index.getInt(index_idx++);
+                entriesPos = decoder.decode(entries, entriesPos, (int) bstream.length, start, count);
             } // while
 
-            prev = curr_trailer.getInt(COSName.PREV, 0);
+            prev = curr_trailer.getLong(COSName.PREV, 0);
             if (prev != 0) {
                 if ((prev < 0) || (prev > src.length))
                     throw new EParseError("Invalid trailer offset (%d)", prev);
                 src.pos = prev;
-                continue;
+                src.skipWS();
+                if (src.checkSignature(Token.XREF)) { // older revision has classic XRef table
+                    parseTrailer(src);
+                    break;
+                }
             } else break;
         } // while (true)
     }
@@ -503,10 +568,147 @@ public class PDFParser implements ObjectParser {
         return xref;
     }
 
-    public void parseAndDecodeAllObjects() {
-        for (int key : xref.getKeys()) {
-            XRefEntry entry = xref.get(key);
-            this.getObject(entry);
+    /**
+     * @return limits and the total of decoded stream data of the document
+     */
+    public DecodeBudget getDecodeBudget() {
+        return decodeBudget;
+    }
+
+    /**
+     * Parses all objects listed in XRef table in the order of their data in the file
+     * (see {@link XRefTable#getKeysByOffset()}) and passes them to the visitor.
+     * When {@link ParserSettings#readAheadSize} is set and the source supports it,
+     * read-ahead hints are sent ahead of the current position.
+     */
+    public void visitObjects(ObjectVisitor visitor) {
+        int[] keys = xref.getKeysByOffset();
+        RandomAccessSource source = pdfData.getSource();
+        ReadAheadSource readAhead = (settings.readAheadSize > 0) && (source instanceof ReadAheadSource) ?
+                (ReadAheadSource) source : null;
+        long hintedTo = -1;
+
+        for (int key : keys) {
+            if (readAhead != null) {
+                int dataId = xref.isCompressed(key) ? xref.getContainerId(key) : key;
+                long offset = xref.contains(dataId) ? xref.getFileOffset(dataId) : -1;
+                // Send next hint when half of the previous window is passed
+                if ((offset >= 0) && (offset >= hintedTo - settings.readAheadSize / 2)) {
+                    long from = Math.max(offset, hintedTo);
+                    readAhead.readAhead(from, offset + settings.readAheadSize - from);
+                    hintedTo = offset + settings.readAheadSize;
+                }
+            }
+            COSObject obj = this.getObject(key);
+            if (visitor != null)
+                visitor.visit(key, obj);
+        }
+    }
+
+    /**
+     * Parses all objects listed in XRef table. When {@link ParserSettings#parallelParsing} is set,
+     * regular objects and object streams are parsed as independent tasks on a fork-join pool.
+     * Both ways give the same objects. Objects are taken in file order, so the file is read forward.
+     */
+    public ParsingStatistics parseAndDecodeAllObjects() {
+        int[] keys = xref.getKeysByOffset();
+        long started = System.nanoTime();
+
+        if (!settings.parallelParsing) {
+            visitObjects(null);
+            long elapsed = System.nanoTime() - started;
+            return new ParsingStatistics(keys.length, 1, 1, elapsed, elapsed);
+        }
+
+        List<int[]> groups = groupObjects(keys);
+        ForkJoinPool pool = settings.parserPool;
+        boolean ownPool = (pool == null);
+        if (ownPool)
+            pool = new ForkJoinPool();
+        try {
+            long taskNanos = pool.invoke(new ParseTask(groups, 0, groups.size()));
+            return new ParsingStatistics(keys.length, groups.size(), pool.getParallelism(),
+                    System.nanoTime() - started, taskNanos);
+        } finally {
+            if (ownPool)
+                pool.shutdown();
+        }
+    }
+
+    /**
+     * Splits objects into independent groups: chunks of regular objects and
+     * one group per object stream (all objects stored in it are parsed at once).
+     * Keys are expected in file order, so objects of a stream come together
+     * and groups follow each other in the file
+     */
+    private List<int[]> groupObjects(int[] keys) {
+        List<int[]> groups = new ArrayList<int[]>();
+        List<Integer> regular = new ArrayList<Integer>();
+        List<Integer> compressed = new ArrayList<Integer>();
+        int containerId = -1;
+
+        for (int key : keys) {
+            if (!xref.isCompressed(key)) {
+                regular.add(key);
+                if (regular.size() == PARALLEL_CHUNK_SIZE) {
+                    groups.add(toIntArray(regular));
+                    regular.clear();
+                }
+                continue;
+            }
+            if ((xref.getContainerId(key) != containerId) && !compressed.isEmpty()) {
+                groups.add(toIntArray(compressed));
+                compressed.clear();
+            }
+            containerId = xref.getContainerId(key);
+            compressed.add(key);
+        }
+        if (!regular.isEmpty())
+            groups.add(toIntArray(regular));
+        if (!compressed.isEmpty())
+            groups.add(toIntArray(compressed));
+        return groups;
+    }
+
+    private static int[] toIntArray(List<Integer> list) {
+        int[] res = new int[list.size()];
+        for (int i = 0; i < res.length; i++)
+            res[i] = list.get(i);
+        return res;
+    }
+
+    private static final int PARALLEL_CHUNK_SIZE = 256;
+
+    private class ParseTask extends RecursiveTask<Long> {
+        private final List<int[]> groups;
+        private final int from, to;
+
+        ParseTask(List<int[]> groups, int from, int to) {
+            this.groups = groups;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                ParseTask left = new ParseTask(groups, from, mid);
+                left.fork();
+                long right = new ParseTask(groups, mid, to).compute();
+                return right + left.join();
+            }
+
+            long started = System.nanoTime();
+            try {
+                for (int i = from; i < to; i++) {
+                    for (int key : groups.get(i))
+                        getObject(key);
+                }
+            } finally {
+                releaseCursors(); // workers of the pool do not keep cursors of this parser
+            }
+            return System.nanoTime() - started;
         }
     }
 
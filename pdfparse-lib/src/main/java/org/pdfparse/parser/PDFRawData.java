@@ -21,19 +21,24 @@ package org.pdfparse.parser;
 
 import org.pdfparse.cos.IdGenPair;
 import org.pdfparse.exception.EParseError;
+import org.pdfparse.io.ArraySource;
+import org.pdfparse.io.RandomAccessSource;
 import org.pdfparse.utils.ByteBuffer;
 
-import java.util.Arrays;
-
 
 public final class PDFRawData {
+    // In-memory content. When it is null, all reads go through the 'source'
     public byte[] data;
-    public int pos;
-    public int length;
+    public long pos;
+    public long length;
+
+    private RandomAccessSource source;
+    private ArraySource arraySource; // wraps in-memory content, created once for getSource()
 
     // No needed to do it thread local, as PDFRawData is not thread-safe itself
     public IdGenPair tmpIdGenPair = new IdGenPair(0, 0);
     public ByteBuffer tmpBuffer = new ByteBuffer(1024);
+    private PDFTokenReader tokenReader;
 
     public PDFRawData() {
 
@@ -45,16 +50,96 @@ public final class PDFRawData {
         length = data.length;
     }
 
+    public PDFRawData(RandomAccessSource src) {
+        setSource(src);
+    }
+
+    /**
+     * Points this object to another source, so it may be reused instead of creating a new one
+     */
+    public final void setSource(RandomAccessSource src) {
+        if (src instanceof ArraySource) {
+            data = ((ArraySource) src).getArray();
+            source = null;
+            arraySource = (ArraySource) src;
+        } else {
+            data = null;
+            source = src;
+        }
+        pos = 0;
+        length = src.length();
+    }
+
     public final void fromByteBuffer(ByteBuffer bb) {
         data = bb.getBuffer();
+        source = null;
         pos = 0;
         length = bb.size();
     }
 
+    /**
+     * @return tokenizer, which reads from the current position of this object. Created once per object
+     */
+    public final PDFTokenReader getTokenReader() {
+        if (tokenReader == null)
+            tokenReader = new PDFTokenReader(this);
+        return tokenReader;
+    }
+
+    /**
+     * Returns underlying source of the bytes
+     */
+    /**
+     * Drops the reference to the source, so a cursor kept for reuse does not hold the document.
+     * {@link #setSource(RandomAccessSource)} attaches it again
+     */
+    public final void detach() {
+        data = null;
+        source = null;
+        arraySource = null;
+        pos = 0;
+        length = 0;
+    }
+
+    public final boolean isAttached() {
+        return (data != null) || (source != null);
+    }
+
+    public final RandomAccessSource getSource() {
+        if (data != null) {
+            ArraySource res = arraySource;
+            if ((res == null) || (res.getArray() != data) || (res.length() != length))
+                arraySource = res = new ArraySource(data, (int) length);
+            return res;
+        }
+        return source;
+    }
+
+    public final byte byteAt(long p) {
+        byte[] d = data;
+        if (d != null)
+            return d[(int) p];
+        return source.get(p);
+    }
+
+    public final void getBytes(long from, byte[] dst, int off, int len) {
+        if (data != null) {
+            System.arraycopy(data, (int) from, dst, off, len);
+            return;
+        }
+        source.get(from, dst, off, len);
+    }
+
+    public final byte[] getBytes(long from, int len) {
+        byte[] res = new byte[len];
+        getBytes(from, res, 0, len);
+        return res;
+    }
+
     public final void skipWS() {
         byte ch;
         while (pos < length) {
-            ch = data[pos];
+            ch = byteAt(pos);
             if ((ch != 0x20) && (ch != 0x09) && (ch != 0x0A) && (ch != 0x0D) && (ch != 0x00)) {
                 break;
             }
@@ -69,14 +154,14 @@ public final class PDFRawData {
     public final void skipLine() {
         int ch;
         while (pos < length) {
-            ch = data[pos];
+            ch = byteAt(pos);
             if ((ch == 10) || (ch == 13)) {
                 break;
             }
             pos++;
         }
         while (pos < length) {
-            ch = data[pos];
+            ch = byteAt(pos);
             if ((ch == 10) || (ch == 13)) {
                 pos++;
             } else {
@@ -93,10 +178,10 @@ public final class PDFRawData {
         StringBuilder sb = new StringBuilder();
 
         while (pos < length) {
-            char ch = (char) data[pos++];
+            char ch = (char) byteAt(pos++);
 
             if (ch == '\r') {
-                if (pos < length && ((char) data[pos] == '\n')) {
+                if (pos < length && ((char) byteAt(pos) == '\n')) {
                     pos++;
                 }
                 break;
@@ -112,10 +197,10 @@ public final class PDFRawData {
 
     public final void skipCRLForLF() throws EParseError {
         byte ch;
-        ch = data[pos];
+        ch = byteAt(pos);
         if (ch == 0x0D) {
             pos++;
-            if (data[pos] != 0x0A) {
+            if (byteAt(pos) != 0x0A) {
                 java.lang.System.out.println("Expected CRLF but got CR alone");
                 //throw new ParseError("Expected CRLF but got CR alone");
                 return;
@@ -132,11 +217,18 @@ public final class PDFRawData {
 
 
     public final int fetchUInt() throws EParseError {
-        int prev = pos;
-        int res = 0;
+        long res = fetchULong();
+        if (res > Integer.MAX_VALUE)
+            throw new EParseError("Number is out of integer range (%d)", res);
+        return (int) res;
+    }
+
+    public final long fetchULong() throws EParseError {
+        long prev = pos;
+        long res = 0;
         this.skipWS();
         while (pos < length) {
-            byte b = data[pos];
+            byte b = byteAt(pos);
             switch (b) {
                 case 0x30:
                 case 0x31:
@@ -153,21 +245,34 @@ public final class PDFRawData {
                     break;
                 default:
                     if (prev == pos) {
-                        throw new EParseError("Expected number, but got #" + Integer.toHexString(data[pos]));
+                        throw new EParseError("Expected number, but got #" + Integer.toHexString(byteAt(pos)));
                     }
                     return res;
             } // switch
         } // while
         if (prev == pos) {
-            throw new EParseError("Expected number, but got " + Integer.toHexString(data[pos]));
+            throw new EParseError("Expected number, but got " + Integer.toHexString(byteAt(pos)));
         }
         return res;
     }
 
     //public final byte getByte(int relOffs) {
-    //    return data[pos + relOffs];
+    //    return byteAt(pos + relOffs);
     //}
 
+    // high-order byte first.
+    public final long fetchBinaryULong(int size) throws EParseError {
+        if (size <= 4)
+            return fetchBinaryUInt(size) & 0xFFFFFFFFL;
+        if ((size > 8) || (pos + size > length))
+            throw new EParseError("Out of range");
+
+        long r = 0;
+        for (int i = 0; i < size; i++)
+            r = (r << 8) | (byteAt(pos++) & 0xFF);
+        return r;
+    }
+
     // high-order byte first.
     public final int fetchBinaryUInt(int size) throws EParseError {
         if ((size == 0) || (pos + size > length))
@@ -176,19 +281,19 @@ public final class PDFRawData {
         int r;
         int b;
 
-        b = data[pos++];
+        b = byteAt(pos++);
         r = (b & 0xFF);
         if (size == 1) return r;
 
-        b = data[pos++] & 0xFF;
+        b = byteAt(pos++) & 0xFF;
         r = (r << 8) | b;
         if (size == 2) return r;
 
-        b = data[pos++] & 0xFF;
+        b = byteAt(pos++) & 0xFF;
         r = (r << 8) | b;
         if (size == 3) return r;
 
-        b = data[pos++] & 0xFF;
+        b = byteAt(pos++) & 0xFF;
         r = (r << 8) | b;
         if (size == 4) return r;
 
@@ -198,31 +303,33 @@ public final class PDFRawData {
     }
 
     public final boolean checkSignature(byte[] sign) {
-        int _to = this.pos + sign.length;
+        long _to = this.pos + sign.length;
         if (_to > this.length) return false;
-        for (int i = this.pos, j = 0; i < _to; i++, j++)
-            if (this.data[i] != sign[j])
+        long i = this.pos;
+        for (int j = 0; i < _to; i++, j++)
+            if (byteAt(i) != sign[j])
                 return false;
         return true;
     }
 
-    public final boolean checkSignature(int from, byte[] sign) {
-        int _to = from + sign.length;
+    public final boolean checkSignature(long from, byte[] sign) {
+        long _to = from + sign.length;
         if (_to > this.length) return false;
-        for (int i = from, j = 0; i < _to; i++, j++)
-            if (this.data[i] != sign[j])
+        long i = from;
+        for (int j = 0; i < _to; i++, j++)
+            if (byteAt(i) != sign[j])
                 return false;
         return true;
     }
 
-    public final int reverseScan(int from, byte[] sign, int limit) {
+    public final long reverseScan(long from, byte[] sign, int limit) {
         pos = from - sign.length;
         if (pos < 0) {
             pos = 0;
             return -1;
         }
 
-        int scanto = pos - limit;
+        long scanto = pos - limit;
         if (scanto < 0) scanto = 0;
 
         boolean found;
@@ -230,7 +337,7 @@ public final class PDFRawData {
         while (pos >= scanto) {
             found = true;
             for (int i = 0; i < sign.length; i++)
-                if (this.data[pos + i] != sign[i]) {
+                if (byteAt(pos + i) != sign[i]) {
                     found = false;
                     break;
                 }
@@ -243,33 +350,42 @@ public final class PDFRawData {
     }
 
     public byte[] readStream(int stream_len, boolean movePosBeyoundEndObj) throws EParseError {
+        long start = skipStream(stream_len, movePosBeyoundEndObj);
+        return getBytes(start, stream_len);
+    }
+
+    /**
+     * Skips over the stream body without reading it.
+     *
+     * @return absolute position of the first byte of the stream body
+     */
+    public long skipStream(int stream_len, boolean movePosBeyoundEndObj) throws EParseError {
         skipWS();
         if (!checkSignature(Token.STREAM))
             throw new EParseError("'stream' keyword not found");
         pos += Token.STREAM.length;
         skipCRLForLF();
-        if (pos + stream_len > length)
+        if ((stream_len < 0) || (pos + stream_len > length))
             throw new EParseError("Unexpected end of file (stream object too large)");
 
-        // TODO: Lazy parse (reference + start + len)
-        byte[] res = Arrays.copyOfRange(data, pos, pos + stream_len);
+        long start = pos;
         pos += stream_len;
 
         if (movePosBeyoundEndObj) {
             byte firstbyte = Token.ENDOBJ[0];
-            int max_pos = length - Token.ENDOBJ.length;
+            long max_pos = length - Token.ENDOBJ.length;
             if (max_pos - pos > ParserSettings.MAX_SCAN_RANGE)
                 max_pos = pos + ParserSettings.MAX_SCAN_RANGE;
-            for (int i = pos; i < max_pos; i++)
-                if ((data[i] == firstbyte) && checkSignature(i, Token.ENDOBJ)) {
+            for (long i = pos; i < max_pos; i++)
+                if ((byteAt(i) == firstbyte) && checkSignature(i, Token.ENDOBJ)) {
                     pos = i + Token.ENDOBJ.length;
-                    return res;
+                    return start;
                 }
 
             throw new EParseError("'endobj' tag not found");
         }
 
-        return res;
+        return start;
     }
 
     @SuppressWarnings("StringConcatenationInLoop")
@@ -277,11 +393,9 @@ public final class PDFRawData {
         int len = 90;
 
         if (this.pos + len > this.length)
-            len = this.length - this.pos;
-
-        byte[] chunk = new byte[len];
+            len = (int) (this.length - this.pos);
 
-        System.arraycopy(data, pos, chunk, 0, len);
+        byte[] chunk = getBytes(pos, len);
         String s = "";
 
         for (byte aChunk : chunk)
@@ -299,14 +413,12 @@ public final class PDFRawData {
         int r = 30;
 
         if (this.pos + r > this.length)
-            r = this.length - this.pos;
+            r = (int) (this.length - this.pos);
         if (this.pos - l < 0)
-            l = this.pos;
+            l = (int) this.pos;
 
         int len = r + l;
-        byte[] chunk = new byte[len];
-
-        System.arraycopy(data, pos - l, chunk, 0, len);
+        byte[] chunk = getBytes(pos - l, len);
         String s = "";
 
         for (int i = 0; i < chunk.length; i++) {
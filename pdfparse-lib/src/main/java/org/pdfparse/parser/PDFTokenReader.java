@@ -0,0 +1,416 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse.parser;
+
+import org.pdfparse.cos.COSName;
+import org.pdfparse.cos.IdGenPair;
+import org.pdfparse.exception.EParseError;
+
+/**
+ * Pull tokenizer over {@link PDFRawData}. Tokens are not materialized as COS objects:
+ * reader returns token kind, the span of the token in the source and its primitive value.
+ * Nothing is allocated while reading, so it suits scanning tasks, which need only a few values.
+ * <p>
+ * Usage:
+ * <pre>
+ *     PDFTokenReader tokens = src.getTokenReader();
+ *     while (tokens.next() != PDFTokenReader.EOF) {
+ *         if (tokens.getKind() == PDFTokenReader.NAME &amp;&amp; tokens.nameEquals(COSName.TYPE)) ...
+ *     }
+ * </pre>
+ * Reader starts at the current position of the source and moves it past the returned token.
+ * Like {@link PDFRawData} itself, the reader is not thread-safe.
+ */
+public final class PDFTokenReader {
+    public static final int EOF = 0;
+    public static final int NAME = 1;         // /Name
+    public static final int INTEGER = 2;      // 123, -5
+    public static final int REAL = 3;         // 1.5, -.002
+    public static final int BOOLEAN = 4;      // true, false
+    public static final int NULL = 5;         // null
+    public static final int STRING = 6;       // (literal string)
+    public static final int HEX_STRING = 7;   // <48656C6C6F>
+    public static final int DICT_BEGIN = 8;   // <<
+    public static final int DICT_END = 9;     // >>
+    public static final int ARRAY_BEGIN = 10; // [
+    public static final int ARRAY_END = 11;   // ]
+    public static final int REFERENCE = 12;   // 12 0 R
+    public static final int KEYWORD = 13;     // obj, endobj, stream, and other bare words
+
+    private static final byte REGULAR = 0;
+    private static final byte WHITESPACE = 1;
+    private static final byte DELIMITER = 2;
+    private static final byte[] CHAR_CLASS = new byte[256];
+
+    private static final double[] POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+            1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18};
+
+    static {
+        for (int ch : new int[]{0x00, 0x09, 0x0A, 0x0C, 0x0D, 0x20})
+            CHAR_CLASS[ch] = WHITESPACE;
+        for (int ch : new int[]{'(', ')', '<', '>', '[', ']', '{', '}', '/', '%'})
+            CHAR_CLASS[ch] = DELIMITER;
+    }
+
+    private final PDFRawData src;
+
+    private int kind = EOF;
+    private long start;
+    private long end;
+    private long longValue;
+    private double doubleValue;
+    private boolean booleanValue;
+    private int referenceGen;
+
+    public PDFTokenReader(PDFRawData src) {
+        this.src = src;
+    }
+
+    public static boolean isWhitespace(int ch) {
+        return CHAR_CLASS[ch & 0xFF] == WHITESPACE;
+    }
+
+    /**
+     * @return true for whitespace and delimiters, i.e. characters which end a name, number or keyword
+     */
+    public static boolean isTokenEnd(int ch) {
+        return CHAR_CLASS[ch & 0xFF] != REGULAR;
+    }
+
+    /**
+     * Skips whitespace and comments
+     */
+    public void skipSpaces() {
+        long pos = src.pos;
+        long len = src.length;
+        while (pos < len) {
+            byte ch = src.byteAt(pos);
+            if (CHAR_CLASS[ch & 0xFF] == WHITESPACE) {
+                pos++;
+            } else if (ch == '%') {
+                while ((pos < len) && (src.byteAt(pos) != 0x0A) && (src.byteAt(pos) != 0x0D))
+                    pos++;
+            } else {
+                break;
+            }
+        }
+        src.pos = pos;
+    }
+
+    /**
+     * Reads the next token
+     *
+     * @return kind of the token, {@link #EOF} at the end of data
+     */
+    public int next() throws EParseError {
+        skipSpaces();
+
+        long pos = src.pos;
+        long len = src.length;
+        start = pos;
+        if (pos >= len) {
+            end = pos;
+            return kind = EOF;
+        }
+
+        byte ch = src.byteAt(pos);
+        switch (ch) {
+            case '/':
+                pos++;
+                while (pos < len) {
+                    byte b = src.byteAt(pos);
+                    if (CHAR_CLASS[b & 0xFF] != REGULAR)
+                        break;
+                    if ((b >= 0) && (b < 0x20))
+                        throw new EParseError("Illegal character in name token(2)");
+                    pos++;
+                }
+                return finish(NAME, pos);
+            case '(':
+                return finish(STRING, skipLiteralString(pos, len));
+            case '<':
+                if ((pos + 1 < len) && (src.byteAt(pos + 1) == '<'))
+                    return finish(DICT_BEGIN, pos + 2);
+                pos++;
+                while ((pos < len) && (src.byteAt(pos) != '>'))
+                    pos++;
+                if (pos == len)
+                    throw new EParseError("Unterminated hexadecimal string at %d", start);
+                return finish(HEX_STRING, pos + 1);
+            case '>':
+                if ((pos + 1 < len) && (src.byteAt(pos + 1) == '>'))
+                    return finish(DICT_END, pos + 2);
+                throw new EParseError("Unexpected '>' at %d", pos);
+            case '[':
+                return finish(ARRAY_BEGIN, pos + 1);
+            case ']':
+                return finish(ARRAY_END, pos + 1);
+            case '{':
+            case '}':
+                return finish(KEYWORD, pos + 1); // PostScript calculator function braces
+            case ')':
+                throw new EParseError("Unexpected ')' at %d", pos);
+            case '0':
+            case '1':
+            case '2':
+            case '3':
+            case '4':
+            case '5':
+            case '6':
+            case '7':
+            case '8':
+            case '9':
+                if (IdGenPair.tryReadId(src, src.tmpIdGenPair, Token.R)) {
+                    longValue = src.tmpIdGenPair.id;
+                    referenceGen = src.tmpIdGenPair.gen;
+                    end = src.pos;
+                    return kind = REFERENCE;
+                }
+                return readNumber(pos, len);
+            case '+':
+            case '-':
+            case '.':
+                return readNumber(pos, len);
+            default:
+                while ((pos < len) && (CHAR_CLASS[src.byteAt(pos) & 0xFF] == REGULAR))
+                    pos++;
+                if (keywordEquals(start, pos, "true")) {
+                    booleanValue = true;
+                    return finish(BOOLEAN, pos);
+                }
+                if (keywordEquals(start, pos, "false")) {
+                    booleanValue = false;
+                    return finish(BOOLEAN, pos);
+                }
+                if (keywordEquals(start, pos, "null"))
+                    return finish(NULL, pos);
+                return finish(KEYWORD, pos);
+        }
+    }
+
+    private int finish(int tokenKind, long tokenEnd) {
+        end = tokenEnd;
+        src.pos = tokenEnd;
+        return kind = tokenKind;
+    }
+
+    private boolean keywordEquals(long from, long to, String keyword) {
+        if (to - from != keyword.length())
+            return false;
+        for (int i = 0; i < keyword.length(); i++)
+            if (src.byteAt(from + i) != keyword.charAt(i))
+                return false;
+        return true;
+    }
+
+    private long skipLiteralString(long pos, long len) throws EParseError {
+        int nesting = 0;
+        while (pos < len) {
+            byte b = src.byteAt(pos++);
+            if (b == '\\') {
+                pos++; // escaped char
+            } else if (b == '(') {
+                nesting++;
+            } else if (b == ')') {
+                if (--nesting == 0)
+                    return pos;
+            }
+        }
+        throw new EParseError("Unterminated literal string at %d", start);
+    }
+
+    private int readNumber(long pos, long len) throws EParseError {
+        boolean negative = false;
+        boolean fractional = false;
+        long mantissa = 0;
+        int scale = 0;    // digits after the point
+        int exponent = 0; // integer digits, dropped because of overflow
+        boolean hasDigits = false;
+
+        byte ch = src.byteAt(pos);
+        if ((ch == '+') || (ch == '-')) {
+            negative = (ch == '-');
+            pos++;
+        }
+
+        for (; pos < len; pos++) {
+            ch = src.byteAt(pos);
+            if ((ch >= '0') && (ch <= '9')) {
+                hasDigits = true;
+                if (mantissa < 100000000000000000L) { // 17 digits are kept, a double has less
+                    mantissa = mantissa * 10 + (ch - '0');
+                    if (fractional)
+                        scale++;
+                } else if (!fractional) {
+                    exponent++;
+                }
+            } else if (ch == '.') {
+                if (fractional)
+                    throw new EParseError("'.' not allowed here (invalid number)");
+                fractional = true;
+            } else if ((ch == '+') || (ch == '-')) {
+                throw new EParseError("'%c' not allowed here (invalid number)", (char) ch);
+            } else if (CHAR_CLASS[ch & 0xFF] != REGULAR) {
+                break;
+            } else {
+                throw new EParseError("Number expected, got invalid value");
+            }
+        }
+        if (!hasDigits && !fractional)
+            throw new EParseError("Number expected, got no value");
+
+        if (negative)
+            mantissa = -mantissa;
+        if (!fractional && (exponent == 0)) {
+            longValue = mantissa;
+            doubleValue = mantissa;
+            return finish(INTEGER, pos);
+        }
+        if (exponent > 0)
+            doubleValue = mantissa * Math.pow(10, exponent);
+        else if (scale < POW10.length)
+            doubleValue = mantissa / POW10[scale];
+        else doubleValue = mantissa / Math.pow(10, scale); // leading zeros after the point are not limited
+        longValue = (long) doubleValue;
+        return finish(REAL, pos);
+    }
+
+    /**
+     * Skips the rest of the value, which starts with the current token. For {@link #DICT_BEGIN} and
+     * {@link #ARRAY_BEGIN} reader moves past the matching end bracket, for other tokens it does nothing.
+     * <p>
+     * Nested values are not tokenized: the scanner only matches brackets, skipping strings and comments,
+     * so it is much cheaper than reading the same value token by token.
+     */
+    public void skipValue() throws EParseError {
+        if ((kind != DICT_BEGIN) && (kind != ARRAY_BEGIN))
+            return;
+
+        long pos = end;
+        long len = src.length;
+        int depth = 1;
+        while (pos < len) {
+            byte ch = src.byteAt(pos);
+            switch (ch) {
+                case '(':
+                    pos = skipLiteralString(pos, len);
+                    break;
+                case '%':
+                    while ((pos < len) && (src.byteAt(pos) != 0x0A) && (src.byteAt(pos) != 0x0D))
+                        pos++;
+                    break;
+                case '<':
+                    if ((pos + 1 < len) && (src.byteAt(pos + 1) == '<')) {
+                        depth++;
+                        pos += 2;
+                        break;
+                    }
+                    while ((pos < len) && (src.byteAt(pos) != '>')) // hex string
+                        pos++;
+                    pos++;
+                    break;
+                case '>':
+                    if ((pos + 1 < len) && (src.byteAt(pos + 1) == '>')) {
+                        pos += 2;
+                        if (--depth == 0) {
+                            finish(DICT_END, pos);
+                            return;
+                        }
+                        break;
+                    }
+                    pos++;
+                    break;
+                case '[':
+                    depth++;
+                    pos++;
+                    break;
+                case ']':
+                    pos++;
+                    if (--depth == 0) {
+                        finish(ARRAY_END, pos);
+                        return;
+                    }
+                    break;
+                default:
+                    pos++;
+            }
+        }
+        throw new EParseError("Reach end of file while skipping value at %d", start);
+    }
+
+    /**
+     * @return kind of the last token
+     */
+    public int getKind() {
+        return kind;
+    }
+
+    /**
+     * @return offset of the first byte of the last token
+     */
+    public long getStart() {
+        return start;
+    }
+
+    /**
+     * @return offset after the last byte of the last token
+     */
+    public long getEnd() {
+        return end;
+    }
+
+    /**
+     * @return value of {@link #INTEGER} or {@link #REAL} token (truncated), or object id of {@link #REFERENCE}
+     */
+    public long longValue() {
+        return longValue;
+    }
+
+    public int intValue() {
+        return (int) longValue;
+    }
+
+    /**
+     * @return value of {@link #INTEGER} or {@link #REAL} token
+     */
+    public double doubleValue() {
+        return doubleValue;
+    }
+
+    public boolean booleanValue() {
+        return booleanValue;
+    }
+
+    public int getReferenceId() {
+        return (int) longValue;
+    }
+
+    public int getReferenceGen() {
+        return referenceGen;
+    }
+
+    /**
+     * Compares the last {@link #NAME} or {@link #KEYWORD} token with the name, without allocating it
+     */
+    public boolean nameEquals(COSName name) {
+        return ((kind == NAME) || (kind == KEYWORD)) && name.matches(src, start, end);
+    }
+}
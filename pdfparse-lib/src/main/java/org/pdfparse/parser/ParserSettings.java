@@ -1,5 +1,9 @@
 package org.pdfparse.parser;
 
+import org.pdfparse.filter.FilterRegistry;
+
+import java.util.concurrent.ForkJoinPool;
+
 public class ParserSettings {
     public static final boolean PRETTY_PRINT = true;
     public static final int MIN_PDF_RAW_CONTENT_LENGTH = 10;
@@ -15,6 +19,25 @@ public class ParserSettings {
     public int headerLookupRange = 100;
     public int eofLookupRange = 1024; // Same as Acrobat implementation
 
+    public boolean useMemoryMapping = false; // Map file into memory instead of reading it into the heap
+    public int blockSize = 64 * 1024; // Block size for channel input
+    public int blockCacheSize = 64;   // Max number of blocks kept in memory for channel input
+
+    public boolean parallelParsing = false; // Parse objects on several threads in PDFParser.parseAndDecodeAllObjects()
+    public int readAheadSize = 0;           // Read-ahead hint size (bytes) for offset-ordered traversal of ReadAheadSource, 0 - no hints
+    public ForkJoinPool parserPool = null;  // Pool for parallel parsing. If null, a temporary pool is created
+    public int xrefParallelThreshold = 64 * 1024; // Min number of entries in a classic XRef subsection to decode it on several threads, 0 - never
+
+    public ObjectCachePolicy objectCachePolicy = ObjectCachePolicy.UNBOUNDED; // How parsed objects are kept in memory
+    public int objectCacheSize = 10000;                // Max number of cached entries for LRU policy
+    public long objectCacheWeight = 64L * 1024 * 1024; // Max estimated size of cached entries (bytes) for WEIGHTED policy
+    public DictionaryParsing dictionaryParsing = DictionaryParsing.EAGER; // When entries of parsed dictionaries are parsed
+    public boolean swizzleReferences = false; // Dictionaries and arrays remember resolved references. Resolved objects are kept while their containers are alive, regardless of cache policy
+
+    public FilterRegistry filterRegistry = null; // Stream filters. If null, FilterRegistry.getDefault() is used
+    public long maxStreamDecodedSize = 0;   // Max decoded size of one stream (bytes), 0 - unlimited
+    public long maxDocumentDecodedSize = 0; // Max total decoded size of all document streams (bytes), 0 - unlimited
+
 
     public void setSyntaxComplianceChecks(boolean value) {
         ignoreSyntaxCompliance = !value;
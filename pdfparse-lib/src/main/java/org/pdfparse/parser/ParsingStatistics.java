@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse.parser;
+
+/**
+ * Result of {@link PDFParser#parseAndDecodeAllObjects()}.
+ * No sequential baseline is measured, so the statistics do not tell the speedup of parallel parsing.
+ */
+public class ParsingStatistics {
+    private final int objectsCount;
+    private final int tasksCount;
+    private final int parallelism;
+    private final long elapsedNanos;
+    private final long taskNanos;
+
+    public ParsingStatistics(int objectsCount, int tasksCount, int parallelism, long elapsedNanos, long taskNanos) {
+        this.objectsCount = objectsCount;
+        this.tasksCount = tasksCount;
+        this.parallelism = parallelism;
+        this.elapsedNanos = elapsedNanos;
+        this.taskNanos = taskNanos;
+    }
+
+    public int getObjectsCount() {
+        return objectsCount;
+    }
+
+    public int getTasksCount() {
+        return tasksCount;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getTaskNanos() {
+        return taskNanos;
+    }
+
+    /**
+     * Sum of time spent by all tasks divided by the elapsed (wall) time: average number of workers
+     * busy with parsing, 1.0 for the sequential walk. It is not a speedup: workers sharing one core
+     * are all counted as busy, so four workers on a single core give about 4.0 without any gain
+     */
+    public double getBusyRatio() {
+        if (elapsedNanos <= 0)
+            return 1.0;
+        return (double) taskNanos / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d objects, %d tasks, parallelism %d, %.2f ms elapsed, busy ratio %.2f",
+                objectsCount, tasksCount, parallelism, elapsedNanos / 1e6, getBusyRatio());
+    }
+}
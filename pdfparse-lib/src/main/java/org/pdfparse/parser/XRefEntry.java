@@ -22,19 +22,22 @@ package org.pdfparse.parser;
 import org.pdfparse.cos.COSObject;
 import org.pdfparse.exception.EParseError;
 
+/**
+ * Snapshot of a single XRef table entry. Entries are not stored in the table itself,
+ * they are created on request by {@link XRefTable#get(int)}
+ */
 public class XRefEntry {
     public int id;
     public int gen;
-    public int fileOffset;
+    public long fileOffset;
     public int containerObjId;
     public int indexWithinContainer;
 
     public boolean isCompressed;
 
     public COSObject cachedObject;
-    public PDFRawData decompressedStreamData;
 
-    XRefEntry(int id, int genOrId, int offsetOrIndex, boolean isCompressed) {
+    XRefEntry(int id, int genOrId, long offsetOrIndex, boolean isCompressed) {
         this.id = id;
         this.isCompressed = isCompressed;
 
@@ -45,7 +48,7 @@ public class XRefEntry {
             this.fileOffset = -1;
             this.gen = -1;
             this.containerObjId = genOrId;
-            this.indexWithinContainer = offsetOrIndex;
+            this.indexWithinContainer = (int) offsetOrIndex;
         } else {
             if (offsetOrIndex <= 0)
                 throw new EParseError("Negative or zero offset for object id=%d", id);
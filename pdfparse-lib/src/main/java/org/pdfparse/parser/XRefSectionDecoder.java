@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+package org.pdfparse.parser;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Fast path for subsections of classic XRef tables. Entries have fixed width (20 bytes),
+ * so they are decoded by offset arithmetic, and large subsections are split between threads.
+ * Any deviation from the strict layout fails decoding, so the caller can fall back to the tolerant scanner.
+ */
+final class XRefSectionDecoder {
+    static final int ENTRY_SIZE = 20;
+    private static final int CHUNK_SIZE = 16 * 1024; // entries per parallel task
+
+    private final byte[] data;
+    private final int base;
+
+    final long[] offsets;    // file offsets, -1 for free entries
+    final int[] generations;
+
+    /**
+     * @param data  buffer with entries
+     * @param base  position of the first entry in the buffer
+     * @param count number of entries
+     */
+    XRefSectionDecoder(byte[] data, int base, int count) {
+        this.data = data;
+        this.base = base;
+        this.offsets = new long[count];
+        this.generations = new int[count];
+    }
+
+    /**
+     * Decodes all entries on the calling thread
+     *
+     * @return false if layout is malformed
+     */
+    boolean decode() {
+        return decode(0, offsets.length);
+    }
+
+    /**
+     * Decodes entries on the pool, in chunks of {@link #CHUNK_SIZE}
+     *
+     * @return false if layout is malformed
+     */
+    boolean decode(ForkJoinPool pool) {
+        return pool.invoke(new DecodeTask(0, offsets.length));
+    }
+
+    /**
+     * Entry layout: "nnnnnnnnnn ggggg n\r\n", where EOL is one of " \r", " \n" or "\r\n"
+     */
+    private boolean decode(int from, int to) {
+        byte[] d = data;
+        for (int i = from, p = base + from * ENTRY_SIZE; i < to; i++, p += ENTRY_SIZE) {
+            long offset = 0;
+            for (int j = p; j < p + 10; j++) {
+                int digit = d[j] - '0';
+                if ((digit < 0) || (digit > 9))
+                    return false;
+                offset = offset * 10 + digit;
+            }
+            int gen = 0;
+            for (int j = p + 11; j < p + 16; j++) {
+                int digit = d[j] - '0';
+                if ((digit < 0) || (digit > 9))
+                    return false;
+                gen = gen * 10 + digit;
+            }
+            if ((d[p + 10] != ' ') || (d[p + 16] != ' ') || !isEOL(d[p + 18]) || !isEOL(d[p + 19]))
+                return false;
+
+            switch (d[p + 17]) {
+                case 'n':
+                    offsets[i] = offset;
+                    generations[i] = gen;
+                    break;
+                case 'f':
+                    offsets[i] = -1;
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isEOL(byte b) {
+        return (b == ' ') || (b == '\r') || (b == '\n');
+    }
+
+    private class DecodeTask extends RecursiveTask<Boolean> {
+        private final int from, to;
+
+        DecodeTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (to - from <= CHUNK_SIZE)
+                return decode(from, to);
+
+            int mid = (from + to) >>> 1;
+            DecodeTask left = new DecodeTask(from, mid);
+            left.fork();
+            boolean right = new DecodeTask(mid, to).compute();
+            return left.join() && right;
+        }
+    }
+}
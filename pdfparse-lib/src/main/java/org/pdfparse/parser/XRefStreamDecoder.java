@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+package org.pdfparse.parser;
+
+import org.pdfparse.exception.EParseError;
+
+/**
+ * Bulk decoder of XRef stream subsections. Common /W width tuples are decoded
+ * by specialized loops, other widths by the generic loop. Bounds are checked
+ * once per subsection, not per field.
+ */
+final class XRefStreamDecoder {
+    private final XRefTable xref;
+    private final ParserSettings settings;
+    private final int w0, w1, w2;
+    private final int entrySize;
+
+    XRefStreamDecoder(XRefTable xref, ParserSettings settings, int[] w) throws EParseError {
+        if ((w[0] < 0) || (w[0] > 4) || (w[1] < 0) || (w[1] > 8) || (w[2] < 0) || (w[2] > 4) || (w[0] + w[1] + w[2] == 0))
+            throw new EParseError("Invalid /W entry in xref stream [%d %d %d]", w[0], w[1], w[2]);
+        this.xref = xref;
+        this.settings = settings;
+        this.w0 = w[0];
+        this.w1 = w[1];
+        this.w2 = w[2];
+        this.entrySize = w0 + w1 + w2;
+    }
+
+    /**
+     * Decodes entries of a subsection and adds them to XRef table
+     *
+     * @param data  decoded stream data
+     * @param pos   position of the first entry in data
+     * @param limit end of data
+     * @return position after the last entry
+     */
+    int decode(byte[] data, int pos, int limit, int start, int count) throws EParseError {
+        if ((count < 0) || ((long) count * entrySize > limit - pos))
+            throw new EParseError("Out of range");
+
+        byte[] d = data;
+        int p = pos;
+        if ((w0 == 1) && (w1 == 2) && (w2 == 1)) {
+            for (int id = start; id < start + count; id++, p += 4)
+                store(id, d[p] & 0xFF,
+                        ((d[p + 1] & 0xFF) << 8) | (d[p + 2] & 0xFF),
+                        d[p + 3] & 0xFF);
+        } else if ((w0 == 1) && (w1 == 3) && (w2 == 1)) {
+            for (int id = start; id < start + count; id++, p += 5)
+                store(id, d[p] & 0xFF,
+                        ((d[p + 1] & 0xFF) << 16) | ((d[p + 2] & 0xFF) << 8) | (d[p + 3] & 0xFF),
+                        d[p + 4] & 0xFF);
+        } else if ((w0 == 1) && (w1 == 4) && (w2 == 2)) {
+            for (int id = start; id < start + count; id++, p += 7)
+                store(id, d[p] & 0xFF,
+                        ((d[p + 1] & 0xFFL) << 24) | ((d[p + 2] & 0xFF) << 16) | ((d[p + 3] & 0xFF) << 8) | (d[p + 4] & 0xFF),
+                        ((d[p + 5] & 0xFF) << 8) | (d[p + 6] & 0xFF));
+        } else {
+            for (int id = start; id < start + count; id++) {
+                int type = (w0 != 0) ? (int) read(d, p, w0) : 1; // default value (see specs)
+                p += w0;
+                long f2 = read(d, p, w1);
+                p += w1;
+                int f3 = (int) read(d, p, w2);
+                p += w2;
+                store(id, type, f2, f3);
+            }
+        }
+        return pos + count * entrySize;
+    }
+
+    // high-order byte first.
+    private static long read(byte[] d, int p, int width) {
+        long r = 0;
+        for (int i = p; i < p + width; i++)
+            r = (r << 8) | (d[i] & 0xFF);
+        return r;
+    }
+
+    private void store(int id, int type, long f2, int f3) throws EParseError {
+        switch (type) {
+            case 0: // linked list of free objects (corresponding to f entries in a cross-reference table).
+                xref.markFree(id, f3);
+                break;
+            case 1: // objects that are in use but are not compressed (corresponding to n entries in a cross-reference table).
+                xref.add(id, f3, f2);
+                break;
+            case 2: // compressed objects.
+                xref.addCompressed(id, (int) f2, f3);
+                break;
+            default: // references to the null object (see specs)
+                Diagnostics.debugMessage(settings, "Invalid iType entry in xref stream: %d", type);
+                break;
+        }
+    }
+}
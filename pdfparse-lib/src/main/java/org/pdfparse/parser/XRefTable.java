@@ -3,78 +3,345 @@ package org.pdfparse.parser;
 import org.pdfparse.cos.*;
 import org.pdfparse.exception.EGenericException;
 import org.pdfparse.exception.EParseError;
-import org.pdfparse.utils.IntObjHashtable;
 
+import java.util.Arrays;
+
+/**
+ * Cross-reference table. Object ids are almost dense (from 0 to trailer's /Size),
+ * so entries are kept in primitive arrays indexed by object id, instead of
+ * a separate XRefEntry instance for every object.
+ * <p>
+ * For regular objects the arrays hold file offset and generation number,
+ * for compressed objects - index within the container and container's object id.
+ * <p>
+ * Table is filled by a single thread during loading. Later, objects may be retrieved
+ * from several threads at once. Parsed objects are kept according to
+ * {@link ParserSettings#objectCachePolicy}.
+ */
 public class XRefTable implements ObjectRetriever {
-    private IntObjHashtable<XRefEntry> by_id;
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private static final byte FLAG_IN_USE = 1;
+    private static final byte FLAG_COMPRESSED = 2;
+    private static final byte FLAG_FREE = 4; // free in a newer revision, older entries for the id are ignored
+
+    private byte[] flags;
+    private long[] offsets;     // file offset, or index within container for compressed objects
+    private int[] generations;  // generation number, container id for compressed objects, or next generation for free ones
+    private ObjectCache cache; // parsed objects and decoded object streams, filled on first access
+
+    private int count;
+    private int[] keys; // ids of all used entries. Built on demand
+    private int[] keysByOffset; // same ids in file order. Built on demand
+
     private ParserSettings settings;
 
     private ObjectParser parser;
 
     public XRefTable(ParserSettings settings) {
-        by_id = new IntObjHashtable<XRefEntry>();
         this.settings = settings;
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    private void allocate(int capacity) {
+        flags = new byte[capacity];
+        offsets = new long[capacity];
+        generations = new int[capacity];
+        cache = ObjectCache.create(settings, capacity);
+        count = 0;
+        keys = null;
+        keysByOffset = null;
+    }
+
+    /**
+     * Pre-sizes the table to hold ids in range [0..size-1]. Usually called with trailer's /Size
+     */
+    public void ensureCapacity(int size) {
+        if (size <= flags.length)
+            return;
+
+        flags = Arrays.copyOf(flags, size);
+        offsets = Arrays.copyOf(offsets, size);
+        generations = Arrays.copyOf(generations, size);
+        cache.ensureCapacity(size);
+    }
+
+    private void grow(int id) {
+        if (id < 0)
+            throw new EParseError("Negative object id (%d) in XRef", id);
+        if (id >= flags.length)
+            ensureCapacity(Math.max(id + 1, flags.length * 2));
+    }
+
+    private void set(int id, byte flag, long offset, int generation) {
+        if ((flags[id] & FLAG_IN_USE) == 0) {
+            count++;
+            keys = null;
+        }
+        keysByOffset = null;
+        flags[id] = flag;
+        offsets[id] = offset;
+        generations[id] = generation;
+    }
+
+    public boolean contains(int id) {
+        return (id >= 0) && (id < flags.length) && ((flags[id] & FLAG_IN_USE) != 0);
+    }
+
+    public boolean isCompressed(int id) {
+        return contains(id) && (flags[id] & FLAG_COMPRESSED) != 0;
+    }
+
+    /**
+     * @return generation number of the object. Compressed objects always have zero generation
+     */
+    public int getGeneration(int id) {
+        return isCompressed(id) ? 0 : generations[id];
+    }
+
+    public long getFileOffset(int id) {
+        return isCompressed(id) ? -1 : offsets[id];
+    }
+
+    public int getContainerId(int id) {
+        return isCompressed(id) ? generations[id] : -1;
+    }
+
+    public int getIndexWithinContainer(int id) {
+        return isCompressed(id) ? (int) offsets[id] : -1;
+    }
+
+    /**
+     * @return parsed object, or null if the object was not parsed yet (or was evicted from cache)
+     */
+    public COSObject getCachedObject(int id) {
+        return contains(id) ? cache.get(id) : null;
+    }
+
+    /**
+     * Stores parsed object in the cache, unless another thread has already done it.
+     *
+     * @return the cached object. All threads get the same instance
+     */
+    COSObject publish(int id, COSObject obj) {
+        return cache.putIfAbsent(id, obj);
+    }
+
+    ObjectStream getObjectStream(int containerId) {
+        return cache.getObjectStream(containerId);
+    }
+
+    /**
+     * @return cached object stream. All threads get the same instance
+     */
+    ObjectStream putObjectStream(int containerId, ObjectStream objectStream) {
+        return cache.putObjectStream(containerId, objectStream);
+    }
+
+    /**
+     * @return number of objects and object streams evicted from cache.
+     * Always zero for {@link ObjectCachePolicy#UNBOUNDED} policy
+     */
+    public long getCacheEvictions() {
+        return cache.getEvictions();
     }
 
+    /**
+     * @return entry for the object id, or null if there is no such entry.
+     * Entry is a snapshot, created on each call
+     */
     public XRefEntry get(int id) {
-        return by_id.get(id);
+        if (!contains(id))
+            return null;
+
+        XRefEntry entry = new XRefEntry(id, generations[id], offsets[id], isCompressed(id));
+        entry.cachedObject = cache.get(id);
+        return entry;
+    }
+
+    /**
+     * @return number of used entries
+     */
+    public int size() {
+        return count;
     }
 
+    /**
+     * @return ids of all used entries in ascending order.
+     * The array is shared, it should not be modified
+     */
     public int[] getKeys() {
-        return by_id.getKeys();
+        int[] res = keys;
+        if (res != null)
+            return res;
+
+        res = new int[count];
+        int n = 0;
+        for (int id = 0; id < flags.length && n < count; id++)
+            if ((flags[id] & FLAG_IN_USE) != 0)
+                res[n++] = id;
+        keys = res;
+        return res;
     }
 
-    public void add(int id, int gen, int offs) throws EParseError {
+    /**
+     * Returns ids of all used entries in the order of their data in the file, so objects
+     * may be read in one forward pass. Regular objects are sorted by file offset. Compressed
+     * objects follow their object stream and are sorted by index within it. Objects
+     * in missing containers are placed at the end.
+     * The array is shared, it should not be modified
+     */
+    public int[] getKeysByOffset() {
+        int[] res = keysByOffset;
+        if (res != null)
+            return res;
+
+        int[] ids = getKeys();
+        res = ids.clone();
+        sortByOffset(ids, res, 0, res.length);
+        keysByOffset = res;
+        return res;
+    }
+
+    /**
+     * @return offset of the object data in the file. For compressed objects - offset of the container
+     */
+    private long dataOffset(int id) {
+        if ((flags[id] & FLAG_COMPRESSED) == 0)
+            return offsets[id];
+        int containerId = generations[id];
+        return contains(containerId) && !isCompressed(containerId) ? offsets[containerId] : Long.MAX_VALUE;
+    }
+
+    private int compareByOffset(int a, int b) {
+        long offsA = dataOffset(a);
+        long offsB = dataOffset(b);
+        if (offsA != offsB)
+            return (offsA < offsB) ? -1 : 1;
+        // container first, then its objects by index
+        long idxA = ((flags[a] & FLAG_COMPRESSED) != 0) ? offsets[a] : -1;
+        long idxB = ((flags[b] & FLAG_COMPRESSED) != 0) ? offsets[b] : -1;
+        if (idxA != idxB)
+            return (idxA < idxB) ? -1 : 1;
+        return (a < b) ? -1 : (a == b) ? 0 : 1;
+    }
+
+    /**
+     * Merge sort of dst[from..to), src holds the same values and is used as a buffer
+     */
+    private void sortByOffset(int[] src, int[] dst, int from, int to) {
+        if (to - from < 8) {
+            for (int i = from + 1; i < to; i++) {
+                int v = dst[i];
+                int j = i;
+                while ((j > from) && (compareByOffset(dst[j - 1], v) > 0)) {
+                    dst[j] = dst[j - 1];
+                    j--;
+                }
+                dst[j] = v;
+            }
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+        sortByOffset(dst, src, from, mid);
+        sortByOffset(dst, src, mid, to);
+        for (int i = from, p = from, q = mid; i < to; i++) {
+            if ((q >= to) || ((p < mid) && (compareByOffset(src[p], src[q]) <= 0)))
+                dst[i] = src[p++];
+            else dst[i] = src[q++];
+        }
+    }
+
+    public void add(int id, int gen, long offs) throws EParseError {
         // Skip invalid or not-used objects (assumed that they are free objects)
         if (offs == 0) {
             Diagnostics.debugMessage(settings, "XREF: Got object with zero offset. Assumed that this was a free object(%d %d R)", id, gen);
             return;
         }
+        if (offs < 0)
+            throw new EParseError("Negative or zero offset for object id=%d", id);
 
-        XRefEntry xref = new XRefEntry(id, gen, offs, false);
-        XRefEntry old_obj = by_id.get(id);
-
-        if (old_obj == null) {
-            by_id.put(id, xref);
-        } else if (old_obj.gen < gen) {
-            // override only if greater Generation
-            by_id.put(id, xref);
-        }
+        grow(id);
+        if (flags[id] == FLAG_FREE) {
+            // object was deleted in a newer revision, unless it was reused with this generation
+            if (gen < generations[id])
+                return;
+        } else if (contains(id) && (getGeneration(id) >= gen))
+            return; // entry of a newer section is overridden only by greater generation, whatever its type
+        set(id, FLAG_IN_USE, offs, gen);
     }
 
     public void addCompressed(int id, int containerId, int indexWithinContainer) throws EParseError {
         // Skip invalid or not-used objects (assumed that they are free objects)
         if (containerId > 0) {
-            XRefEntry xref = new XRefEntry(id, containerId, indexWithinContainer, true);
-            by_id.put(id, xref);
+            if (indexWithinContainer < 0)
+                throw new EParseError(String.format("Negative indexWithinContainer for compressed object id=%d in stream #%d", id, containerId));
+
+            grow(id);
+            if (flags[id] == FLAG_FREE) // object was deleted in a newer revision
+                return;
+            if (contains(id)) // compressed objects have zero generation, entry of a newer section is kept
+                return;
+            set(id, (byte) (FLAG_IN_USE | FLAG_COMPRESSED), indexWithinContainer, containerId);
         } else {
             Diagnostics.debugMessage(settings, "XREF: Got containerId which is zero. Assumed that this was a free object (%d 0 R)", id);
         }
     }
 
+    /**
+     * Marks free entry (type 0 entry of XRef stream). Sections are read from the newest to
+     * the oldest, so the entry only hides entries of older sections for the same id;
+     * entries which are already in the table are kept
+     *
+     * @param nextGen generation number to be used if the object is reused
+     */
+    public void markFree(int id, int nextGen) throws EParseError {
+        grow(id);
+        if (flags[id] != 0)
+            return;
+        flags[id] = FLAG_FREE;
+        generations[id] = nextGen;
+    }
+
+    /**
+     * @return true if the id was marked free and no object uses it
+     */
+    public boolean isFree(int id) {
+        return (id >= 0) && (id < flags.length) && (flags[id] == FLAG_FREE);
+    }
+
     public void setParser(ObjectParser parser) {
         this.parser = parser;
     }
 
+    /**
+     * Returns parsed object for the reference. Objects are parsed on first access
+     * and cached. Safe to call from several threads after the document is loaded;
+     * all of them receive the same instance. With bounded cache policy
+     * an evicted object is parsed again, so a new instance is returned.
+     */
     @Override
     public COSObject getObject(COSReference ref) {
-        XRefEntry x = this.get(ref.id);
+        int id = ref.id;
 
-        if (x == null) {
+        if (!contains(id)) {
             Diagnostics.debugMessage(settings, "No XRef entry for object %d %d R. Used COSNull instead", ref.id, ref.gen);
-            return new COSNull();
+            return COSNull.NULL;
         }
 
-        if (x.gen != ref.gen) {
-            Diagnostics.debugMessage(settings, "Object %s not found. But there is object with %d generation number", ref, x.gen);
+        int gen = getGeneration(id);
+        if (gen != ref.gen) {
+            Diagnostics.debugMessage(settings, "Object %s not found. But there is object with %d generation number", ref, gen);
         }
 
-        if (x.cachedObject != null) {
-            return x.cachedObject;
+        COSObject obj = cache.get(id);
+        if (obj != null) {
+            return obj;
         }
 
         if (parser != null) {
-            return parser.getObject(x);
+            return parser.getObject(id);
         }
 
         throw new EGenericException("Trying to access %s. Object is not loaded/parsed yet", ref);
@@ -98,8 +365,13 @@ public class XRefTable implements ObjectRetriever {
         throw new EParseError("Stream expected for %s. But retrieved object is %s", ref, obj.getClass().getName());
     }
 
+    @Override
+    public boolean swizzleReferences() {
+        return settings.swizzleReferences;
+    }
+
     public void clear() {
-        by_id.clear();
+        allocate(DEFAULT_CAPACITY);
     }
 
 }
@@ -0,0 +1,162 @@
+package org.pdfparse;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pdfparse.cos.COSDictionary;
+import org.pdfparse.cos.COSName;
+import org.pdfparse.cos.COSObject;
+import org.pdfparse.cos.COSReference;
+import org.pdfparse.io.ArraySource;
+import org.pdfparse.parser.DictionaryParsing;
+import org.pdfparse.parser.ParserSettings;
+import org.pdfparse.parser.ParsingStatistics;
+import org.pdfparse.parser.XRefTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class ConcurrentAccessTest extends Assert {
+    private static final int THREADS = 8;
+
+    @Test
+    public void checkConcurrentObjectRetrieval() throws Exception {
+        checkConcurrentRetrieval("/Creativecommons-what-is-creative-commons_eng.pdf");
+    }
+
+    @Test
+    public void checkConcurrentCompressedObjectRetrieval() throws Exception {
+        checkConcurrentRetrieval("/loremipsum2.pdf"); // uses object streams
+    }
+
+    @Test
+    public void checkParallelParseMatchesSequential() throws Exception {
+        for (String name : new String[]{"/Creativecommons-what-is-creative-commons_eng.pdf", "/loremipsum2.pdf"}) {
+            File file = new File(this.getClass().getResource(name).toURI());
+
+            PDFFile sequential = new PDFFile(new ParserSettings());
+            sequential.open(file);
+            ParsingStatistics seqStats = sequential.parseEverything();
+
+            ParserSettings settings = new ParserSettings();
+            settings.parallelParsing = true;
+            settings.parserPool = new ForkJoinPool(4);
+            PDFFile parallel = new PDFFile(settings);
+            parallel.open(file);
+            ParsingStatistics parStats = parallel.parseEverything();
+            settings.parserPool.shutdown();
+
+            assertEquals(seqStats.getObjectsCount(), parStats.getObjectsCount());
+            assertEquals(4, parStats.getParallelism());
+            assertTrue(parStats.getBusyRatio() > 0);
+
+            XRefTable seqXRef = sequential.getXRef();
+            XRefTable parXRef = parallel.getXRef();
+            assertArrayEquals(seqXRef.getKeys(), parXRef.getKeys());
+            for (int key : seqXRef.getKeys()) {
+                COSObject expected = seqXRef.getCachedObject(key);
+                COSObject actual = parXRef.getCachedObject(key);
+                assertNotNull(actual);
+                assertArrayEquals("Object " + key, produce(expected), produce(actual));
+            }
+        }
+    }
+
+    @Test
+    public void checkThreadsDoNotHoldDocument() throws Exception {
+        final File file = new File(this.getClass().getResource("/loremipsum2.pdf").toURI());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            for (final boolean parallel : new boolean[]{false, true}) {
+                final ForkJoinPool parserPool = parallel ? pool : null;
+                // the document is opened and walked on long-lived threads, then dropped
+                final WeakReference<byte[]> data = executor.submit(new Callable<WeakReference<byte[]>>() {
+                    @Override
+                    public WeakReference<byte[]> call() throws Exception {
+                        byte[] bytes = Files.readAllBytes(file.toPath());
+                        ParserSettings settings = new ParserSettings();
+                        settings.dictionaryParsing = DictionaryParsing.LAZY_PER_KEY;
+                        settings.parallelParsing = parallel;
+                        settings.parserPool = parserPool;
+                        PDFFile pp = new PDFFile(settings);
+                        pp.open(new ArraySource(bytes));
+                        XRefTable xref = pp.getXRef();
+                        for (int key : xref.getKeys()) {
+                            COSObject obj = xref.getObject(new COSReference(key, xref.getGeneration(key)));
+                            if (obj instanceof COSDictionary)
+                                ((COSDictionary) obj).get(COSName.TYPE);
+                        }
+                        pp.parseEverything();
+                        return new WeakReference<byte[]>(bytes);
+                    }
+                }).get();
+
+                for (int i = 0; (i < 20) && (data.get() != null); i++) {
+                    System.gc();
+                    Thread.sleep(10);
+                }
+                assertNull("Document is held by parser threads", data.get());
+            }
+        } finally {
+            executor.shutdown();
+            pool.shutdown();
+        }
+    }
+
+    private static byte[] produce(COSObject obj) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        obj.produce(out, null);
+        return out.toByteArray();
+    }
+
+    private void checkConcurrentRetrieval(String name) throws Exception {
+        File file = new File(this.getClass().getResource(name).toURI());
+        PDFFile pp = new PDFFile(file);
+        final XRefTable xref = pp.getXRef();
+        final int[] keys = xref.getKeys();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<COSObject[]>> futures = new ArrayList<Future<COSObject[]>>();
+            for (int t = 0; t < THREADS; t++) {
+                final int shift = t;
+                futures.add(executor.submit(new Callable<COSObject[]>() {
+                    @Override
+                    public COSObject[] call() throws Exception {
+                        COSObject[] res = new COSObject[keys.length];
+                        start.await();
+                        for (int i = 0; i < keys.length; i++) {
+                            int k = (i + shift * 7) % keys.length; // every thread walks in a different order
+                            res[k] = xref.getObject(new COSReference(keys[k], xref.getGeneration(keys[k])));
+                        }
+                        return res;
+                    }
+                }));
+            }
+            start.countDown();
+
+            COSObject[] expected = futures.get(0).get();
+            for (Future<COSObject[]> f : futures) {
+                COSObject[] actual = f.get();
+                for (int i = 0; i < keys.length; i++) {
+                    assertNotNull(actual[i]);
+                    assertSame("Object " + keys[i], expected[i], actual[i]);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+package org.pdfparse;
+
+import org.pdfparse.filter.ASCII85InputStream;
+import org.pdfparse.filter.ASCIIHexInputStream;
+import org.pdfparse.filter.LZWDecoder;
+import org.pdfparse.filter.RunLengthInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Throughput of stream decoders. Not a part of unit tests, run it manually
+ */
+public class DecodeBenchmark {
+    private static final int STREAMING = 0, IN_MEMORY = 1;
+
+    private static byte[] decode(int filter, int mode, byte[] encoded) throws IOException {
+        InputStream in = new ByteArrayInputStream(encoded);
+        switch (filter) {
+            case 0:
+                return (mode == STREAMING) ? TestStreamDecoder.readAll(new ASCII85InputStream(in))
+                        : TestStreamDecoder.bytes(ASCII85InputStream.decode(encoded, 0, encoded.length));
+            case 1:
+                return (mode == STREAMING) ? TestStreamDecoder.readAll(new ASCIIHexInputStream(in))
+                        : TestStreamDecoder.bytes(ASCIIHexInputStream.decode(encoded, 0, encoded.length));
+            default:
+                return (mode == STREAMING) ? TestStreamDecoder.readAll(new RunLengthInputStream(in))
+                        : TestStreamDecoder.bytes(RunLengthInputStream.decode(encoded, 0, encoded.length));
+        }
+    }
+
+    private static void filters() throws IOException {
+        byte[] data = TestStreamDecoder.sample(2 * 1024 * 1024, 42);
+        byte[][] encoded = {TestStreamDecoder.encodeASCII85(data), TestStreamDecoder.encodeHex(data), TestStreamDecoder.encodeRunLength(data)};
+        String[] names = {"ASCII85", "ASCIIHex", "RunLength"};
+
+        for (int filter = 0; filter < encoded.length; filter++) {
+            long[] nanos = new long[2];
+            for (int mode = STREAMING; mode <= IN_MEMORY; mode++) {
+                for (int i = 0; i < 3; i++) // warm up
+                    if (!Arrays.equals(data, decode(filter, mode, encoded[filter])))
+                        throw new IllegalStateException(names[filter] + ": wrong output");
+
+                int rounds = 5;
+                long t0 = System.nanoTime();
+                for (int i = 0; i < rounds; i++)
+                    decode(filter, mode, encoded[filter]);
+                nanos[mode] = (System.nanoTime() - t0) / rounds;
+            }
+
+            double mb = encoded[filter].length / (1024.0 * 1024.0);
+            System.out.println(String.format("%s decode: streaming %.1f MB/s, in-memory %.1f MB/s",
+                    names[filter], mb / (nanos[STREAMING] / 1e9), mb / (nanos[IN_MEMORY] / 1e9)));
+        }
+    }
+
+    private static void lzw() {
+        byte[] data = TestLZWDecoder.sample(4 * 1024 * 1024, 42);
+        byte[] encoded = TestLZWDecoder.encode(data);
+        for (int i = 0; i < 3; i++) // warm up
+            if (!Arrays.equals(data, new LZWDecoder().decode(encoded)))
+                throw new IllegalStateException("LZW: wrong output");
+
+        int rounds = 5;
+        long t0 = System.nanoTime();
+        for (int i = 0; i < rounds; i++)
+            new LZWDecoder().decode(encoded);
+        long nanos = (System.nanoTime() - t0) / rounds;
+        System.out.println(String.format("LZW decode: %.1f MB/s", data.length / (1024.0 * 1024.0) / (nanos / 1e9)));
+    }
+
+    public static void main(String[] args) throws IOException {
+        filters();
+        lzw();
+    }
+}
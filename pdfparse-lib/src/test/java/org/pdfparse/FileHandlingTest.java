@@ -3,10 +3,15 @@ package org.pdfparse;
 import org.junit.Assert;
 import org.junit.Test;
 import org.pdfparse.exception.EParseError;
+import org.pdfparse.io.BlockCachedSource;
+import org.pdfparse.io.MappedFileSource;
+import org.pdfparse.model.PDFDocument;
+import org.pdfparse.parser.ParserSettings;
 
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.net.URI;
 import java.net.URISyntaxException;
 
@@ -70,4 +75,101 @@ public class FileHandlingTest extends Assert {
             pp.parseEverything();
         }
     }
+
+    @Test
+    public void checkMemoryMappedParse() throws EParseError, IOException, URISyntaxException {
+        String[] files = new String[] {
+                "/24c16.pdf",
+                "/vrml.pdf",
+                "/loremipsum2.pdf",
+                "/6licenses-flat.pdf"
+        };
+
+        ParserSettings settings = new ParserSettings();
+        settings.useMemoryMapping = true;
+
+        for (String filename : files) {
+            File file = new File(this.getClass().getResource(filename).toURI());
+
+            PDFDocument expected = new PDFFile(file).getDocument();
+
+            PDFFile pp = new PDFFile(settings);
+            PDFDocument doc = pp.open(file);
+
+            assertEquals(filename, expected.getInfo().getTitle(), doc.getInfo().getTitle());
+            assertEquals(filename, expected.getInfo().getProducer(), doc.getInfo().getProducer());
+            assertEquals(filename, expected.getCatalog().getPagesCount(), doc.getCatalog().getPagesCount());
+            pp.parseEverything();
+        }
+    }
+
+    @Test
+    public void checkSegmentedMappedParse() throws EParseError, IOException, URISyntaxException {
+        String[] files = new String[] {
+                "/24c16.pdf",
+                "/loremipsum2.pdf",
+                "/6licenses-flat.pdf"
+        };
+
+        for (String filename : files) {
+            File file = new File(this.getClass().getResource(filename).toURI());
+
+            PDFDocument expected = new PDFFile(file).getDocument();
+
+            // Use tiny segments, so objects and streams cross segment boundaries
+            PDFFile pp = new PDFFile();
+            PDFDocument doc = pp.open(new MappedFileSource(file, 12));
+
+            assertEquals(filename, expected.getInfo().getTitle(), doc.getInfo().getTitle());
+            assertEquals(filename, expected.getCatalog().getPagesCount(), doc.getCatalog().getPagesCount());
+            pp.parseEverything();
+        }
+    }
+
+    @Test
+    public void checkBlockCachedParse() throws EParseError, IOException, URISyntaxException {
+        File file = new File(this.getClass().getResource("/vrml.pdf").toURI());
+        PDFDocument expected = new PDFFile(file).getDocument();
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            BlockCachedSource source = new BlockCachedSource(raf.getChannel(), 1024, 8);
+            PDFFile pp = new PDFFile();
+            PDFDocument doc = pp.open(source);
+
+            assertEquals(expected.getInfo().getTitle(), doc.getInfo().getTitle());
+            assertEquals(expected.getCatalog().getPagesCount(), doc.getCatalog().getPagesCount());
+
+            // Only header, trailer and a few objects should be touched
+            long totalBlocks = (file.length() + 1023) / 1024;
+            assertTrue("Too many blocks read: " + source.getBlocksRead(), source.getBlocksRead() < totalBlocks / 2);
+
+            pp.parseEverything();
+        } finally {
+            raf.close();
+        }
+    }
+
+    @Test
+    public void checkReadAheadParse() throws EParseError, IOException, URISyntaxException {
+        File file = new File(this.getClass().getResource("/vrml.pdf").toURI());
+        long totalBlocks = (file.length() + 1023) / 1024;
+
+        ParserSettings settings = new ParserSettings();
+        settings.readAheadSize = 8 * 1024;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            BlockCachedSource source = new BlockCachedSource(raf.getChannel(), 1024, 32);
+            PDFFile pp = new PDFFile(settings);
+            pp.open(source);
+            long opened = source.getBlocksRead();
+            pp.parseEverything();
+
+            // Objects are parsed in file order, so every block is read about once
+            long read = source.getBlocksRead() - opened;
+            assertTrue("Too many blocks read: " + read, read <= totalBlocks);
+        } finally {
+            raf.close();
+        }
+    }
 }
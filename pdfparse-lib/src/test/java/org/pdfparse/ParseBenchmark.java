@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+
+package org.pdfparse;
+
+import org.pdfparse.cos.COSDictionary;
+import org.pdfparse.cos.COSName;
+import org.pdfparse.cos.COSObject;
+import org.pdfparse.cos.COSReference;
+import org.pdfparse.io.ArraySource;
+import org.pdfparse.io.BlockCachedSource;
+import org.pdfparse.model.PDFDocInfo;
+import org.pdfparse.model.PDFDocument;
+import org.pdfparse.parser.DictionaryParsing;
+import org.pdfparse.parser.ParserSettings;
+import org.pdfparse.parser.XRefTable;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+
+/**
+ * Time to open and walk large documents, and other parsing metrics. Not a part of unit tests, run it manually
+ */
+public class ParseBenchmark {
+
+    private static void lazyParsing() throws Exception {
+        byte[] data = TestCOSDictionary.buildDocument(50000);
+        DictionaryParsing[] modes = DictionaryParsing.values();
+        long[][] best = new long[modes.length][3]; // open, page count and info, walk
+
+        for (int round = 0; round < 5; round++) {
+            for (int m = 0; m < modes.length; m++) {
+                ParserSettings settings = new ParserSettings();
+                settings.dictionaryParsing = modes[m];
+
+                long started = System.nanoTime();
+                PDFFile pp = new PDFFile(settings);
+                PDFDocument doc = pp.open(new ArraySource(data));
+                long opened = System.nanoTime();
+                int pagesCount = doc.getCatalog().getPagesCount();
+                PDFDocInfo info = doc.getInfo();
+                info.getTitle();
+                info.getAuthor();
+                info.getProducer();
+                info.getCreationDate();
+                long answered = System.nanoTime();
+
+                // full object walk, which inspects one key of each object
+                XRefTable xref = pp.getXRef();
+                int typed = 0;
+                for (int id : xref.getKeys()) {
+                    COSObject obj = xref.getObject(new COSReference(id, 0));
+                    if ((obj instanceof COSDictionary) && ((COSDictionary) obj).containsKey(COSName.TYPE))
+                        typed++;
+                }
+                long walked = System.nanoTime();
+
+                if ((pagesCount != 50000) || (typed != 50002))
+                    throw new IllegalStateException(modes[m] + ": wrong document");
+
+                long[] times = {opened - started, answered - opened, walked - answered};
+                for (int i = 0; i < times.length; i++)
+                    if ((round == 0) || (times[i] < best[m][i]))
+                        best[m][i] = times[i];
+            }
+        }
+
+        for (int m = 0; m < modes.length; m++)
+            System.out.println(String.format("%-12s open: %6.2f ms, page count and info: %6.2f ms, walk of 50003 objects: %7.2f ms",
+                    modes[m], best[m][0] / 1e6, best[m][1] / 1e6, best[m][2] / 1e6));
+    }
+
+    private static void classicXRef() throws Exception {
+        int objects = 600000;
+        byte[] tolerant = TestXRefTable.buildDocument(objects, "\n", -1);
+        byte[] strict = TestXRefTable.buildDocument(objects, " \n", -1);
+        byte[][] documents = {tolerant, strict, strict};
+        int[] thresholds = {0, 0, 1024};
+        String[] names = {"tolerant scanner", "fast path", "fast path, parallel"};
+        long[] best = new long[documents.length];
+
+        for (int round = 0; round < 5; round++) {
+            for (int m = 0; m < documents.length; m++) {
+                long started = System.nanoTime();
+                XRefTable xref = TestXRefTable.openXRef(documents[m], thresholds[m], null);
+                long elapsed = System.nanoTime() - started;
+                if (xref.size() != objects)
+                    throw new IllegalStateException(names[m] + ": wrong XRef table");
+                if ((round == 0) || (elapsed < best[m]))
+                    best[m] = elapsed;
+            }
+        }
+
+        for (int m = 0; m < documents.length; m++)
+            System.out.println(String.format("%-20s open with %d XRef entries: %7.2f ms", names[m], objects + 1, best[m] / 1e6));
+    }
+
+    private static void sharedScalars() throws Exception {
+        String[] files = {"/24c16.pdf", "/vrml.pdf", "/loremipsum2.pdf", "/6licenses-flat.pdf",
+                "/Creativecommons-what-is-creative-commons_eng.pdf"};
+        long[] counters = new long[2]; // total, shared
+
+        for (String filename : files) {
+            File file = new File(ParseBenchmark.class.getResource(filename).toURI());
+            XRefTable xref = new PDFFile(file).getXRef();
+            for (int id : xref.getKeys())
+                TestCOSNumber.countScalars(xref.getObject(new COSReference(id, xref.getGeneration(id))), counters);
+        }
+
+        System.out.println(String.format("Numbers/booleans/nulls parsed: %d, shared instances: %d (%.1f%% allocations avoided)",
+                counters[0], counters[1], 100.0 * counters[1] / Math.max(1, counters[0])));
+    }
+
+    private static void readAhead() throws Exception {
+        File file = new File(ParseBenchmark.class.getResource("/vrml.pdf").toURI());
+        long totalBlocks = (file.length() + 1023) / 1024;
+
+        for (int readAheadSize : new int[]{0, 8 * 1024}) {
+            ParserSettings settings = new ParserSettings();
+            settings.readAheadSize = readAheadSize;
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                BlockCachedSource source = new BlockCachedSource(raf.getChannel(), 1024, 32);
+                PDFFile pp = new PDFFile(settings);
+                pp.open(source);
+                long opened = source.getBlocksRead();
+                pp.parseEverything();
+                System.out.println(String.format("Read-ahead %5d bytes, parse: %d of %d blocks read",
+                        readAheadSize, source.getBlocksRead() - opened, totalBlocks));
+            } finally {
+                raf.close();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        lazyParsing();
+        classicXRef();
+        sharedScalars();
+        readAhead();
+    }
+}
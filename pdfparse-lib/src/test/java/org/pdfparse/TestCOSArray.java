@@ -0,0 +1,141 @@
+package org.pdfparse;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pdfparse.cds.PDFRectangle;
+import org.pdfparse.cos.COSArray;
+import org.pdfparse.cos.COSDictionary;
+import org.pdfparse.cos.COSName;
+import org.pdfparse.cos.COSNumber;
+import org.pdfparse.cos.COSObject;
+import org.pdfparse.cos.COSReference;
+import org.pdfparse.cos.COSString;
+import org.pdfparse.parser.PDFParser;
+import org.pdfparse.parser.PDFRawData;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class TestCOSArray extends Assert {
+
+    private static COSObject parse(String s) throws Exception {
+        PDFRawData src = new PDFRawData(s.getBytes("ISO-8859-1"));
+        return new PDFParser(src).parseObject(src);
+    }
+
+    private static String produce(COSObject obj) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        obj.produce(out, null);
+        return out.toString("ISO-8859-1");
+    }
+
+    @Test
+    public void checkNumericArrays() throws Exception {
+        COSArray w = (COSArray) parse("[1 2 1]");
+        assertTrue(w.isNumeric());
+        assertArrayEquals(new int[]{1, 2, 1}, w.toIntArray());
+        assertSame(COSNumber.valueOf(2), w.get(1));
+        assertEquals("[1 2 1]", produce(w));
+
+        COSArray box = (COSArray) parse("[0 -0.5 612.25 792]");
+        assertTrue(box.isNumeric());
+        assertEquals(-0.5, box.getDouble(1), 0);
+        assertEquals(612.25f, box.getFloat(2), 0);
+        assertEquals(792, box.getInt(3));
+        assertTrue(((COSNumber) box.get(0)).isInteger());
+        assertFalse(((COSNumber) box.get(2)).isInteger());
+
+        PDFRectangle rect = new PDFRectangle(box);
+        assertEquals(612.25f, rect.getWidth(), 0);
+        assertEquals(792.5f, rect.getHeight(), 0);
+
+        // references look like numbers, but make the array generic
+        COSArray kids = (COSArray) parse("[3 0 R 4 0 R]");
+        assertFalse(kids.isNumeric());
+        assertEquals(2, kids.size());
+        assertEquals(4, ((COSReference) kids.get(1)).id);
+
+        COSArray mixed = (COSArray) parse("[10 20 /Name (str) 5000000000 [1 2]]");
+        assertFalse(mixed.isNumeric());
+        assertEquals(20, mixed.getInt(1));
+        assertEquals(0, mixed.getInt(2));
+        assertEquals(5000000000L, ((COSNumber) mixed.get(4)).longValue());
+        assertTrue(((COSArray) mixed.get(5)).isNumeric());
+
+        COSDictionary dic = (COSDictionary) parse("<< /MediaBox [0 0 595 842] /Index [] >>");
+        assertEquals(595f, dic.getRectangle(COSName.MEDIABOX).getWidth(), 0);
+        assertEquals(0, dic.getArray(COSName.INDEX, null).size());
+
+        try {
+            w.getInt(3);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void checkStorageSwitching() {
+        COSArray arr = new COSArray();
+        arr.add(COSNumber.valueOf(1));
+        arr.add(COSNumber.valueOf(2));
+        assertTrue(arr.isNumeric());
+        arr.add(new COSNumber(2.5));
+        assertTrue(arr.isNumeric());
+        assertEquals(Arrays.asList(1.0, 2.0, 2.5), toList(arr.toDoubleArray()));
+        arr.add(1, new COSString("x"));
+        assertFalse(arr.isNumeric());
+        assertEquals(4, arr.size());
+        assertEquals(2.5, arr.getDouble(3), 0);
+        arr.clear();
+        assertTrue(arr.isNumeric());
+        assertTrue(arr.isEmpty());
+    }
+
+    @Test
+    public void checkSameBehaviourAsArrayList() {
+        Random rnd = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            COSArray arr = new COSArray();
+            List<COSObject> expected = new ArrayList<COSObject>();
+
+            for (int op = 0; op < 60; op++) {
+                COSObject value;
+                int kind = rnd.nextInt(20);
+                if (kind == 0)
+                    value = COSName.TYPE;
+                else if (kind == 1)
+                    value = new COSNumber(op + 0.5);
+                else value = COSNumber.valueOf(op);
+
+                int action = rnd.nextInt(10);
+                if ((action < 5) || expected.isEmpty()) {
+                    arr.add(value);
+                    expected.add(value);
+                } else if (action < 7) {
+                    int idx = rnd.nextInt(expected.size() + 1);
+                    arr.add(idx, value);
+                    expected.add(idx, value);
+                } else if (action < 8) {
+                    int idx = rnd.nextInt(expected.size());
+                    assertEquals(expected.set(idx, value), arr.set(idx, value));
+                } else {
+                    int idx = rnd.nextInt(expected.size());
+                    assertEquals(expected.remove(idx), arr.remove(idx));
+                }
+                assertEquals(expected, arr);
+            }
+            assertEquals(expected.hashCode(), arr.hashCode());
+        }
+    }
+
+    private static List<Double> toList(double[] values) {
+        List<Double> res = new ArrayList<Double>();
+        for (double v : values)
+            res.add(v);
+        return res;
+    }
+}
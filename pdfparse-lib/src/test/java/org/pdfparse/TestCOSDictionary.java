@@ -0,0 +1,326 @@
+package org.pdfparse;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pdfparse.cos.COSArray;
+import org.pdfparse.cos.COSDictionary;
+import org.pdfparse.cos.COSName;
+import org.pdfparse.cos.COSNumber;
+import org.pdfparse.cos.COSObject;
+import org.pdfparse.cos.COSReference;
+import org.pdfparse.cos.COSStream;
+import org.pdfparse.io.ArraySource;
+import org.pdfparse.model.PDFDocInfo;
+import org.pdfparse.model.PDFDocument;
+import org.pdfparse.parser.DictionaryParsing;
+import org.pdfparse.parser.ObjectRetriever;
+import org.pdfparse.parser.PDFParser;
+import org.pdfparse.parser.PDFRawData;
+import org.pdfparse.parser.ParserSettings;
+import org.pdfparse.parser.XRefTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class TestCOSDictionary extends Assert {
+
+    private static COSDictionary parse(String s) throws Exception {
+        PDFRawData src = new PDFRawData(s.getBytes("ISO-8859-1"));
+        return (COSDictionary) new PDFParser(src).parseObject(src);
+    }
+
+    @Test
+    public void checkInsertionOrder() throws Exception {
+        COSDictionary dic = parse("<< /Type /Page /Parent 3 0 R /Count 5 /Length 10 >>");
+        List<COSName> keys = new ArrayList<COSName>(dic.keySet());
+        assertEquals(4, dic.size());
+        assertSame(COSName.TYPE, keys.get(0));
+        assertSame(COSName.LENGTH, keys.get(3));
+
+        assertEquals(5, dic.getInt(COSName.COUNT, 0));
+        assertEquals(-1, dic.getInt(COSName.SIZE, -1));
+        assertSame(COSName.intern("/Page"), dic.getName(COSName.TYPE, null));
+        assertEquals(3, dic.getReference(COSName.intern("/Parent")).id);
+        assertNull(dic.getReference(COSName.TYPE));
+
+        // overriding keeps the position, removing shifts the rest
+        dic.setInt(COSName.TYPE, 1);
+        dic.remove(COSName.intern("/Parent"));
+        keys = new ArrayList<COSName>(dic.keySet());
+        assertEquals(3, keys.size());
+        assertSame(COSName.TYPE, keys.get(0));
+        assertSame(COSName.COUNT, keys.get(1));
+        assertEquals(1, dic.getInt(COSName.TYPE, 0));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        dic.produce(out, null);
+        assertEquals("<</Type 1/Count 5/Length 10>>", out.toString("ISO-8859-1").replace("\n", ""));
+    }
+
+    @Test
+    public void checkSameBehaviourAsLinkedHashMap() {
+        // compare with reference implementation using both linear scan and hashed lookup sizes
+        Random rnd = new Random(1);
+        for (int round = 0; round < 200; round++) {
+            COSDictionary dic = new COSDictionary();
+            Map<COSName, COSObject> expected = new LinkedHashMap<COSName, COSObject>();
+            int range = 1 + rnd.nextInt(40);
+
+            for (int op = 0; op < 100; op++) {
+                COSName key = new COSName("/K" + rnd.nextInt(range));
+                int action = rnd.nextInt(10);
+                if (action < 6) {
+                    COSNumber value = COSNumber.valueOf(op);
+                    assertEquals(expected.put(key, value), dic.put(key, value));
+                } else if (action < 8) {
+                    assertEquals(expected.remove(key), dic.remove(key));
+                } else {
+                    assertEquals(expected.containsKey(key), dic.containsKey(key));
+                    assertEquals(expected.get(key), dic.get(key));
+                }
+                assertEquals(expected.size(), dic.size());
+            }
+
+            assertEquals(new ArrayList<COSName>(expected.keySet()), new ArrayList<COSName>(dic.keySet()));
+            assertEquals(new ArrayList<COSObject>(expected.values()), new ArrayList<COSObject>(dic.values()));
+            assertEquals(expected, dic);
+            assertEquals(expected.hashCode(), dic.hashCode());
+
+            // copy and removal through iterator
+            COSDictionary copy = new COSDictionary(dic, null);
+            assertEquals(dic, copy);
+            for (Iterator<Map.Entry<COSName, COSObject>> it = copy.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<COSName, COSObject> entry = it.next();
+                if (((COSNumber) entry.getValue()).intValue() % 2 == 0)
+                    it.remove();
+                else entry.setValue(COSNumber.valueOf(-1));
+            }
+            for (Map.Entry<COSName, COSObject> entry : dic.entrySet()) {
+                boolean even = ((COSNumber) entry.getValue()).intValue() % 2 == 0;
+                assertEquals(!even, copy.containsKey(entry.getKey()));
+                if (!even)
+                    assertEquals(-1, copy.getInt(entry.getKey(), 0));
+            }
+        }
+    }
+
+    @Test
+    public void checkLargeDictionary() throws Exception {
+        StringBuilder sb = new StringBuilder("<<");
+        for (int i = 0; i < 1000; i++)
+            sb.append(" /Key").append(i).append(' ').append(i);
+        sb.append(" >>");
+
+        COSDictionary dic = parse(sb.toString());
+        assertEquals(1000, dic.size());
+        for (int i = 0; i < 1000; i++)
+            assertEquals(i, dic.getInt(new COSName("/Key" + i), -1));
+        assertFalse(dic.containsKey(new COSName("/Key1000")));
+        assertFalse(dic.containsKey(new COSReference(1, 0)));
+
+        int n = 0;
+        for (COSName key : dic.keySet())
+            assertEquals(new COSName("/Key" + n++), key);
+    }
+
+    @Test
+    public void checkLazyLookup() throws Exception {
+        String text = "<< /A (x >> ]) /B << /C [1 2 <3E3E> (])] % >>\n >> /D 5 /E [/F] >>";
+        PDFRawData src = new PDFRawData(text.getBytes("ISO-8859-1"));
+        PDFParser parser = new PDFParser(src);
+        parser.settings.dictionaryParsing = DictionaryParsing.LAZY_PER_KEY;
+
+        COSDictionary dic = (COSDictionary) parser.parseObject(src);
+        assertEquals(text.length(), src.pos);
+        assertFalse(dic.isLoaded());
+        assertEquals(5, dic.getInt(COSName.intern("/D"), 0));
+        assertFalse(dic.containsKey(COSName.TYPE));
+        COSDictionary nested = dic.getDictionary(COSName.intern("/B"), null);
+        assertFalse(dic.isLoaded());
+        assertFalse(nested.isLoaded());
+        assertEquals(4, nested.getArray(COSName.intern("/C"), null).size());
+
+        // loading keeps the order of source and the instances of already parsed entries
+        List<COSName> keys = new ArrayList<COSName>(dic.keySet());
+        assertTrue(dic.isLoaded());
+        assertEquals(Arrays.asList("/A", "/B", "/D", "/E"), Arrays.asList(keys.get(0).toString(),
+                keys.get(1).toString(), keys.get(2).toString(), keys.get(3).toString()));
+        assertSame(nested, dic.get(COSName.intern("/B")));
+        assertEquals(parse(text), dic);
+    }
+
+    private static String produce(COSObject obj) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        obj.produce(out, null);
+        return out.toString("ISO-8859-1");
+    }
+
+    @Test
+    public void checkLazyDocuments() throws Exception {
+        String[] files = {"/24c16.pdf", "/vrml.pdf", "/loremipsum2.pdf", "/6licenses-flat.pdf"};
+        for (String filename : files) {
+            File file = new File(this.getClass().getResource(filename).toURI());
+            PDFFile expected = new PDFFile(file);
+
+            for (DictionaryParsing mode : new DictionaryParsing[]{DictionaryParsing.LAZY, DictionaryParsing.LAZY_PER_KEY}) {
+                ParserSettings settings = new ParserSettings();
+                settings.dictionaryParsing = mode;
+                PDFFile pp = new PDFFile(settings);
+                PDFDocument doc = pp.open(file);
+
+                assertEquals(filename, expected.getDocument().getInfo().getTitle(), doc.getInfo().getTitle());
+                assertEquals(filename, expected.getDocument().getCatalog().getPagesCount(), doc.getCatalog().getPagesCount());
+
+                XRefTable xref = pp.getXRef();
+                for (int id : xref.getKeys()) {
+                    COSReference ref = new COSReference(id, xref.getGeneration(id));
+                    COSObject obj = xref.getObject(ref);
+                    if (!(obj instanceof COSStream)) // references have no equals(), compare the content
+                        assertEquals(filename + " " + ref, produce(expected.getXRef().getObject(ref)), produce(obj));
+                }
+                pp.parseEverything();
+            }
+        }
+    }
+
+    /**
+     * Document with a flat page tree: every page is referenced from the single /Kids array
+     */
+    static byte[] buildDocument(int pages) throws Exception {
+        StringBuilder sb = new StringBuilder("%PDF-1.4\n");
+        int count = pages + 3;
+        long[] offsets = new long[count + 1];
+
+        offsets[1] = sb.length();
+        sb.append("1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n");
+        offsets[2] = sb.length();
+        sb.append("2 0 obj\n<< /Type /Pages /Kids [");
+        for (int i = 0; i < pages; i++)
+            sb.append(i + 4).append(" 0 R ");
+        sb.append("] /Count ").append(pages).append(" >>\nendobj\n");
+        offsets[3] = sb.length();
+        sb.append("3 0 obj\n<< /Title (Generated) /Author (Test) /Producer (pdfparse) /CreationDate (D:20130101000000Z) >>\nendobj\n");
+        for (int i = 0; i < pages; i++) {
+            offsets[i + 4] = sb.length();
+            sb.append(i + 4).append(" 0 obj\n<< /Type /Page /Parent 2 0 R /MediaBox [0 0 612 792] ")
+                    .append("/Resources << /Font << /F1 << /Type /Font /Subtype /Type1 /BaseFont /Helvetica >> >> /ProcSet [/PDF /Text] >> ")
+                    .append("/Annots [<< /Type /Annot /Subtype /Link /Rect [10 10 100 20] /Border [0 0 0] >>] >>\nendobj\n");
+        }
+
+        long xrefOffset = sb.length();
+        sb.append("xref\n0 ").append(count + 1).append("\n0000000000 65535 f \n");
+        for (int i = 1; i <= count; i++)
+            sb.append(String.format("%010d 00000 n \n", offsets[i]));
+        sb.append("trailer\n<< /Size ").append(count + 1).append(" /Root 1 0 R /Info 3 0 R >>\nstartxref\n")
+                .append(xrefOffset).append("\n%%EOF\n");
+        return sb.toString().getBytes("ISO-8859-1");
+    }
+
+    @Test
+    public void checkLazyGeneratedDocument() throws Exception {
+        byte[] data = buildDocument(500);
+        for (DictionaryParsing mode : DictionaryParsing.values()) {
+            ParserSettings settings = new ParserSettings();
+            settings.dictionaryParsing = mode;
+            PDFFile pp = new PDFFile(settings);
+            PDFDocument doc = pp.open(new ArraySource(data));
+
+            assertEquals(mode.toString(), 500, doc.getCatalog().getPagesCount());
+            PDFDocInfo info = doc.getInfo();
+            assertEquals(mode.toString(), "Generated", info.getTitle());
+            assertEquals(mode.toString(), "Test", info.getAuthor());
+            assertEquals(mode.toString(), "pdfparse", info.getProducer());
+
+            XRefTable xref = pp.getXRef();
+            int typed = 0;
+            for (int id : xref.getKeys()) {
+                COSObject obj = xref.getObject(new COSReference(id, 0));
+                if ((obj instanceof COSDictionary) && ((COSDictionary) obj).containsKey(COSName.TYPE))
+                    typed++;
+            }
+            assertEquals(mode.toString(), 502, typed);
+        }
+    }
+
+    /**
+     * Delegates to XRef table and counts lookups
+     */
+    private static class CountingRetriever implements ObjectRetriever {
+        private final XRefTable xref;
+        private final boolean swizzle;
+        int lookups;
+
+        CountingRetriever(XRefTable xref, boolean swizzle) {
+            this.xref = xref;
+            this.swizzle = swizzle;
+        }
+
+        @Override
+        public COSObject getObject(COSReference ref) {
+            lookups++;
+            return xref.getObject(ref);
+        }
+
+        @Override
+        public COSDictionary getDictionary(COSReference ref) {
+            lookups++;
+            return xref.getDictionary(ref);
+        }
+
+        @Override
+        public COSStream getStream(COSReference ref) {
+            lookups++;
+            return xref.getStream(ref);
+        }
+
+        @Override
+        public boolean swizzleReferences() {
+            return swizzle;
+        }
+    }
+
+    @Test
+    public void checkReferenceSwizzling() throws Exception {
+        File file = new File(this.getClass().getResource("/vrml.pdf").toURI());
+        PDFFile pp = new PDFFile(file);
+        COSDictionary root = pp.getDocument().getCatalog().getCOSDictionary();
+        String written = produce(root);
+
+        for (boolean swizzle : new boolean[]{false, true}) {
+            CountingRetriever retriever = new CountingRetriever(pp.getXRef(), swizzle);
+            COSDictionary pages = null;
+            for (int i = 0; i < 10; i++) {
+                COSDictionary res = root.getDictionary(COSName.PAGES, retriever, null);
+                assertNotNull(res);
+                if (pages != null)
+                    assertSame(pages, res);
+                pages = res;
+            }
+            assertEquals(swizzle ? 1 : 10, retriever.lookups);
+
+            // original reference is kept for writing
+            assertTrue(root.get(COSName.PAGES) instanceof COSReference);
+            assertNotNull(root.getReference(COSName.PAGES));
+            assertSame(pages, root.get(COSName.PAGES, retriever));
+            assertEquals(written, produce(root));
+        }
+
+        // swizzling enabled by settings, for document model and arrays
+        ParserSettings settings = new ParserSettings();
+        settings.swizzleReferences = true;
+        PDFFile swizzled = new PDFFile(settings);
+        PDFDocument doc = swizzled.open(file);
+        assertEquals(pp.getDocument().getCatalog().getPagesCount(), doc.getCatalog().getPagesCount());
+        COSArray arr = new COSArray();
+        arr.add(doc.getCatalog().getCOSDictionary().getReference(COSName.PAGES));
+        assertTrue(arr.get(0, swizzled.getXRef()) instanceof COSDictionary);
+        assertTrue(arr.get(0) instanceof COSReference);
+    }
+}
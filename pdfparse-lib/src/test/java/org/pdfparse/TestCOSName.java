@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2013 Anton Golinko
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307
+ * USA
+ */
+
+package org.pdfparse;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pdfparse.cos.COSDictionary;
+import org.pdfparse.cos.COSName;
+import org.pdfparse.cos.COSObject;
+import org.pdfparse.cos.COSReference;
+import org.pdfparse.parser.PDFParser;
+import org.pdfparse.parser.PDFRawData;
+import org.pdfparse.parser.XRefTable;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TestCOSName extends Assert {
+
+    @Test
+    public void checkParsedNamesAreShared() throws Exception {
+        PDFRawData src = new PDFRawData("<< /Type /XRef /Length 10 /Custom#20Key 1 /Custom#20Key2 2 >>".getBytes("ISO-8859-1"));
+        COSDictionary dic = (COSDictionary) new PDFParser(src).parseObject(src);
+
+        assertSame(COSName.TYPE, dic.keySet().iterator().next());
+        assertSame(COSName.XREF, dic.get(COSName.TYPE));
+
+        src = new PDFRawData("<< /Custom#20Key 3 /Length 5 >>".getBytes("ISO-8859-1"));
+        COSDictionary other = (COSDictionary) new PDFParser(src).parseObject(src);
+        COSName custom = COSName.intern("/Custom Key");
+        for (COSName key : other.keySet())
+            assertTrue(key == custom || key == COSName.LENGTH);
+        assertEquals(1, dic.getInt(custom, 0));
+        assertEquals(3, other.getInt(custom, 0));
+    }
+
+    @Test
+    public void checkEqualityOfNotSharedNames() {
+        COSName created = new COSName("/Length");
+        assertNotSame(COSName.LENGTH, created);
+        assertEquals(COSName.LENGTH, created);
+        assertEquals(created, COSName.LENGTH);
+        assertEquals(COSName.LENGTH.hashCode(), created.hashCode());
+        assertSame(COSName.LENGTH, COSName.intern(created));
+        assertFalse(COSName.LENGTH.equals(COSName.TYPE));
+    }
+
+    @Test
+    public void checkPoolIsBounded() {
+        // many user-defined names: the pool stops sharing them, but names still compare by value
+        COSName last = null;
+        for (int i = 0; i < 20000; i++)
+            last = COSName.intern("/UserName" + i);
+        assertEquals(last, new COSName("/UserName19999"));
+        assertEquals(last, COSName.intern("/UserName19999"));
+        assertSame(COSName.FILTER, COSName.intern("/Filter"));
+    }
+
+    @Test
+    public void checkConcurrentInterning() throws Exception {
+        final Map<String, COSName> seen = new ConcurrentHashMap<String, COSName>();
+        final boolean[] failed = {false};
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 500; i++) {
+                        String s = "/Shared" + i;
+                        byte[] bytes = s.getBytes();
+                        COSName name = COSName.valueOf(new PDFRawData(bytes), 0, bytes.length);
+                        COSName prev = seen.put(s, name);
+                        if ((prev != null) && !prev.equals(name))
+                            failed[0] = true;
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertFalse(failed[0]);
+    }
+
+    @Test
+    public void checkDocumentKeys() throws Exception {
+        File file = new File(this.getClass().getResource("/vrml.pdf").toURI());
+        XRefTable xref = new PDFFile(file).getXRef();
+        int shared = 0;
+        for (int id : xref.getKeys()) {
+            COSObject obj = xref.getObject(new COSReference(id, xref.getGeneration(id)));
+            if (!(obj instanceof COSDictionary))
+                continue;
+            COSObject type = ((COSDictionary) obj).get(COSName.TYPE);
+            if (type != null) {
+                assertSame(type, COSName.intern((COSName) type));
+                shared++;
+            }
+        }
+        assertTrue(shared > 0);
+    }
+}
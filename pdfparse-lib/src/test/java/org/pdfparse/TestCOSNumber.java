@@ -22,11 +22,19 @@ package org.pdfparse;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.pdfparse.cos.COSArray;
+import org.pdfparse.cos.COSBool;
+import org.pdfparse.cos.COSDictionary;
+import org.pdfparse.cos.COSNull;
 import org.pdfparse.cos.COSNumber;
+import org.pdfparse.cos.COSObject;
+import org.pdfparse.cos.COSReference;
 import org.pdfparse.exception.EParseError;
 import org.pdfparse.parser.PDFParser;
 import org.pdfparse.parser.PDFRawData;
+import org.pdfparse.parser.XRefTable;
 
+import java.io.File;
 import java.util.Random;
 
 public class TestCOSNumber extends Assert{
@@ -272,4 +280,93 @@ public class TestCOSNumber extends Assert{
         i.parse(data, pdfFile);
         Assert.assertEquals(-1, i.intValue());
     }
+
+    @Test
+    public void checkLongOffsetParse() throws EParseError {
+        PDFRawData data = new PDFRawData();
+
+        setData(data, "5368709120 ");
+        Assert.assertEquals(5368709120L, COSNumber.readLong(data));
+
+        setData(data, " 0004294967296 00000 n");
+        Assert.assertEquals(4294967296L, data.fetchULong());
+        Assert.assertEquals(0, data.fetchUInt());
+
+        data.data = new byte[]{0x01, 0x40, 0x00, 0x00, 0x00, 0x10};
+        data.length = data.data.length;
+        data.pos = 0;
+        Assert.assertEquals(0x014000000010L, data.fetchBinaryULong(6));
+    }
+
+    @Test
+    public void checkSharedInstances() throws EParseError {
+        assertSame(COSNumber.valueOf(0), COSNumber.valueOf(0L));
+        assertSame(COSNumber.valueOf(1000), COSNumber.valueOf(1000));
+        assertTrue(COSNumber.valueOf(-1).isShared());
+        assertFalse(COSNumber.valueOf(100000).isShared());
+        assertEquals(new COSNumber(100000), COSNumber.valueOf(100000));
+        assertEquals("17", COSNumber.valueOf(17).toString());
+
+        assertSame(COSBool.TRUE, COSBool.valueOf(true));
+        assertSame(COSBool.FALSE, COSBool.valueOf(false));
+        assertEquals(COSBool.TRUE, new COSBool(true));
+
+        PDFRawData data = new PDFRawData();
+        PDFParser pdfFile = new PDFParser(data);
+        setData(data, "[1 -5 2.5 100000 true false null]");
+        COSArray arr = (COSArray) pdfFile.parseObject(data);
+        assertSame(COSNumber.valueOf(1), arr.get(0));
+        assertSame(COSNumber.valueOf(-5), arr.get(1));
+        assertFalse(((COSNumber) arr.get(2)).isShared());
+        assertFalse(((COSNumber) arr.get(3)).isShared());
+        assertSame(COSBool.TRUE, arr.get(4));
+        assertSame(COSBool.FALSE, arr.get(5));
+        assertSame(COSNull.NULL, arr.get(6));
+
+        try {
+            setData(data, "12");
+            COSNumber.valueOf(5).parse(data, pdfFile);
+            fail();
+        } catch (UnsupportedOperationException e) {
+            // expected, cached numbers are immutable
+        }
+        assertEquals(5, COSNumber.valueOf(5).intValue());
+    }
+
+    @Test
+    public void checkCorpusAllocations() throws Exception {
+        String[] files = {"/24c16.pdf", "/vrml.pdf", "/loremipsum2.pdf", "/6licenses-flat.pdf",
+                "/Creativecommons-what-is-creative-commons_eng.pdf"};
+        long[] counters = new long[2]; // total, shared
+
+        for (String filename : files) {
+            File file = new File(this.getClass().getResource(filename).toURI());
+            XRefTable xref = new PDFFile(file).getXRef();
+            for (int id : xref.getKeys())
+                countScalars(xref.getObject(new COSReference(id, xref.getGeneration(id))), counters);
+        }
+
+        assertTrue(counters[1] > counters[0] / 2);
+    }
+
+    /**
+     * @param counters number of numbers, booleans and nulls, and how many of them are shared instances
+     */
+    static void countScalars(COSObject obj, long[] counters) {
+        if (obj instanceof COSDictionary) {
+            for (COSObject item : ((COSDictionary) obj).values())
+                countScalars(item, counters);
+        } else if (obj instanceof COSArray) {
+            for (COSObject item : (COSArray) obj)
+                countScalars(item, counters);
+        } else if (obj instanceof COSNumber) {
+            counters[0]++;
+            if (((COSNumber) obj).isShared())
+                counters[1]++;
+        } else if ((obj instanceof COSBool) || (obj instanceof COSNull)) {
+            counters[0]++;
+            if ((obj == COSBool.TRUE) || (obj == COSBool.FALSE) || (obj == COSNull.NULL))
+                counters[1]++;
+        }
+    }
 }
@@ -0,0 +1,83 @@
+package org.pdfparse;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pdfparse.cos.COSName;
+import org.pdfparse.cos.COSObject;
+import org.pdfparse.cos.COSReference;
+import org.pdfparse.cos.COSStream;
+import org.pdfparse.filter.FilterRegistry;
+import org.pdfparse.filter.StreamDecoder;
+import org.pdfparse.parser.PDFRawData;
+import org.pdfparse.parser.ParserSettings;
+import org.pdfparse.parser.XRefTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+
+public class TestCOSStream extends Assert {
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[100];
+        int n;
+        while ((n = in.read(buf)) > 0)
+            out.write(buf, 0, n);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void checkLazyStreamData() throws IOException, URISyntaxException {
+        File file = new File(this.getClass().getResource("/Creativecommons-what-is-creative-commons_eng.pdf").toURI());
+        PDFFile pp = new PDFFile(file);
+        XRefTable xref = pp.getXRef();
+
+        int streams = 0;
+        for (int key : xref.getKeys()) {
+            COSObject obj = xref.getObject(new COSReference(key, xref.getGeneration(key)));
+            if (!(obj instanceof COSStream))
+                continue;
+
+            COSStream stream = (COSStream) obj;
+            byte[] data = stream.getData();
+            assertEquals(stream.getInt(COSName.LENGTH, xref, -1), data.length);
+            assertEquals(data.length, stream.getRawLength());
+            assertArrayEquals(data, readAll(stream.openRawStream()));
+
+            PDFRawData decoded = StreamDecoder.decodeStream(data, stream, pp.getSettings());
+            assertArrayEquals(Arrays.copyOf(decoded.data, (int) decoded.length), readAll(stream.openDecodedStream()));
+            streams++;
+        }
+        assertTrue("No streams found", streams > 0);
+
+        byte[] metadata = pp.getDocument().getCatalog().getXMLMetadata();
+        assertTrue(new String(metadata, "ISO-8859-1").startsWith("<?xpacket"));
+    }
+
+    @Test
+    public void checkDocumentSettings() throws IOException, URISyntaxException {
+        File file = new File(this.getClass().getResource("/Creativecommons-what-is-creative-commons_eng.pdf").toURI());
+        ParserSettings settings = new ParserSettings();
+        settings.filterRegistry = new FilterRegistry(FilterRegistry.getDefault());
+        settings.filterRegistry.setEnabled(COSName.FLATEDECODE, false);
+        PDFFile pp = new PDFFile(settings);
+        pp.open(file);
+        XRefTable xref = pp.getXRef();
+
+        int streams = 0;
+        for (int key : xref.getKeys()) {
+            COSObject obj = xref.getObject(new COSReference(key, xref.getGeneration(key)));
+            if ((obj instanceof COSStream) && COSName.FLATEDECODE.equals(((COSStream) obj).get(COSName.FILTER))) {
+                // filter is disabled for the document, data is left encoded
+                COSStream stream = (COSStream) obj;
+                assertArrayEquals(stream.getData(), readAll(stream.openDecodedStream()));
+                streams++;
+            }
+        }
+        assertTrue("No streams found", streams > 0);
+    }
+}
@@ -0,0 +1,125 @@
+package org.pdfparse;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pdfparse.filter.LZWDecoder;
+import org.pdfparse.filter.TIFFLZWDecoder;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class TestLZWDecoder extends Assert {
+
+    /**
+     * Simple LZW encoder (PDF flavour, EarlyChange = 1)
+     */
+    static byte[] encode(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Map<Integer, Integer> table = new HashMap<Integer, Integer>();
+        int[] bits = {0, 0}; // accumulator, number of bits
+        int next = 258, width = 9;
+
+        writeCode(out, bits, 256, width);
+        int w = -1;
+        for (byte b : data) {
+            int c = b & 0xFF;
+            if (w < 0) {
+                w = c;
+                continue;
+            }
+            Integer code = table.get((w << 8) | c);
+            if (code != null) {
+                w = code;
+                continue;
+            }
+            writeCode(out, bits, w, width);
+            table.put((w << 8) | c, next++);
+            if (next >= 512 && width == 9) width = 10;
+            else if (next >= 1024 && width == 10) width = 11;
+            else if (next >= 2048 && width == 11) width = 12;
+            if (next >= 4094) {
+                writeCode(out, bits, 256, width);
+                table.clear();
+                next = 258;
+                width = 9;
+            }
+            w = c;
+        }
+        if (w >= 0)
+            writeCode(out, bits, w, width);
+        next++;
+        if (next >= 512 && width == 9) width = 10;
+        else if (next >= 1024 && width == 10) width = 11;
+        else if (next >= 2048 && width == 11) width = 12;
+        writeCode(out, bits, 257, width);
+        if (bits[1] > 0)
+            out.write(bits[0] << (8 - bits[1]));
+        return out.toByteArray();
+    }
+
+    private static void writeCode(ByteArrayOutputStream out, int[] bits, int code, int width) {
+        bits[0] = (bits[0] << width) | code;
+        bits[1] += width;
+        while (bits[1] >= 8) {
+            out.write(bits[0] >> (bits[1] - 8));
+            bits[1] -= 8;
+            bits[0] &= (1 << bits[1]) - 1;
+        }
+    }
+
+    static byte[] sample(int size, long seed) {
+        Random rnd = new Random(seed);
+        byte[] data = new byte[size];
+        String[] words = {"lorem ", "ipsum ", "dolor ", "sit ", "amet ", "BT ", "ET ", "0 0 1 rg ", "\n"};
+        int i = 0;
+        while (i < size) {
+            if (rnd.nextInt(10) == 0) {
+                data[i++] = (byte) rnd.nextInt(256);
+                continue;
+            }
+            String w = words[rnd.nextInt(words.length)];
+            for (int j = 0; j < w.length() && i < size; j++)
+                data[i++] = (byte) w.charAt(j);
+        }
+        return data;
+    }
+
+    @Test
+    public void checkReferenceExample() {
+        // Example from PDF Reference, 3.3.3 LZWDecode Filter
+        byte[] encoded = {(byte) 0x80, 0x0B, 0x60, 0x50, 0x22, 0x0C, 0x0C, (byte) 0x85, 0x01};
+        assertArrayEquals(encoded, encode("-----A---B".getBytes()));
+        assertArrayEquals("-----A---B".getBytes(), new LZWDecoder().decode(encoded));
+    }
+
+    @Test
+    public void checkRoundTrip() {
+        for (int size : new int[]{0, 1, 2, 100, 5000, 300000}) {
+            byte[] data = sample(size, size);
+            byte[] encoded = encode(data);
+            assertArrayEquals("size " + size, data, new LZWDecoder().decode(encoded));
+        }
+    }
+
+    @Test
+    public void checkTruncatedAndFixedSizeOutput() {
+        byte[] data = sample(20000, 7);
+        byte[] encoded = encode(data);
+
+        // Missing EndOfInformation code: complete codes are decoded
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length / 2);
+        assertArrayEquals(Arrays.copyOf(data, 9449), new LZWDecoder().decode(truncated));
+
+        // Output is limited by array size
+        byte[] dst = new byte[1000];
+        assertEquals(dst.length, new LZWDecoder().decode(encoded, dst));
+        for (int i = 0; i < dst.length; i++)
+            assertEquals(data[i], dst[i]);
+
+        byte[] tiff = new TIFFLZWDecoder(100, 1, 1).decode(encoded, new byte[1000], 10);
+        assertArrayEquals(dst, tiff);
+    }
+}
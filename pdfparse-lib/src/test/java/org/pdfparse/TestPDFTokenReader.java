@@ -0,0 +1,144 @@
+package org.pdfparse;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pdfparse.cos.COSArray;
+import org.pdfparse.cos.COSDictionary;
+import org.pdfparse.cos.COSName;
+import org.pdfparse.cos.COSNumber;
+import org.pdfparse.cos.COSReference;
+import org.pdfparse.cos.COSString;
+import org.pdfparse.parser.PDFParser;
+import org.pdfparse.parser.PDFRawData;
+import org.pdfparse.parser.PDFTokenReader;
+
+import java.io.UnsupportedEncodingException;
+
+public class TestPDFTokenReader extends Assert {
+
+    private static PDFRawData data(String s) throws UnsupportedEncodingException {
+        return new PDFRawData(s.getBytes("ISO-8859-1"));
+    }
+
+    @Test
+    public void checkTokenKinds() throws UnsupportedEncodingException {
+        PDFRawData src = data("<< /Type /Page /Count 12 /Rotate -90 /W 0.5 /Kids [3 0 R 5 1 R] % comment\n"
+                + "/Title (A (nested) \\) string) /ID <48656C6C6F> /Flag true /Other null >> endobj");
+        PDFTokenReader tokens = src.getTokenReader();
+
+        int[] expected = {
+                PDFTokenReader.DICT_BEGIN,
+                PDFTokenReader.NAME, PDFTokenReader.NAME,
+                PDFTokenReader.NAME, PDFTokenReader.INTEGER,
+                PDFTokenReader.NAME, PDFTokenReader.INTEGER,
+                PDFTokenReader.NAME, PDFTokenReader.REAL,
+                PDFTokenReader.NAME, PDFTokenReader.ARRAY_BEGIN, PDFTokenReader.REFERENCE, PDFTokenReader.REFERENCE, PDFTokenReader.ARRAY_END,
+                PDFTokenReader.NAME, PDFTokenReader.STRING,
+                PDFTokenReader.NAME, PDFTokenReader.HEX_STRING,
+                PDFTokenReader.NAME, PDFTokenReader.BOOLEAN,
+                PDFTokenReader.NAME, PDFTokenReader.NULL,
+                PDFTokenReader.DICT_END,
+                PDFTokenReader.KEYWORD,
+                PDFTokenReader.EOF};
+
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("token #" + i, expected[i], tokens.next());
+            switch (i) {
+                case 2:
+                    assertTrue(tokens.nameEquals(new COSName("/Page")));
+                    break;
+                case 4:
+                    assertEquals(12, tokens.intValue());
+                    break;
+                case 6:
+                    assertEquals(-90, tokens.intValue());
+                    break;
+                case 8:
+                    assertEquals(0.5, tokens.doubleValue(), 0);
+                    break;
+                case 12:
+                    assertEquals(5, tokens.getReferenceId());
+                    assertEquals(1, tokens.getReferenceGen());
+                    break;
+                case 15:
+                    assertEquals("(A (nested) \\) string)", new String(src.data, (int) tokens.getStart(),
+                            (int) (tokens.getEnd() - tokens.getStart())));
+                    break;
+                case 19:
+                    assertTrue(tokens.booleanValue());
+                    break;
+            }
+        }
+    }
+
+    @Test
+    public void checkScanWithoutMaterializing() throws UnsupportedEncodingException {
+        PDFRawData src = data("<</Size 22 /Info 1 0 R /Root 2 0 R /Prev [1 2 <</Nested /Root>>] /ID [<01> <02>]>>");
+        PDFTokenReader tokens = src.getTokenReader();
+        COSName root = new COSName("/Root");
+
+        assertEquals(PDFTokenReader.DICT_BEGIN, tokens.next());
+        int found = 0;
+        while (tokens.next() == PDFTokenReader.NAME) {
+            boolean isRoot = tokens.nameEquals(root);
+            tokens.next();
+            if (isRoot) {
+                assertEquals(PDFTokenReader.REFERENCE, tokens.getKind());
+                assertEquals(2, tokens.getReferenceId());
+                found++;
+            }
+            tokens.skipValue(); // the nested /Root is skipped
+        }
+        assertEquals(PDFTokenReader.DICT_END, tokens.getKind());
+        assertEquals(1, found);
+    }
+
+    @Test
+    public void checkNumbersAndNames() throws UnsupportedEncodingException {
+        PDFTokenReader tokens = data("-.002 +17 3. 12345678901234567890 /A#20B /Name#").getTokenReader();
+
+        assertEquals(PDFTokenReader.REAL, tokens.next());
+        assertEquals(-0.002, tokens.doubleValue(), 0);
+        assertEquals(PDFTokenReader.INTEGER, tokens.next());
+        assertEquals(17, tokens.longValue());
+        assertEquals(PDFTokenReader.REAL, tokens.next());
+        assertEquals(3.0, tokens.doubleValue(), 0);
+        assertEquals(PDFTokenReader.REAL, tokens.next()); // too long for long
+        assertEquals(1.2345678901234567e19, tokens.doubleValue(), 1e4);
+
+        assertEquals(PDFTokenReader.NAME, tokens.next());
+        assertTrue(tokens.nameEquals(new COSName("/A B")));
+        assertFalse(tokens.nameEquals(new COSName("/A")));
+        assertEquals(PDFTokenReader.NAME, tokens.next());
+        assertTrue("Incomplete escape is kept as is", tokens.nameEquals(new COSName("/Name#")));
+    }
+
+    @Test
+    public void checkManyFractionalDigits() throws UnsupportedEncodingException {
+        PDFRawData src = data("[0.0000000000000000001 -0.00000000000000000000000000000012345 1.0000000000000000000001]");
+        COSArray arr = (COSArray) new PDFParser(src).parseObject(src);
+
+        assertEquals(3, arr.size());
+        assertEquals(1e-19, arr.getDouble(0), 1e-33);
+        assertEquals(-1.2345e-31, arr.getDouble(1), 1e-45);
+        assertEquals(1.0, arr.getDouble(2), 0);
+    }
+
+    @Test
+    public void checkParserOnTokens() throws UnsupportedEncodingException {
+        PDFRawData src = data("<< /Type /Cat#61log /Kids [1 0 R 2.5 (str) <41>] /Count 3 /Sub << /A null >> >>");
+        PDFParser parser = new PDFParser(src);
+
+        COSDictionary dic = (COSDictionary) parser.parseObject(src);
+        assertEquals(4, dic.size());
+        assertEquals(new COSName("/Catalog"), dic.getName(COSName.TYPE, null));
+        COSArray kids = (COSArray) dic.get(new COSName("/Kids"));
+        assertEquals(4, kids.size());
+        assertEquals(1, ((COSReference) kids.get(0)).id);
+        assertEquals(2.5, ((COSNumber) kids.get(1)).doubleValue(), 0);
+        assertEquals("str", ((COSString) kids.get(2)).getValue());
+        assertEquals("A", ((COSString) kids.get(3)).getValue());
+        assertEquals(3, dic.getInt(COSName.COUNT, 0));
+        assertEquals(1, ((COSDictionary) dic.get(new COSName("/Sub"))).size());
+    }
+}
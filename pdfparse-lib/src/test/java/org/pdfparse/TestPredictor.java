@@ -0,0 +1,206 @@
+package org.pdfparse;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pdfparse.cos.COSDictionary;
+import org.pdfparse.cos.COSName;
+import org.pdfparse.cos.COSNumber;
+import org.pdfparse.filter.Predictor;
+import org.pdfparse.filter.PredictorInputStream;
+import org.pdfparse.filter.StreamDecoder;
+import org.pdfparse.parser.PDFRawData;
+import org.pdfparse.parser.ParserSettings;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+public class TestPredictor extends Assert {
+
+    private static byte[] randomImage(int rows, int bytesPerRow, long seed) {
+        byte[] data = new byte[rows * bytesPerRow];
+        Random random = new Random(seed);
+        for (int i = 0; i < data.length; i++) // smooth gradient with noise, like a real image
+            data[i] = (byte) (i / 3 + random.nextInt(8));
+        return data;
+    }
+
+    private static int paeth(int a, int b, int c) {
+        int p = a + b - c;
+        int pa = Math.abs(p - a);
+        int pb = Math.abs(p - b);
+        int pc = Math.abs(p - c);
+        return (pa <= pb && pa <= pc) ? a : (pb <= pc) ? b : c;
+    }
+
+    /**
+     * Reference PNG encoder: row r is filtered with type types[r % types.length]
+     */
+    private static byte[] encodePNG(byte[] raw, int bytesPerRow, int bpp, int[] types) {
+        int rows = raw.length / bytesPerRow;
+        byte[] res = new byte[rows * (bytesPerRow + 1)];
+        for (int r = 0; r < rows; r++) {
+            int type = types[r % types.length];
+            int rowStart = r * bytesPerRow;
+            int out = r * (bytesPerRow + 1);
+            res[out++] = (byte) type;
+            for (int i = 0; i < bytesPerRow; i++) {
+                int x = raw[rowStart + i] & 0xFF;
+                int a = (i >= bpp) ? raw[rowStart + i - bpp] & 0xFF : 0;
+                int b = (r > 0) ? raw[rowStart - bytesPerRow + i] & 0xFF : 0;
+                int c = (r > 0 && i >= bpp) ? raw[rowStart - bytesPerRow + i - bpp] & 0xFF : 0;
+                int pred;
+                switch (type) {
+                    case 0: pred = 0; break;
+                    case 1: pred = a; break;
+                    case 2: pred = b; break;
+                    case 3: pred = (a + b) / 2; break;
+                    default: pred = paeth(a, b, c); break;
+                }
+                res[out + i] = (byte) (x - pred);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Reference TIFF predictor 2 encoder
+     */
+    private static byte[] encodeTIFF(byte[] raw, int bytesPerRow, int colors, int columns, int bpc) {
+        byte[] res = raw.clone();
+        int samples = colors * columns;
+        int mask = (1 << bpc) - 1;
+        for (int rowStart = 0; rowStart < raw.length; rowStart += bytesPerRow) {
+            for (int s = samples - 1; s >= colors; s--) {
+                int curr = getSample(raw, rowStart, s, bpc);
+                int prev = getSample(raw, rowStart, s - colors, bpc);
+                setSample(res, rowStart, s, bpc, (curr - prev) & mask);
+            }
+        }
+        return res;
+    }
+
+    private static int getSample(byte[] data, int rowStart, int s, int bpc) {
+        if (bpc == 16)
+            return ((data[rowStart + 2 * s] & 0xFF) << 8) | (data[rowStart + 2 * s + 1] & 0xFF);
+        int bit = s * bpc;
+        return ((data[rowStart + bit / 8] & 0xFF) >> (8 - bpc - bit % 8)) & ((1 << bpc) - 1);
+    }
+
+    private static void setSample(byte[] data, int rowStart, int s, int bpc, int value) {
+        if (bpc == 16) {
+            data[rowStart + 2 * s] = (byte) (value >> 8);
+            data[rowStart + 2 * s + 1] = (byte) value;
+            return;
+        }
+        int bit = s * bpc;
+        int shift = 8 - bpc - bit % 8;
+        int idx = rowStart + bit / 8;
+        data[idx] = (byte) ((data[idx] & ~(((1 << bpc) - 1) << shift)) | (value << shift));
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[77];
+        int n;
+        while ((n = in.read(buf)) > 0)
+            out.write(buf, 0, n);
+        return out.toByteArray();
+    }
+
+    private static void checkBothWays(byte[] expected, byte[] encoded, Predictor predictor) throws IOException {
+        assertArrayEquals("streaming", expected, readAll(new PredictorInputStream(new ByteArrayInputStream(encoded), predictor)));
+
+        byte[] buf = encoded.clone();
+        int len = predictor.decode(buf, buf.length);
+        assertEquals(expected.length, len);
+        assertArrayEquals("in place", expected, Arrays.copyOf(buf, len));
+    }
+
+    @Test
+    public void checkPNGFilterTypes() throws IOException {
+        int columns = 37;
+        int[][] colorDepths = {{1, 8}, {3, 8}, {4, 8}, {3, 16}, {1, 4}, {1, 1}, {2, 2}};
+        for (int[] cd : colorDepths) {
+            Predictor predictor = new Predictor(15, cd[0], cd[1], columns);
+            byte[] raw = randomImage(9, predictor.bytesPerRow, cd[0] * 100 + cd[1]);
+
+            // every filter type for the first row (it has no prior row), then mixed
+            for (int first = 0; first <= 4; first++) {
+                int[] types = {first, 0, 1, 2, 3, 4, 4, 3, 2};
+                byte[] encoded = encodePNG(raw, predictor.bytesPerRow, predictor.bytesPerPixel, types);
+                checkBothWays(raw, encoded, predictor);
+            }
+        }
+    }
+
+    @Test
+    public void checkBytesPerPixel() throws IOException {
+        // Colors, BitsPerComponent, bytes per pixel (rounded up to whole bytes)
+        int[][] depths = {{3, 4, 2}, {3, 2, 1}, {1, 1, 1}, {3, 1, 1}, {2, 4, 1}, {4, 8, 4}, {1, 16, 2}, {3, 16, 6}};
+        for (int[] d : depths) {
+            Predictor predictor = new Predictor(15, d[0], d[1], 11);
+            assertEquals(d[0] + "x" + d[1], d[2], predictor.bytesPerPixel);
+
+            byte[] raw = randomImage(4, predictor.bytesPerRow, d[0] * 100 + d[1]);
+            checkBothWays(raw, encodePNG(raw, predictor.bytesPerRow, d[2], new int[]{1, 3, 4, 4}), predictor);
+        }
+    }
+
+    @Test
+    public void checkTIFFPredictor() throws IOException {
+        int columns = 29;
+        int[][] colorDepths = {{1, 8}, {3, 8}, {3, 16}, {1, 16}, {1, 4}, {3, 4}, {1, 2}, {1, 1}, {3, 1}};
+        for (int[] cd : colorDepths) {
+            Predictor predictor = new Predictor(2, cd[0], cd[1], columns);
+            byte[] raw = randomImage(5, predictor.bytesPerRow, cd[0] * 100 + cd[1]);
+            // bits of the last byte beyond the last sample are padding
+            int padding = predictor.bytesPerRow * 8 - cd[0] * cd[1] * columns;
+            for (int r = 1; r <= 5; r++)
+                raw[r * predictor.bytesPerRow - 1] &= (byte) (0xFF << padding);
+
+            checkBothWays(raw, encodeTIFF(raw, predictor.bytesPerRow, cd[0], columns, cd[1]), predictor);
+        }
+    }
+
+    @Test
+    public void checkIncompleteLastRow() throws IOException {
+        Predictor predictor = new Predictor(12, 1, 8, 10);
+        byte[] raw = randomImage(4, 10, 1);
+        byte[] encoded = encodePNG(raw, 10, 1, new int[]{2});
+        // last row is truncated: 1 byte of filter type and 4 bytes of data
+        byte[] truncated = Arrays.copyOf(encoded, 3 * 11 + 5);
+        checkBothWays(Arrays.copyOf(raw, 34), truncated, predictor);
+    }
+
+    @Test
+    public void checkFlateWithPredictor() throws IOException {
+        int columns = 5; // typical XRef stream: /W [1 3 1]
+        byte[] raw = randomImage(1000, columns, 7);
+        byte[] encoded = encodePNG(raw, columns, 1, new int[]{2});
+
+        Deflater deflater = new Deflater();
+        deflater.setInput(encoded);
+        deflater.finish();
+        byte[] buf = new byte[encoded.length * 2];
+        byte[] compressed = Arrays.copyOf(buf, deflater.deflate(buf));
+        deflater.end();
+
+        COSDictionary params = new COSDictionary();
+        params.put(COSName.PREDICTOR, new COSNumber(12));
+        params.put(COSName.COLUMNS, new COSNumber(columns));
+        COSDictionary dic = new COSDictionary();
+        dic.put(COSName.FILTER, COSName.FLATEDECODE);
+        dic.put(COSName.DECODEPARMS, params);
+
+        PDFRawData decoded = StreamDecoder.decodeStream(compressed, dic, new ParserSettings());
+        assertArrayEquals(raw, Arrays.copyOf(decoded.data, (int) decoded.length));
+
+        InputStream in = StreamDecoder.openDecodedStream(new ByteArrayInputStream(compressed), dic, new ParserSettings());
+        assertArrayEquals(raw, readAll(in));
+    }
+}
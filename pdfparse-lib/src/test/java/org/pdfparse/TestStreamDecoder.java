@@ -0,0 +1,425 @@
+package org.pdfparse;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pdfparse.cos.COSArray;
+import org.pdfparse.cos.COSDictionary;
+import org.pdfparse.cos.COSName;
+import org.pdfparse.cos.COSNumber;
+import org.pdfparse.cos.COSObject;
+import org.pdfparse.exception.EDecoderException;
+import org.pdfparse.filter.ASCII85InputStream;
+import org.pdfparse.filter.ASCIIHexInputStream;
+import org.pdfparse.filter.DecodeBudget;
+import org.pdfparse.filter.FilterProvider;
+import org.pdfparse.filter.FilterRegistry;
+import org.pdfparse.filter.FlateInputStream;
+import org.pdfparse.filter.RunLengthInputStream;
+import org.pdfparse.filter.StreamDecoder;
+import org.pdfparse.parser.PDFRawData;
+import org.pdfparse.parser.ParserSettings;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.Deflater;
+
+public class TestStreamDecoder extends Assert {
+
+    static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[100];
+        int n;
+        while ((n = in.read(buf)) > 0)
+            out.write(buf, 0, n);
+        return out.toByteArray();
+    }
+
+    private static InputStream stream(String s) throws IOException {
+        return new ByteArrayInputStream(s.getBytes("ISO-8859-1"));
+    }
+
+    @Test
+    public void checkASCIIHex() throws IOException {
+        assertArrayEquals("Hello".getBytes("ISO-8859-1"), readAll(new ASCIIHexInputStream(stream("48 65 6c\n6C 6f>"))));
+        assertArrayEquals(new byte[]{(byte) 0xAB, (byte) 0xC0}, readAll(new ASCIIHexInputStream(stream("abc>"))));
+    }
+
+    @Test
+    public void checkASCII85() throws IOException {
+        assertArrayEquals("Man is distinguished".getBytes("ISO-8859-1"), readAll(new ASCII85InputStream(stream("9jqo^BlbD-BleB1DJ+*+F(f,q~>"))));
+        assertArrayEquals(new byte[]{0, 0, 0, 0, 'a', 'b'}, readAll(new ASCII85InputStream(stream("z@:B~>"))));
+    }
+
+    @Test
+    public void checkRunLength() throws IOException {
+        byte[] encoded = {2, 'a', 'b', 'c', (byte) 253, 'x', (byte) 128, 'z'};
+        assertArrayEquals("abcxxxx".getBytes("ISO-8859-1"), readAll(new RunLengthInputStream(new ByteArrayInputStream(encoded))));
+    }
+
+    @Test
+    public void checkFilterChain() throws IOException {
+        byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; i++)
+            data[i] = (byte) ((i * 7) % 251);
+
+        Deflater deflater = new Deflater();
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] compressed = new byte[data.length];
+        int clen = deflater.deflate(compressed);
+        deflater.end();
+
+        StringBuilder hex = new StringBuilder();
+        for (int i = 0; i < clen; i++)
+            hex.append(String.format("%02x", compressed[i] & 0xFF));
+        hex.append('>');
+
+        COSArray filters = new COSArray();
+        filters.add(COSName.ASCIIHEXDECODE);
+        filters.add(COSName.FLATEDECODE);
+        COSDictionary dic = new COSDictionary();
+        dic.put(COSName.FILTER, filters);
+
+        ParserSettings settings = new ParserSettings();
+        byte[] encoded = hex.toString().getBytes("ISO-8859-1");
+        assertArrayEquals(data, readAll(StreamDecoder.openDecodedStream(new ByteArrayInputStream(encoded), dic, settings)));
+
+        PDFRawData decoded = StreamDecoder.decodeStream(encoded, dic, settings);
+        assertEquals(data.length, decoded.length);
+        assertArrayEquals(data, Arrays.copyOf(decoded.data, (int) decoded.length));
+
+        // Truncated deflate data gives a prefix of the original data
+        byte[] truncated = readAll(StreamDecoder.openDecodedStream(
+                new ByteArrayInputStream(hex.substring(0, 2 * (clen / 2)).concat(">").getBytes("ISO-8859-1")), dic, settings));
+        assertArrayEquals(Arrays.copyOf(data, truncated.length), truncated);
+
+        // /DL is a hint only: the output array is not allocated beyond the stream limit
+        dic.put(COSName.DL, new COSNumber(encoded.length * 1000));
+        settings.maxStreamDecodedSize = 200000;
+        decoded = StreamDecoder.decodeStream(encoded, dic, settings);
+        assertArrayEquals(data, Arrays.copyOf(decoded.data, (int) decoded.length));
+        assertTrue(decoded.data.length <= settings.maxStreamDecodedSize + 1);
+    }
+
+    @Test
+    public void checkFlateWithDecodedLength() throws IOException {
+        byte[] data = new byte[50000];
+        for (int i = 0; i < data.length; i++)
+            data[i] = (byte) (i % 13);
+
+        Deflater deflater = new Deflater();
+        deflater.setInput(data);
+        deflater.finish();
+        byte[] buf = new byte[data.length];
+        byte[] compressed = Arrays.copyOf(buf, deflater.deflate(buf));
+        deflater.end();
+
+        COSDictionary dic = new COSDictionary();
+        dic.put(COSName.FILTER, COSName.FLATEDECODE);
+        dic.put(COSName.DL, new COSNumber(data.length));
+
+        ParserSettings settings = new ParserSettings();
+        for (int pass = 0; pass < 3; pass++) { // pooled inflaters are reused
+            PDFRawData decoded = StreamDecoder.decodeStream(compressed, dic, settings);
+            assertEquals(data.length, decoded.length);
+            assertEquals("Output array should be allocated once", data.length + 1, decoded.data.length);
+            assertArrayEquals(data, Arrays.copyOf(decoded.data, (int) decoded.length));
+        }
+
+        // Hostile /DL must not overflow the size of output array
+        PDFRawData decoded = FlateInputStream.inflate(compressed, Integer.MAX_VALUE, 100000);
+        assertArrayEquals(data, Arrays.copyOf(decoded.data, (int) decoded.length));
+    }
+
+    static byte[] bytes(PDFRawData data) {
+        return Arrays.copyOf(data.data, (int) data.length);
+    }
+
+    static byte[] encodeASCII85(byte[] data) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < data.length; i += 4) {
+            int n = Math.min(4, data.length - i);
+            long v = 0;
+            for (int j = 0; j < 4; j++)
+                v = (v << 8) | (j < n ? data[i + j] & 0xFF : 0);
+            if (v == 0 && n == 4) {
+                sb.append('z');
+                continue;
+            }
+            char[] group = new char[5];
+            for (int j = 4; j >= 0; j--) {
+                group[j] = (char) ('!' + v % 85);
+                v /= 85;
+            }
+            sb.append(group, 0, n + 1);
+            if (sb.length() % 75 < 5)
+                sb.append('\n');
+        }
+        return (sb.append("~>")).toString().getBytes();
+    }
+
+    static byte[] encodeHex(byte[] data) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < data.length; i++) {
+            sb.append(String.format("%02X", data[i] & 0xFF));
+            if (i % 32 == 31)
+                sb.append("\r\n");
+        }
+        return sb.append('>').toString().getBytes();
+    }
+
+    static byte[] encodeRunLength(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int i = 0;
+        while (i < data.length) {
+            int run = 1;
+            while (i + run < data.length && run < 128 && data[i + run] == data[i])
+                run++;
+            if (run > 1) {
+                out.write(257 - run);
+                out.write(data[i]);
+                i += run;
+            } else {
+                int start = i;
+                while (i < data.length && i - start < 128 && (i + 1 >= data.length || data[i + 1] != data[i]))
+                    i++;
+                out.write(i - start - 1);
+                out.write(data, start, i - start);
+            }
+        }
+        out.write(128);
+        return out.toByteArray();
+    }
+
+    static byte[] sample(int size, long seed) {
+        byte[] data = new byte[size];
+        Random random = new Random(seed);
+        for (int i = 0; i < size; ) {
+            int run = 1 + random.nextInt(12);
+            byte b = (byte) random.nextInt(random.nextBoolean() ? 256 : 2); // zeros make 'z' groups
+            for (int j = 0; j < run && i < size; j++, i++)
+                data[i] = random.nextBoolean() ? b : (byte) random.nextInt(256);
+        }
+        return data;
+    }
+
+    @Test
+    public void checkInMemoryDecoders() throws IOException {
+        for (int size = 0; size < 40; size++) {
+            byte[] data = sample(size * 37 + size % 4, size);
+
+            byte[] a85 = encodeASCII85(data);
+            assertArrayEquals(data, bytes(ASCII85InputStream.decode(a85, 0, a85.length)));
+            assertArrayEquals(data, readAll(new ASCII85InputStream(new ByteArrayInputStream(a85))));
+
+            byte[] hex = encodeHex(data);
+            assertArrayEquals(data, bytes(ASCIIHexInputStream.decode(hex, 0, hex.length)));
+            assertArrayEquals(data, readAll(new ASCIIHexInputStream(new ByteArrayInputStream(hex))));
+
+            byte[] rl = encodeRunLength(data);
+            assertArrayEquals(data, bytes(RunLengthInputStream.decode(rl, 0, rl.length)));
+            assertArrayEquals(data, readAll(new RunLengthInputStream(new ByteArrayInputStream(rl))));
+
+            // truncated RunLength data: both decoders return the same prefix
+            byte[] truncated = Arrays.copyOf(rl, rl.length / 2);
+            assertArrayEquals(readAll(new RunLengthInputStream(new ByteArrayInputStream(truncated))),
+                    bytes(RunLengthInputStream.decode(truncated, 0, truncated.length)));
+        }
+
+        COSDictionary dic = new COSDictionary();
+        dic.put(COSName.FILTER, COSName.A85);
+        assertArrayEquals("Hello".getBytes("ISO-8859-1"), bytes(StreamDecoder.decodeStream("87cURDZ~>".getBytes("ISO-8859-1"), dic, new ParserSettings())));
+    }
+
+    private static final COSName INVERT = new COSName("/InvertDecode");
+
+    /**
+     * Test filter, which inverts all bits. Registered in META-INF/services
+     */
+    public static class InvertFilterProvider implements FilterProvider {
+        @Override
+        public void registerFilters(FilterRegistry registry) {
+            registry.register(INVERT, new StreamDecoder.FilterHandler() {
+                @Override
+                public InputStream decode(InputStream in, COSName filterName, COSObject decodeParams, COSDictionary streamDictionary, ParserSettings settings, long maxLength) {
+                    return new FilterInputStream(in) {
+                        @Override
+                        public int read() throws IOException {
+                            int b = in.read();
+                            return b < 0 ? b : b ^ 0xFF;
+                        }
+
+                        @Override
+                        public int read(byte[] b, int off, int len) throws IOException {
+                            int n = in.read(b, off, len);
+                            for (int i = 0; i < n; i++)
+                                b[off + i] ^= (byte) 0xFF;
+                            return n;
+                        }
+                    };
+                }
+            });
+        }
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(data);
+        deflater.finish();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        while (!deflater.finished())
+            out.write(buf, 0, deflater.deflate(buf));
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    @Test
+    public void checkFilterRegistry() throws IOException {
+        byte[] data = "Hello, filters".getBytes("ISO-8859-1");
+        byte[] inverted = data.clone();
+        for (int i = 0; i < inverted.length; i++)
+            inverted[i] ^= (byte) 0xFF;
+
+        // discovered through ServiceLoader
+        assertNotNull(FilterRegistry.getDefault().get(INVERT));
+        COSDictionary dic = new COSDictionary();
+        dic.put(COSName.FILTER, INVERT);
+        assertArrayEquals(data, bytes(StreamDecoder.decodeStream(inverted, dic, new ParserSettings())));
+
+        // disabled filter leaves data encoded
+        byte[] compressed = deflate(inverted);
+        COSArray filters = new COSArray();
+        filters.add(COSName.FLATEDECODE);
+        filters.add(INVERT);
+        dic.put(COSName.FILTER, filters);
+
+        ParserSettings settings = new ParserSettings();
+        settings.filterRegistry = new FilterRegistry(FilterRegistry.getDefault());
+        assertArrayEquals(data, bytes(StreamDecoder.decodeStream(compressed, dic, settings)));
+        settings.filterRegistry.setEnabled(INVERT, false);
+        assertArrayEquals(inverted, bytes(StreamDecoder.decodeStream(compressed, dic, settings)));
+        settings.filterRegistry.setEnabled(COSName.FLATEDECODE, false);
+        assertArrayEquals(compressed, bytes(StreamDecoder.decodeStream(compressed, dic, settings)));
+        assertTrue("Shared registry is not changed", FilterRegistry.getDefault().isEnabled(COSName.FLATEDECODE));
+
+        // replaced built-in filter is used instead of in-memory fast path
+        settings.filterRegistry = new FilterRegistry();
+        settings.maxStreamDecodedSize = 1024 * 1024;
+        final int[] calls = {0};
+        final long[] limits = {0};
+        settings.filterRegistry.register(COSName.FLATEDECODE, new StreamDecoder.FilterHandler() {
+            @Override
+            public InputStream decode(InputStream in, COSName filterName, COSObject decodeParams, COSDictionary streamDictionary, ParserSettings settings, long maxLength) {
+                calls[0]++;
+                limits[0] = maxLength;
+                return new java.util.zip.InflaterInputStream(in);
+            }
+        });
+        dic.put(COSName.FILTER, COSName.FLATEDECODE);
+        assertArrayEquals(inverted, bytes(StreamDecoder.decodeStream(compressed, dic, settings)));
+        assertEquals(1, calls[0]);
+        assertEquals("Stage receives the stream limit", 1024 * 1024, limits[0]);
+        assertNull("Unknown filter", settings.filterRegistry.get(INVERT));
+    }
+
+    @Test
+    public void checkDecodeBudget() throws IOException {
+        byte[] bomb = deflate(new byte[8 * 1024 * 1024]); // ~8 KB of compressed zeros
+        COSDictionary dic = new COSDictionary();
+        dic.put(COSName.FILTER, COSName.FLATEDECODE);
+
+        ParserSettings settings = new ParserSettings();
+        settings.maxStreamDecodedSize = 1024 * 1024;
+        try {
+            StreamDecoder.decodeStream(bomb, dic, settings);
+            fail("Stream limit is not checked");
+        } catch (EDecoderException e) {
+            // expected
+        }
+        try {
+            readAll(StreamDecoder.openDecodedStream(new ByteArrayInputStream(bomb), dic, settings));
+            fail("Stream limit is not checked while streaming");
+        } catch (EDecoderException e) {
+            // expected
+        }
+
+        // document limit is shared by all streams
+        byte[] stream = deflate(new byte[600 * 1024]);
+        DecodeBudget budget = new DecodeBudget(0, 1024 * 1024);
+        assertEquals(600 * 1024, StreamDecoder.decodeStream(stream, dic, settings, budget).length);
+        assertEquals(600 * 1024, budget.getDecodedSize());
+        try {
+            readAll(StreamDecoder.openDecodedStream(new ByteArrayInputStream(stream), dic, settings, budget));
+            fail("Document limit is not checked");
+        } catch (EDecoderException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void checkDecodeBudgetBeforeAllocation() throws IOException {
+        DecodeBudget budget = new DecodeBudget(1024 * 1024, 0);
+        byte[][] bombs = {
+                TestLZWDecoder.encode(new byte[4 * 1024 * 1024]),
+                encodeRunLength(new byte[8 * 1024 * 1024]),
+                encodeASCII85(new byte[8 * 1024 * 1024])
+        };
+        COSName[] names = {COSName.LZWDECODE, COSName.RUNLENGTHDECODE, COSName.ASCII85DECODE};
+
+        for (int i = 0; i < bombs.length; i++) {
+            COSDictionary dic = new COSDictionary();
+            dic.put(COSName.FILTER, names[i]);
+            try {
+                StreamDecoder.decodeStream(bombs[i], dic, new ParserSettings(), budget);
+                fail(names[i] + ": stream limit is not checked");
+            } catch (EDecoderException e) {
+                // expected
+            }
+        }
+
+        try {
+            RunLengthInputStream.decode(bombs[1], 0, bombs[1].length, 1000);
+            fail("RunLength: limit is not checked");
+        } catch (EDecoderException e) {
+            // expected
+        }
+        byte[] hex = encodeHex(new byte[1000]);
+        assertEquals(1000, ASCIIHexInputStream.decode(hex, 0, hex.length, 1000).length);
+        try {
+            ASCIIHexInputStream.decode(hex, 0, hex.length, 999);
+            fail("ASCIIHex: limit is not checked");
+        } catch (EDecoderException e) {
+            // expected
+        }
+        assertEquals(0, budget.getDecodedSize());
+    }
+
+    @Test
+    public void checkDecodeBudgetKeys() throws IOException {
+        COSDictionary dic = new COSDictionary();
+        dic.put(COSName.FILTER, COSName.FLATEDECODE);
+        ParserSettings settings = new ParserSettings();
+        byte[] stream = deflate(new byte[600 * 1024]);
+        DecodeBudget budget = new DecodeBudget(0, 1024 * 1024);
+
+        // the same stream is charged once, however many times it is decoded
+        for (int i = 0; i < 3; i++) {
+            assertEquals(600 * 1024, StreamDecoder.decodeStream(stream, dic, settings, budget, 100).length);
+            assertEquals(600 * 1024, readAll(StreamDecoder.openDecodedStream(new ByteArrayInputStream(stream), dic, settings, budget, 100)).length);
+        }
+        assertEquals(600 * 1024, budget.getDecodedSize());
+
+        try {
+            StreamDecoder.decodeStream(stream, dic, settings, budget, 200);
+            fail("Document limit is not checked");
+        } catch (EDecoderException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,490 @@
+package org.pdfparse;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.pdfparse.cos.COSObject;
+import org.pdfparse.cos.COSReference;
+import org.pdfparse.cos.COSStream;
+import org.pdfparse.cos.COSString;
+import org.pdfparse.exception.EParseError;
+import org.pdfparse.filter.StreamDecoder;
+import org.pdfparse.io.ArraySource;
+import org.pdfparse.parser.ObjectCachePolicy;
+import org.pdfparse.parser.ParserSettings;
+import org.pdfparse.parser.XRefTable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+public class TestXRefTable extends Assert {
+
+    @Test
+    public void checkDenseTable() {
+        XRefTable xref = new XRefTable(new ParserSettings());
+        xref.ensureCapacity(10);
+
+        xref.add(1, 0, 100);
+        xref.add(1, 2, 200);  // greater generation wins
+        xref.add(1, 1, 300);
+        xref.add(3, 0, 0);    // free object
+        xref.addCompressed(5, 7, 2);
+        xref.add(1000, 0, 400); // beyond /Size, table grows
+
+        assertEquals(3, xref.size());
+        assertArrayEquals(new int[]{1, 5, 1000}, xref.getKeys());
+        assertSame(xref.getKeys(), xref.getKeys());
+
+        assertEquals(2, xref.getGeneration(1));
+        assertEquals(200, xref.getFileOffset(1));
+        assertFalse(xref.contains(3));
+        assertTrue(xref.isCompressed(5));
+        assertEquals(7, xref.getContainerId(5));
+        assertEquals(2, xref.getIndexWithinContainer(5));
+        assertEquals(0, xref.getGeneration(5));
+        assertEquals(400, xref.getFileOffset(1000));
+        assertNull(xref.get(2));
+        assertEquals(200, xref.get(1).fileOffset);
+    }
+
+    @Test
+    public void checkDecodeBudgetWithEviction() throws Exception {
+        File file = new File(this.getClass().getResource("/loremipsum2.pdf").toURI());
+        XRefTable reference = new PDFFile(file).getXRef();
+        long decoded = 0;
+        for (int key : reference.getKeys())
+            if (reference.isCompressed(key) && (reference.getContainerId(key) != -1)) {
+                COSStream container = (COSStream) reference.getObject(new COSReference(reference.getContainerId(key), 0));
+                decoded += StreamDecoder.decodeStream(container.getData(), container, new ParserSettings()).length;
+            }
+
+        // Object streams are decoded again and again after eviction, but charged once
+        ParserSettings settings = new ParserSettings();
+        settings.objectCachePolicy = ObjectCachePolicy.LRU;
+        settings.objectCacheSize = 2;
+        settings.maxDocumentDecodedSize = decoded + 64 * 1024; // room for XRef streams
+        PDFFile pp = new PDFFile(settings);
+        pp.open(file);
+        for (int pass = 0; pass < 3; pass++)
+            for (int key : pp.getXRef().getKeys())
+                pp.getXRef().getObject(new COSReference(key, pp.getXRef().getGeneration(key)));
+        assertTrue(pp.getXRef().getCacheEvictions() > 0);
+    }
+
+    @Test
+    public void checkSoftObjectCache() throws Exception {
+        File file = new File(this.getClass().getResource("/loremipsum2.pdf").toURI());
+        ParserSettings settings = new ParserSettings();
+        settings.objectCachePolicy = ObjectCachePolicy.SOFT;
+        PDFFile pp = new PDFFile(settings);
+        pp.open(file);
+        XRefTable xref = pp.getXRef();
+        for (int key : xref.getKeys())
+            xref.getObject(new COSReference(key, xref.getGeneration(key)));
+        assertEquals(0, xref.getCacheEvictions());
+
+        // Soft references are cleared before OutOfMemoryError is thrown
+        List<byte[]> filler = new ArrayList<byte[]>();
+        try {
+            while (true)
+                filler.add(new byte[16 * 1024 * 1024]);
+        } catch (OutOfMemoryError e) {
+            filler.clear();
+        }
+
+        // cleared references are enqueued by the collector asynchronously
+        for (int i = 0; (i < 100) && (xref.getCacheEvictions() == 0); i++)
+            Thread.sleep(10);
+        assertTrue(xref.getCacheEvictions() > 0);
+        int cached = 0;
+        for (int key : xref.getKeys()) {
+            assertNotNull(xref.getObject(new COSReference(key, xref.getGeneration(key))));
+            if (xref.getCachedObject(key) != null)
+                cached++;
+        }
+        assertEquals(xref.size(), cached);
+    }
+
+    @Test
+    public void checkKeysByOffset() {
+        XRefTable xref = new XRefTable(new ParserSettings());
+        xref.add(1, 0, 500);
+        xref.add(2, 0, 100);
+        xref.add(3, 0, 300);        // object stream
+        xref.addCompressed(4, 3, 1);
+        xref.addCompressed(5, 3, 0);
+        xref.addCompressed(6, 9, 0); // container is missing
+        xref.add(7, 0, 200);
+
+        assertArrayEquals(new int[]{2, 7, 3, 5, 4, 1, 6}, xref.getKeysByOffset());
+        assertSame(xref.getKeysByOffset(), xref.getKeysByOffset());
+
+        xref.add(8, 0, 50);
+        assertEquals(8, xref.getKeysByOffset()[0]);
+    }
+
+    @Test
+    public void checkDocumentKeysByOffset() throws Exception {
+        File file = new File(this.getClass().getResource("/loremipsum2.pdf").toURI());
+        XRefTable xref = new PDFFile(file).getXRef();
+
+        int[] keys = xref.getKeysByOffset();
+        assertEquals(xref.size(), keys.length);
+
+        long prevOffset = -1;
+        int prevContainer = -1, prevIndex = -1, containers = 0;
+        for (int key : keys) {
+            if (!xref.isCompressed(key)) {
+                assertTrue(xref.getFileOffset(key) >= prevOffset);
+                prevOffset = xref.getFileOffset(key);
+                prevContainer = -1;
+                continue;
+            }
+            int containerId = xref.getContainerId(key);
+            if (containerId != prevContainer) {
+                // Objects of an object stream come right after the stream itself
+                assertEquals(prevOffset, xref.getFileOffset(containerId));
+                containers++;
+                prevIndex = -1;
+            }
+            assertTrue(xref.getIndexWithinContainer(key) > prevIndex);
+            prevContainer = containerId;
+            prevIndex = xref.getIndexWithinContainer(key);
+        }
+        assertTrue(containers > 0);
+    }
+
+    @Test
+    public void checkSingleCompressedObjectParse() throws Exception {
+        File file = new File(this.getClass().getResource("/loremipsum2.pdf").toURI());
+        PDFFile pp = new PDFFile(file);
+        XRefTable xref = pp.getXRef();
+
+        int target = -1, siblings = 0;
+        for (int key : xref.getKeys()) {
+            if (!xref.isCompressed(key) || xref.getCachedObject(key) != null)
+                continue;
+            if (target < 0)
+                target = key;
+            else if (xref.getContainerId(key) == xref.getContainerId(target))
+                siblings++;
+        }
+        assertTrue("No compressed objects found", target > 0);
+
+        assertNotNull(xref.getObject(new COSReference(target, 0)));
+        assertNotNull(xref.getCachedObject(target));
+
+        // Other objects of the same object stream are not parsed
+        int parsed = 0;
+        for (int key : xref.getKeys())
+            if (key != target && xref.isCompressed(key)
+                    && xref.getContainerId(key) == xref.getContainerId(target)
+                    && xref.getCachedObject(key) != null)
+                parsed++;
+        assertTrue(siblings > 0);
+        assertEquals(0, parsed);
+    }
+
+    @Test
+    public void checkBoundedObjectCache() throws Exception {
+        File file = new File(this.getClass().getResource("/loremipsum2.pdf").toURI());
+        PDFFile reference = new PDFFile(file);
+        reference.parseEverything();
+
+        for (ObjectCachePolicy policy : new ObjectCachePolicy[]{ObjectCachePolicy.LRU, ObjectCachePolicy.WEIGHTED}) {
+            ParserSettings settings = new ParserSettings();
+            settings.objectCachePolicy = policy;
+            settings.objectCacheSize = 5;
+            settings.objectCacheWeight = 2048;
+            PDFFile pp = new PDFFile(settings);
+            pp.open(file);
+            XRefTable xref = pp.getXRef();
+
+            // Walk twice, so evicted objects are parsed again
+            for (int pass = 0; pass < 2; pass++) {
+                for (int key : xref.getKeys()) {
+                    COSObject obj = xref.getObject(new COSReference(key, xref.getGeneration(key)));
+                    assertArrayEquals(produce(reference.getXRef().getCachedObject(key)), produce(obj));
+                }
+            }
+
+            int cached = 0;
+            for (int key : xref.getKeys())
+                if (xref.getCachedObject(key) != null)
+                    cached++;
+            assertTrue(xref.getCacheEvictions() > 0);
+            assertTrue(cached < xref.size());
+            if (policy == ObjectCachePolicy.LRU)
+                assertTrue(cached <= 5);
+        }
+    }
+
+    private static byte[] produce(COSObject obj) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        obj.produce(out, null);
+        return out.toByteArray();
+    }
+
+    /**
+     * Builds document with a single classic XRef subsection
+     *
+     * @param eol         entry terminator, two bytes for strict layout
+     * @param brokenEntry index of entry with an extra space, or -1
+     */
+    static byte[] buildDocument(int objects, String eol, int brokenEntry) throws Exception {
+        StringBuilder sb = new StringBuilder(objects * 48 + 256);
+        sb.append("%PDF-1.4\n");
+        long[] offsets = new long[objects + 1];
+        offsets[1] = sb.length();
+        sb.append("1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n");
+        offsets[2] = sb.length();
+        sb.append("2 0 obj\n<< /Type /Pages /Kids [] /Count 0 >>\nendobj\n");
+        for (int i = 3; i <= objects; i++) {
+            offsets[i] = sb.length();
+            sb.append(i).append(" 0 obj\n").append(i).append("\nendobj\n");
+        }
+
+        long xrefOffset = sb.length();
+        sb.append("xref\n0 ").append(objects + 1).append('\n');
+        sb.append("0000000000 65535 f").append(eol);
+        for (int i = 1; i <= objects; i++) {
+            String offs = Long.toString(offsets[i]);
+            for (int j = offs.length(); j < 10; j++)
+                sb.append('0');
+            sb.append(offs).append(i == brokenEntry ? "  00000 n" : " 00000 n").append(eol);
+        }
+        sb.append("trailer\n<< /Size ").append(objects + 1).append(" /Root 1 0 R >>\nstartxref\n")
+                .append(xrefOffset).append("\n%%EOF\n");
+        return sb.toString().getBytes("ISO-8859-1");
+    }
+
+    private static XRefTable openXRef(byte[] data, int parallelThreshold) {
+        return openXRef(data, parallelThreshold, null);
+    }
+
+    static XRefTable openXRef(byte[] data, int parallelThreshold, ForkJoinPool pool) {
+        ParserSettings settings = new ParserSettings();
+        settings.xrefParallelThreshold = parallelThreshold;
+        settings.parserPool = pool;
+        PDFFile pp = new PDFFile(settings);
+        pp.open(new ArraySource(data));
+        return pp.getXRef();
+    }
+
+    private static void assertSameEntries(XRefTable expected, XRefTable actual) {
+        assertArrayEquals(expected.getKeys(), actual.getKeys());
+        for (int key : expected.getKeys()) {
+            assertEquals(expected.getFileOffset(key), actual.getFileOffset(key));
+            assertEquals(expected.getGeneration(key), actual.getGeneration(key));
+        }
+    }
+
+    @Test
+    public void checkClassicXRefFastPath() throws Exception {
+        // " \n" entries take the fast path, "\n" entries (19 bytes) take the tolerant scanner
+        XRefTable tolerant = openXRef(buildDocument(5000, "\n", -1), 0);
+        assertEquals(5000, tolerant.size());
+        assertEquals(9, tolerant.getFileOffset(1));
+        assertSameEntries(tolerant, openXRef(buildDocument(5000, " \n", -1), 0));
+        assertSameEntries(tolerant, openXRef(buildDocument(5000, "\r\n", -1), 0));
+        assertSameEntries(tolerant, openXRef(buildDocument(5000, " \n", -1), 100));   // parallel
+        assertSameEntries(tolerant, openXRef(buildDocument(5000, " \n", 4000), 100)); // malformed, falls back
+    }
+
+    @Test
+    public void checkClassicXRefParallelSplit() throws Exception {
+        // more than two chunks of XRefSectionDecoder.CHUNK_SIZE, so the parallel path really forks
+        int objects = 40000;
+        XRefTable expected = openXRef(buildDocument(objects, "\n", -1), 0);
+        assertEquals(objects, expected.size());
+
+        byte[] strict = buildDocument(objects, " \n", -1);
+        assertSameEntries(expected, openXRef(strict, 0));
+        assertSameEntries(expected, openXRef(strict, 1024));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertSameEntries(expected, openXRef(strict, 1024, pool));
+            assertSameEntries(expected, openXRef(buildDocument(objects, " \n", 39000), 1024, pool)); // malformed in the last chunk
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void checkFreeEntries() {
+        XRefTable xref = new XRefTable(new ParserSettings());
+        xref.add(1, 0, 100);
+        xref.markFree(1, 1);       // already known from a newer section, kept
+        xref.markFree(2, 1);
+        xref.markFree(3, 1);
+        xref.add(2, 0, 200);       // older section, deleted object
+        xref.addCompressed(3, 7, 0);
+        xref.add(4, 0, 400);
+
+        assertEquals(2, xref.size());
+        assertArrayEquals(new int[]{1, 4}, xref.getKeys());
+        assertFalse(xref.isFree(1));
+        assertTrue(xref.isFree(2));
+        assertFalse(xref.contains(2));
+        assertFalse(xref.contains(3));
+
+        xref.add(2, 1, 250);       // object is reused with the next generation
+        assertTrue(xref.contains(2));
+        assertFalse(xref.isFree(2));
+        assertEquals(3, xref.size());
+    }
+
+    private static void writeField(ByteArrayOutputStream out, long value, int width) {
+        for (int i = width - 1; i >= 0; i--)
+            out.write((int) (value >>> (8 * i)));
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String s) throws IOException {
+        out.write(s.getBytes("ISO-8859-1"));
+    }
+
+    /**
+     * Builds document with regular objects 3..8, object 9 stored in object stream 10,
+     * and XRef stream 11 written with the given /W. Object 5 is freed by a newer XRef stream 12.
+     * XRef streams do not list themselves
+     */
+    private static byte[] buildXRefStreamDocument(int[] w) throws IOException {
+        return buildXRefStreamDocument(w, 1);
+    }
+
+    /**
+     * @param n /N of object stream 10, it holds one object regardless of the value
+     */
+    private static byte[] buildXRefStreamDocument(int[] w, int n) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long[] offsets = new long[13];
+        writeString(out, "%PDF-1.5\n");
+        offsets[1] = out.size();
+        writeString(out, "1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n");
+        offsets[2] = out.size();
+        writeString(out, "2 0 obj\n<< /Type /Pages /Kids [] /Count 0 >>\nendobj\n");
+        for (int i = 3; i <= 8; i++) {
+            offsets[i] = out.size();
+            writeString(out, i + " 0 obj\n" + (i * 10) + "\nendobj\n");
+        }
+        offsets[10] = out.size();
+        writeString(out, "10 0 obj\n<< /Type /ObjStm /N " + n + " /First 4 /Length 7 >>\nstream\n9 0 90 \nendstream\nendobj\n");
+
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        for (int i = 0; i <= 10; i++) {
+            int type = (i == 0) ? 0 : (i == 9) ? 2 : 1;
+            long f2 = (i == 9) ? 10 : offsets[i];
+            int f3 = (i == 0) ? 0xFF : 0;
+            if (w[0] != 0)
+                writeField(entries, type, w[0]);
+            writeField(entries, f2, w[1]);
+            writeField(entries, f3, w[2]);
+        }
+        offsets[11] = out.size();
+        writeString(out, "11 0 obj\n<< /Type /XRef /Size 11 /W [" + w[0] + " " + w[1] + " " + w[2] + "] /Root 1 0 R /Length "
+                + entries.size() + " >>\nstream\n");
+        entries.writeTo(out);
+        writeString(out, "\nendstream\nendobj\n");
+        offsets[12] = out.size();
+        writeString(out, "12 0 obj\n<< /Type /XRef /Size 13 /W [1 1 1] /Index [5 1] /Prev " + offsets[11]
+                + " /Root 1 0 R /Length 3 >>\nstream\n");
+        out.write(new byte[]{0, 0, 1});
+        writeString(out, "\nendstream\nendobj\nstartxref\n" + offsets[12] + "\n%%EOF\n");
+        return out.toByteArray();
+    }
+
+    /**
+     * Object 3 is a regular object in the classic XRef table of the first revision, the update
+     * moves it into object stream 4 and lists it in XRef stream 5, which refers to the table with /Prev
+     */
+    private static byte[] buildIncrementalUpdateDocument() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long[] offsets = new long[6];
+        writeString(out, "%PDF-1.5\n");
+        offsets[1] = out.size();
+        writeString(out, "1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n");
+        offsets[2] = out.size();
+        writeString(out, "2 0 obj\n<< /Type /Pages /Kids [] /Count 0 >>\nendobj\n");
+        offsets[3] = out.size();
+        writeString(out, "3 0 obj\n(old)\nendobj\n");
+        long table = out.size();
+        writeString(out, "xref\n0 4\n0000000000 65535 f \n");
+        for (int i = 1; i <= 3; i++)
+            writeString(out, String.format("%010d 00000 n \n", offsets[i]));
+        writeString(out, "trailer\n<< /Size 4 /Root 1 0 R >>\nstartxref\n" + table + "\n%%EOF\n");
+
+        offsets[4] = out.size();
+        writeString(out, "4 0 obj\n<< /Type /ObjStm /N 1 /First 4 /Length 9 >>\nstream\n3 0 (new)\nendstream\nendobj\n");
+        offsets[5] = out.size();
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        for (int i = 3; i <= 5; i++) {
+            writeField(entries, (i == 3) ? 2 : 1, 1);
+            writeField(entries, (i == 3) ? 4 : offsets[i], 4);
+            writeField(entries, 0, 1);
+        }
+        writeString(out, "5 0 obj\n<< /Type /XRef /Size 6 /Index [3 3] /W [1 4 1] /Prev " + table
+                + " /Root 1 0 R /Length " + entries.size() + " >>\nstream\n");
+        entries.writeTo(out);
+        writeString(out, "\nendstream\nendobj\nstartxref\n" + offsets[5] + "\n%%EOF\n");
+        return out.toByteArray();
+    }
+
+    @Test
+    public void checkIncrementalUpdate() throws Exception {
+        XRefTable xref = new PDFFile(buildIncrementalUpdateDocument()).getXRef();
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5}, xref.getKeys());
+        assertTrue(xref.isCompressed(3));
+        assertEquals(4, xref.getContainerId(3));
+        assertEquals("new", ((COSString) xref.getObject(new COSReference(3, 0))).getValue());
+
+        // Sections are added from the newest to the oldest
+        xref = new XRefTable(new ParserSettings());
+        xref.addCompressed(1, 10, 0);
+        xref.add(1, 0, 100);       // older revision, kept compressed
+        xref.add(2, 0, 200);
+        xref.addCompressed(2, 10, 1); // older revision, kept regular
+        xref.add(1, 1, 300);       // greater generation overrides
+        assertFalse(xref.isCompressed(1));
+        assertEquals(300, xref.getFileOffset(1));
+        assertEquals(200, xref.getFileOffset(2));
+    }
+
+    @Test
+    public void checkObjectStreamCount() throws Exception {
+        for (int n : new int[]{-1, 5, Integer.MAX_VALUE}) {
+            XRefTable xref = new PDFFile(buildXRefStreamDocument(new int[]{1, 2, 1}, n)).getXRef();
+            assertEquals("30", xref.getObject(new COSReference(3, 0)).toString());
+            try {
+                xref.getObject(new COSReference(9, 0));
+                fail("Invalid /N accepted: " + n);
+            } catch (EParseError e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void checkXRefStreamWidths() throws Exception {
+        int[][] widths = {{1, 2, 1}, {1, 3, 1}, {1, 4, 2}, {1, 2, 2}, {2, 8, 3}};
+        for (int[] w : widths) {
+            String name = "W [" + w[0] + " " + w[1] + " " + w[2] + "]";
+            PDFFile pp = new PDFFile(buildXRefStreamDocument(w));
+            XRefTable xref = pp.getXRef();
+
+            assertArrayEquals(name, new int[]{1, 2, 3, 4, 6, 7, 8, 9, 10}, xref.getKeys());
+            assertTrue(name, xref.isFree(0));
+            assertTrue(name, xref.isFree(5));
+            assertTrue(name, xref.isCompressed(9));
+            assertEquals(name, 10, xref.getContainerId(9));
+            for (int i = 3; i <= 8; i++) {
+                if (i == 5)
+                    continue;
+                assertEquals(name, String.valueOf(i * 10), xref.getObject(new COSReference(i, 0)).toString());
+            }
+            assertEquals(name, "90", xref.getObject(new COSReference(9, 0)).toString());
+        }
+    }
+}